@@ -0,0 +1,53 @@
+package com.diary.backend.benchmark;
+
+import org.apache.ibatis.type.ArrayTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tag column mapping through MyBatis' ArrayTypeHandler in both directions, against stub JDBC
+ * objects so only the handler's own cost is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArrayTypeHandlerBenchmark {
+
+    @Param({"3", "20"})
+    public int tagCount;
+
+    private final ArrayTypeHandler handler = new ArrayTypeHandler();
+    private ResultSet resultSet;
+    private PreparedStatement statement;
+    private String[] tags;
+
+    @Setup
+    public void setup() {
+        tags = Fixtures.tags(tagCount);
+        Array array = Stubs.proxy(Array.class, Map.of("getArray", args -> tags.clone()));
+        resultSet = Stubs.proxy(ResultSet.class, Map.of("getArray", args -> array));
+        Connection connection = Stubs.proxy(Connection.class, Map.of("createArrayOf", args -> array));
+        statement = Stubs.proxy(PreparedStatement.class, Map.of("getConnection", args -> connection));
+    }
+
+    @Benchmark
+    public Object readTags() throws Exception {
+        return handler.getResult(resultSet, "tags");
+    }
+
+    @Benchmark
+    public PreparedStatement writeTags() throws Exception {
+        handler.setParameter(statement, 7, tags, JdbcType.ARRAY);
+        return statement;
+    }
+}
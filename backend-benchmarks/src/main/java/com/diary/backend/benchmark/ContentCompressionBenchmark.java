@@ -0,0 +1,65 @@
+package com.diary.backend.benchmark;
+
+import com.diary.backend.mapper.CompressedTextTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of CompressedTextTypeHandler on the write and read paths, against stub JDBC objects.
+ * The storage side is printed once per trial ("stored N of M bytes"): that is what Postgres keeps
+ * on disk and sends over the wire instead of the plain text (before TOAST's own compression, which
+ * the plain form would still get).
+ * "entry" is a typical ~1.5KB diary body (below the default threshold, so stored as is); the other
+ * sizes are mind map documents with that many nodes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentCompressionBenchmark {
+
+    @Param({"entry", "50", "500", "5000"})
+    public String content;
+
+    @Param({"1", "3", "9"})
+    public int level;
+
+    private final CompressedTextTypeHandler handler = new CompressedTextTypeHandler();
+    private ResultSet resultSet;
+    private PreparedStatement statement;
+    private String text;
+
+    @Setup
+    public void setup() {
+        CompressedTextTypeHandler.configure(true, 2048, level);
+        text = content.equals("entry")
+                ? Fixtures.entries(1, 1L).get(0).getContent()
+                : Fixtures.mindMapContent(Integer.parseInt(content));
+        String stored = CompressedTextTypeHandler.encode(text);
+        resultSet = Stubs.proxy(ResultSet.class, Map.of("getString", args -> stored));
+        statement = Stubs.proxy(PreparedStatement.class, Map.of());
+        int plainBytes = text.getBytes(StandardCharsets.UTF_8).length;
+        int storedBytes = stored.getBytes(StandardCharsets.UTF_8).length;
+        System.out.printf("%n%s at level %d: stored %d of %d bytes (%.1f%%)%n",
+                content, level, storedBytes, plainBytes, 100.0 * storedBytes / plainBytes);
+    }
+
+    @Benchmark
+    public PreparedStatement write() throws Exception {
+        handler.setParameter(statement, 4, text, JdbcType.VARCHAR);
+        return statement;
+    }
+
+    @Benchmark
+    public Object read() throws Exception {
+        return handler.getResult(resultSet, "content");
+    }
+}
@@ -0,0 +1,131 @@
+package com.diary.backend.benchmark;
+
+import com.diary.backend.dto.CommunityEntryDTO;
+import com.diary.backend.entity.DiaryEntry;
+import com.diary.backend.entity.MindMap;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic test data shaped like production rows: ~1.5KB mixed-language entry bodies,
+ * a handful of tags, and mind maps whose JSON content grows with the node count.
+ */
+final class Fixtures {
+
+    private static final String[] TAGS = {"生活", "work", "旅行", "reading", "心情", "family", "学习", "health"};
+    private static final String[] MOODS = {"happy", "calm", "sad", "excited", "tired"};
+    private static final String PARAGRAPH =
+            "今天天气很好，早上去公园散步，看到很多人在晨练。 Spent the afternoon reading and writing notes about the book. "
+            + "晚上和朋友一起吃饭，聊了很多关于未来的计划。 The city lights were beautiful on the way home. ";
+
+    private Fixtures() {
+    }
+
+    static List<DiaryEntry> entries(int count, long userId) {
+        Random random = new Random(42);
+        List<DiaryEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DiaryEntry entry = new DiaryEntry();
+            fill(entry, random, userId, i);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    static List<CommunityEntryDTO> communityEntries(int count) {
+        Random random = new Random(7);
+        List<CommunityEntryDTO> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CommunityEntryDTO dto = new CommunityEntryDTO();
+            fill(dto, random, 1 + random.nextInt(500), i);
+            dto.setPrivacy("shared");
+            dto.setAuthorName("user" + dto.getUserId());
+            dto.setLikeCount(random.nextInt(200));
+            dto.setVoteCount(dto.getIsStory() ? random.nextInt(100) : 0);
+            dto.setCommentCount(random.nextInt(30));
+            dto.setIsLiked(random.nextBoolean());
+            dto.setIsVoted(random.nextBoolean());
+            entries.add(dto);
+        }
+        return entries;
+    }
+
+    static String[] tags(int count) {
+        String[] tags = new String[count];
+        for (int i = 0; i < count; i++) {
+            tags[i] = TAGS[i % TAGS.length];
+        }
+        return tags;
+    }
+
+    static MindMap mindMap(int nodes) {
+        MindMap mindMap = new MindMap();
+        mindMap.setId(UUID.nameUUIDFromBytes(("map" + nodes).getBytes()).toString());
+        mindMap.setUserId(1L);
+        mindMap.setTitle("读书笔记 " + nodes);
+        mindMap.setContent(mindMapContent(nodes));
+        mindMap.setCreatedAt(LocalDateTime.of(2024, 1, 1, 9, 0));
+        mindMap.setUpdatedAt(LocalDateTime.of(2024, 3, 1, 21, 30));
+        return mindMap;
+    }
+
+    static List<MindMap> mindMaps(int count, int nodesEach) {
+        List<MindMap> maps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MindMap map = mindMap(nodesEach);
+            map.setId(UUID.randomUUID().toString());
+            maps.add(map);
+        }
+        return maps;
+    }
+
+    // Same shape the React Flow editor saves: {"nodes":[...],"edges":[...]}
+    static String mindMapContent(int nodes) {
+        StringBuilder sb = new StringBuilder(nodes * 260);
+        sb.append("{\"nodes\":[");
+        for (int i = 0; i < nodes; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"node-").append(i).append("\",\"type\":\"mindmap\",")
+                    .append("\"position\":{\"x\":").append((i % 20) * 180.5).append(",\"y\":").append((i / 20) * 96.25).append("},")
+                    .append("\"data\":{\"label\":\"节点 ").append(i).append(" idea\",\"color\":\"#4f46e5\",\"fontSize\":14,")
+                    .append("\"bold\":").append(i % 3 == 0).append(",\"collapsed\":false},")
+                    .append("\"width\":150,\"height\":40,\"selected\":false}");
+        }
+        sb.append("],\"edges\":[");
+        for (int i = 1; i < nodes; i++) {
+            if (i > 1) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"edge-").append(i).append("\",\"source\":\"node-").append((i - 1) / 3)
+                    .append("\",\"target\":\"node-").append(i).append("\",\"type\":\"smoothstep\",\"animated\":false}");
+        }
+        sb.append("],\"viewport\":{\"x\":0,\"y\":0,\"zoom\":1}}");
+        return sb.toString();
+    }
+
+    private static void fill(DiaryEntry entry, Random random, long userId, int i) {
+        entry.setId(UUID.nameUUIDFromBytes(("entry" + userId + "-" + i).getBytes()).toString());
+        entry.setUserId(userId);
+        entry.setTitle("第 " + i + " 篇日记 - Day " + i);
+        entry.setContent(PARAGRAPH.repeat(3 + random.nextInt(6)));
+        entry.setDate(LocalDate.of(2024, 1, 1).plusDays(i % 365));
+        String[] tags = new String[1 + random.nextInt(4)];
+        for (int t = 0; t < tags.length; t++) {
+            tags[t] = TAGS[random.nextInt(TAGS.length)];
+        }
+        entry.setTags(tags);
+        entry.setMood(MOODS[random.nextInt(MOODS.length)]);
+        entry.setPrivacy(random.nextInt(4) == 0 ? "shared" : "private");
+        entry.setIsStory(random.nextInt(10) == 0);
+        entry.setDeleted(false);
+        entry.setCreatedAt(LocalDateTime.of(2024, 1, 1, 8, 0).plusHours(i * 7L));
+        entry.setUpdatedAt(entry.getCreatedAt().plusMinutes(random.nextInt(600)));
+    }
+}
@@ -0,0 +1,57 @@
+package com.diary.backend.benchmark;
+
+import com.diary.backend.common.Result;
+import com.diary.backend.entity.MindMap;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mind map content is an opaque JSON string on the server, so the hot paths are reading the
+ * autosave request body and writing the map back out; parsing the content tree is included to
+ * show what server-side inspection of the graph would cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MindMapJsonBenchmark {
+
+    @Param({"50", "500", "5000"})
+    public int nodes;
+
+    private ObjectMapper mapper;
+    private Result<MindMap> response;
+    private byte[] autosaveBody;
+    private String content;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        MindMap mindMap = Fixtures.mindMap(nodes);
+        response = Result.success(mindMap);
+        content = mindMap.getContent();
+        autosaveBody = mapper.writeValueAsBytes(mindMap);
+    }
+
+    @Benchmark
+    public MindMap readAutosaveBody() throws Exception {
+        return mapper.readValue(autosaveBody, MindMap.class);
+    }
+
+    @Benchmark
+    public void writeMindMapResponse() throws Exception {
+        mapper.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+    @Benchmark
+    public JsonNode parseContentTree() throws Exception {
+        return mapper.readTree(content);
+    }
+}
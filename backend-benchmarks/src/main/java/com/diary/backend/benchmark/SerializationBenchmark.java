@@ -0,0 +1,56 @@
+package com.diary.backend.benchmark;
+
+import com.diary.backend.common.Result;
+import com.diary.backend.dto.CommunityEntryDTO;
+import com.diary.backend.entity.DiaryEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the two biggest list responses, using the same ObjectMapper
+ * defaults Spring Boot configures for MappingJackson2HttpMessageConverter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"20", "200", "2000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private Result<List<DiaryEntry>> entries;
+    private Result<List<CommunityEntryDTO>> communityEntries;
+
+    @Setup
+    public void setup() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = mapper.writer();
+        entries = Result.success(Fixtures.entries(size, 1L));
+        communityEntries = Result.success(Fixtures.communityEntries(size));
+    }
+
+    @Benchmark
+    public void diaryEntries() throws Exception {
+        writer.writeValue(OutputStream.nullOutputStream(), entries);
+    }
+
+    @Benchmark
+    public void communityEntries() throws Exception {
+        writer.writeValue(OutputStream.nullOutputStream(), communityEntries);
+    }
+
+    @Benchmark
+    public byte[] diaryEntriesToBytes() throws Exception {
+        return writer.writeValueAsBytes(entries);
+    }
+}
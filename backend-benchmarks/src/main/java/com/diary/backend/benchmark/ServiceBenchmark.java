@@ -0,0 +1,107 @@
+package com.diary.backend.benchmark;
+
+import com.diary.backend.common.InvalidationBus;
+import com.diary.backend.common.ResourceVersions;
+import com.diary.backend.dto.CommunityEntryDTO;
+import com.diary.backend.entity.DiaryEntry;
+import com.diary.backend.entity.MindMap;
+import com.diary.backend.mapper.CommunityMapper;
+import com.diary.backend.mapper.DiaryEntryMapper;
+import com.diary.backend.mapper.MindMapMapper;
+import com.diary.backend.service.CommunityService;
+import com.diary.backend.service.DiaryEntryService;
+import com.diary.backend.service.MindMapService;
+import com.diary.backend.service.TopicLeaderboard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-layer overhead with mappers stubbed out, i.e. everything a request pays for besides
+ * the database round trip and serialization.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+
+    @Param({"200"})
+    public int size;
+
+    private DiaryEntryService diaryEntryService;
+    private CommunityService communityService;
+    private MindMapService mindMapService;
+    private DiaryEntry story;
+
+    @Setup
+    public void setup() {
+        List<DiaryEntry> entries = Fixtures.entries(size, 1L);
+        List<CommunityEntryDTO> shared = Fixtures.communityEntries(size);
+        List<MindMap> maps = Fixtures.mindMaps(20, 200);
+
+        DiaryEntryMapper entryMapper = Stubs.proxy(DiaryEntryMapper.class, Map.of(
+                "findByUserId", args -> entries,
+                "findVisibleById", args -> entries.get(0)));
+        CommunityMapper communityMapper = Stubs.proxy(CommunityMapper.class, Map.of(
+                "findSharedEntries", args -> shared));
+        MindMapMapper mindMapMapper = Stubs.proxy(MindMapMapper.class, Map.of(
+                "findAllByUserId", args -> maps));
+
+        // Nothing here runs in a real transaction, and the disabled bus never touches its DataSource
+        PlatformTransactionManager transactionManager = Stubs.proxy(PlatformTransactionManager.class, Map.of());
+        DataSource dataSource = Stubs.proxy(DataSource.class, Map.of());
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        InvalidationBus invalidationBus = new InvalidationBus(null, null, meterRegistry, false, "benchmark", 20);
+        ResourceVersions resourceVersions = new ResourceVersions(invalidationBus, false, 0);
+        TopicLeaderboard topicLeaderboard = Stubs.inject(new TopicLeaderboard(), "invalidationBus", invalidationBus);
+
+        diaryEntryService = Stubs.inject(new DiaryEntryService(transactionManager, meterRegistry, dataSource),
+                "diaryEntryMapper", entryMapper);
+        Stubs.inject(diaryEntryService, "resourceVersions", resourceVersions);
+        Stubs.inject(diaryEntryService, "topicLeaderboard", topicLeaderboard);
+        communityService = Stubs.inject(new CommunityService(), "communityMapper", communityMapper);
+        Stubs.inject(communityService, "diaryEntryMapper", entryMapper);
+        mindMapService = Stubs.inject(new MindMapService(transactionManager, meterRegistry, dataSource),
+                "mindMapMapper", mindMapMapper);
+        Stubs.inject(mindMapService, "resourceVersions", resourceVersions);
+
+        story = new DiaryEntry();
+        story.setUserId(1L);
+        story.setTitle("今日话题");
+        story.setContent("...");
+        story.setDate(LocalDate.of(2024, 5, 1));
+        story.setIsStory(true);
+    }
+
+    @Benchmark
+    public List<DiaryEntry> getEntries() {
+        return diaryEntryService.getEntries(1L);
+    }
+
+    @Benchmark
+    public List<CommunityEntryDTO> getSharedEntries() {
+        return communityService.getSharedEntries(1L);
+    }
+
+    @Benchmark
+    public List<MindMap> getMindMaps() {
+        return mindMapService.getMindMaps(1L);
+    }
+
+    @Benchmark
+    public DiaryEntry createStory() {
+        story.setId(null);
+        diaryEntryService.createEntry(story);
+        return story;
+    }
+}
@@ -0,0 +1,104 @@
+package com.diary.backend.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the backend in its own JVM (same classpath as this tool) so load generation and the
+ * server don't share a heap or GC.
+ */
+class BackendProcess implements AutoCloseable {
+
+    private final Process process;
+    private final int port;
+
+    private BackendProcess(Process process, int port) {
+        this.process = process;
+        this.port = port;
+    }
+
+    static BackendProcess start(LoadTestConfig config, Database database) throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(config.get("backendJvmArgs").split("\\s+")));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("com.diary.backend.DiaryBackendApplication");
+        command.add("--server.port=" + port);
+        command.add("--spring.profiles.active=" + config.get("backendProfile"));
+        command.add("--spring.datasource.url=" + database.getJdbcUrl()
+                + (database.getJdbcUrl().contains("?") ? "&" : "?") + "prepareThreshold=3&reWriteBatchedInserts=true");
+        command.add("--spring.datasource.username=" + database.getUser());
+        command.add("--spring.datasource.password=" + database.getPassword());
+        String replica = config.get("replica");
+        if (!replica.equals("off")) {
+            command.add("--diary.datasource.replica.enabled=true");
+            command.add("--diary.datasource.replica.url=" + (replica.equals("same") ? database.getJdbcUrl() : replica));
+        }
+        if (Boolean.parseBoolean(config.get("partitioned"))) {
+            command.add("--diary.partitioning.enabled=true");
+        }
+        // No outbound calls from a load test: location/weather lookups answer locally
+        command.add("--diary.geo.provider=stub");
+
+        File log = new File("target/loadtest-backend.log");
+        log.getParentFile().mkdirs();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        BackendProcess backend = new BackendProcess(process, port);
+        backend.awaitHealthy(config.getInt("startupTimeoutSeconds"), log);
+        return backend;
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    private void awaitHealthy(int timeoutSeconds, File log) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl() + "/actuator/health")).build();
+        long deadline = System.nanoTime() + Duration.ofSeconds(timeoutSeconds).toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Backend exited with code " + process.exitValue() + ", see " + log);
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ignored) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        close();
+        throw new IllegalStateException("Backend did not become healthy within " + timeoutSeconds + "s, see " + log);
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.diary.backend.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The Postgres instance under test: an embedded server started from the zonky binaries, or an
+ * existing database when jdbcUrl is set. The backend's own schema.sql is applied to a fresh
+ * embedded instance.
+ */
+class Database implements AutoCloseable {
+
+    private final EmbeddedPostgres embedded;
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+
+    private Database(EmbeddedPostgres embedded, String jdbcUrl, String user, String password) {
+        this.embedded = embedded;
+        this.jdbcUrl = jdbcUrl;
+        this.user = user;
+        this.password = password;
+    }
+
+    static Database start(LoadTestConfig config) throws IOException, SQLException {
+        String url = config.get("jdbcUrl");
+        if (!url.isEmpty()) {
+            return new Database(null, url, config.get("jdbcUser"), config.get("jdbcPassword"));
+        }
+        EmbeddedPostgres pg = EmbeddedPostgres.builder()
+                .setServerConfig("max_connections", "200")
+                .setServerConfig("shared_buffers", "256MB")
+                .setServerConfig("fsync", "off")
+                .setServerConfig("synchronous_commit", "off")
+                .start();
+        Database database = new Database(pg, pg.getJdbcUrl("postgres", "postgres"), "postgres", "postgres");
+        database.applySchema();
+        return database;
+    }
+
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, user, password);
+    }
+
+    String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    String getUser() {
+        return user;
+    }
+
+    String getPassword() {
+        return password;
+    }
+
+    private void applySchema() throws IOException, SQLException {
+        applyScript("/schema.sql");
+    }
+
+    /**
+     * Runs one of the backend's SQL scripts, e.g. partitioning.sql after seeding.
+     */
+    void applyScript(String resource) throws IOException, SQLException {
+        String script;
+        try (InputStream in = Database.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException(resource + " not found on the classpath (is the backend jar installed?)");
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute(script);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+}
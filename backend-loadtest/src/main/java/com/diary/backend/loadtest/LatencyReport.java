@@ -0,0 +1,98 @@
+package com.diary.backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms and error counts, the printed summary, the JSON report and
+ * the threshold check.
+ */
+class LatencyReport {
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private double measuredSeconds = 1;
+
+    void record(String endpoint, long nanos, boolean ok) {
+        histograms.computeIfAbsent(endpoint, e -> new ConcurrentHistogram(3_600_000_000_000L, 3))
+                .recordValue(Math.max(1, nanos / 1_000));
+        if (!ok) {
+            errors.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+        }
+    }
+
+    void setMeasuredSeconds(double measuredSeconds) {
+        this.measuredSeconds = measuredSeconds;
+    }
+
+    Map<String, Map<String, Object>> summary() {
+        Map<String, Map<String, Object>> summary = new LinkedHashMap<>();
+        for (String endpoint : TrafficDriver.endpoints()) {
+            Histogram h = histograms.get(endpoint);
+            if (h == null) {
+                continue;
+            }
+            long errorCount = errors.containsKey(endpoint) ? errors.get(endpoint).sum() : 0;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("count", h.getTotalCount());
+            row.put("rps", h.getTotalCount() / measuredSeconds);
+            row.put("p50Ms", h.getValueAtPercentile(50) / 1000.0);
+            row.put("p90Ms", h.getValueAtPercentile(90) / 1000.0);
+            row.put("p99Ms", h.getValueAtPercentile(99) / 1000.0);
+            row.put("maxMs", h.getMaxValue() / 1000.0);
+            row.put("errors", errorCount);
+            row.put("errorRate", h.getTotalCount() == 0 ? 0.0 : (double) errorCount / h.getTotalCount());
+            summary.put(endpoint, row);
+        }
+        return summary;
+    }
+
+    void print(Map<String, Map<String, Object>> summary) {
+        System.out.printf("%n%-10s %9s %9s %9s %9s %9s %9s %8s%n",
+                "endpoint", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors");
+        summary.forEach((endpoint, row) -> System.out.printf("%-10s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %8d%n",
+                endpoint, row.get("count"), row.get("rps"), row.get("p50Ms"), row.get("p90Ms"),
+                row.get("p99Ms"), row.get("maxMs"), row.get("errors")));
+    }
+
+    void write(Map<String, Map<String, Object>> summary, File file) throws IOException {
+        file.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, summary);
+    }
+
+    /**
+     * Returns one message per violated threshold; empty when the run passes.
+     */
+    List<String> check(Map<String, Map<String, Object>> summary, Properties thresholds) {
+        List<String> failures = new ArrayList<>();
+        double maxErrorRate = Double.parseDouble(thresholds.getProperty("maxErrorRate", "1"));
+        summary.forEach((endpoint, row) -> {
+            if ((double) row.get("errorRate") > maxErrorRate) {
+                failures.add(endpoint + ": error rate " + row.get("errorRate") + " > " + maxErrorRate);
+            }
+            for (String metric : List.of("p50Ms", "p99Ms")) {
+                String limit = thresholds.getProperty(endpoint + "." + metric);
+                if (limit != null && (double) row.get(metric) > Double.parseDouble(limit)) {
+                    failures.add(endpoint + ": " + metric + " " + row.get(metric) + " > " + limit);
+                }
+            }
+            String minRps = thresholds.getProperty(endpoint + ".minRps");
+            if (minRps != null && (double) row.get("rps") < Double.parseDouble(minRps)) {
+                failures.add(endpoint + ": throughput " + row.get("rps") + " req/s < " + minRps);
+            }
+        });
+        return failures;
+    }
+}
@@ -0,0 +1,64 @@
+package com.diary.backend.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Settings from loadtest.properties, overridden by key=value program arguments.
+ */
+class LoadTestConfig {
+
+    private final Properties properties = new Properties();
+
+    LoadTestConfig(String[] args) throws IOException {
+        try (InputStream in = LoadTestConfig.class.getResourceAsStream("/loadtest.properties")) {
+            properties.load(new java.io.InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        for (String arg : args) {
+            for (String pair : arg.trim().split("\\s+")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    properties.setProperty(pair.substring(0, eq), pair.substring(eq + 1));
+                } else if (!pair.isEmpty()) {
+                    throw new IllegalArgumentException("Expected key=value but got: " + pair);
+                }
+            }
+        }
+    }
+
+    String get(String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing setting: " + key);
+        }
+        return value.trim();
+    }
+
+    int getInt(String key) {
+        return Integer.parseInt(get(key));
+    }
+
+    double getDouble(String key) {
+        return Double.parseDouble(get(key));
+    }
+
+    Properties thresholds() throws IOException {
+        Properties thresholds = new Properties();
+        String file = get("thresholdsFile");
+        if (file.isEmpty()) {
+            try (InputStream in = LoadTestConfig.class.getResourceAsStream("/thresholds.properties")) {
+                thresholds.load(in);
+            }
+        } else {
+            try (Reader reader = Files.newBufferedReader(Path.of(file))) {
+                thresholds.load(reader);
+            }
+        }
+        return thresholds;
+    }
+}
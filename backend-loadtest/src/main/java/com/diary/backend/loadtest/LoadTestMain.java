@@ -0,0 +1,54 @@
+package com.diary.backend.loadtest;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts Postgres, seeds it, starts the backend against it, drives mixed traffic and exits
+ * non-zero when a threshold regresses.
+ */
+public final class LoadTestMain {
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig(args);
+        try (Database database = Database.start(config)) {
+            System.out.println("Seeding " + config.get("users") + " users...");
+            long seedStart = System.nanoTime();
+            Seeder.SeedData data;
+            try (Connection connection = database.connect()) {
+                data = new Seeder(config).seed(connection);
+            }
+            System.out.printf("Seeded in %.1fs%n", (System.nanoTime() - seedStart) / 1e9);
+            if (Boolean.parseBoolean(config.get("partitioned"))) {
+                long migrateStart = System.nanoTime();
+                database.applyScript("/partitioning.sql");
+                System.out.printf("Partitioned in %.1fs%n", (System.nanoTime() - migrateStart) / 1e9);
+            }
+
+            LatencyReport report = new LatencyReport();
+            try (BackendProcess backend = BackendProcess.start(config, database)) {
+                System.out.println("Backend up at " + backend.baseUrl() + ", driving traffic with "
+                        + config.get("concurrency") + " workers for " + config.get("warmupSeconds") + "s warmup + "
+                        + config.get("durationSeconds") + "s");
+                new TrafficDriver(config, data, backend.baseUrl(), report).run();
+            }
+
+            Map<String, Map<String, Object>> summary = report.summary();
+            report.print(summary);
+            report.write(summary, new File(config.get("reportFile")));
+
+            List<String> failures = report.check(summary, config.thresholds());
+            if (!failures.isEmpty()) {
+                System.out.println("\nThreshold regressions:");
+                failures.forEach(f -> System.out.println("  " + f));
+                System.exit(1);
+            }
+            System.out.println("\nAll thresholds met.");
+        }
+    }
+}
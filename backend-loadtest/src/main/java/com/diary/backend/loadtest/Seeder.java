@@ -0,0 +1,258 @@
+package com.diary.backend.loadtest;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Fills the database with a reproducible data set (fixed random seed) through JDBC batches.
+ */
+class Seeder {
+
+    private static final int BATCH = 1000;
+    private static final String[] TAGS = {"生活", "work", "旅行", "reading", "心情", "family", "学习", "health"};
+    private static final String[] MOODS = {"happy", "calm", "sad", "excited", "tired"};
+    private static final String PARAGRAPH =
+            "今天天气很好，早上去公园散步，看到很多人在晨练。 Spent the afternoon reading and writing notes. ";
+
+    static class SeedData {
+        final List<Long> userIds = new ArrayList<>();
+        final List<String> todayStoryIds = new ArrayList<>();
+        final List<String> bookIds = new ArrayList<>();
+        final List<String> mindMapIds = new ArrayList<>();
+        final List<Long> mindMapOwners = new ArrayList<>();
+        String mindMapContent;
+    }
+
+    private final LoadTestConfig config;
+    private final Random random;
+
+    Seeder(LoadTestConfig config) {
+        this.config = config;
+        this.random = new Random(config.getInt("seed"));
+    }
+
+    SeedData seed(Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        SeedData data = new SeedData();
+        seedUsers(connection, data);
+        List<String> sharedEntries = new ArrayList<>();
+        seedEntries(connection, data, sharedEntries);
+        seedReactions(connection, data, sharedEntries);
+        seedBooks(connection, data);
+        seedMindMaps(connection, data);
+        connection.commit();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT setval('users_id_seq', (SELECT MAX(id) FROM users))");
+            statement.execute("SELECT setval('comments_id_seq', GREATEST((SELECT MAX(id) FROM comments), 1))");
+            statement.execute("ANALYZE");
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        return data;
+    }
+
+    private void seedUsers(Connection connection, SeedData data) throws SQLException {
+        int users = config.getInt("users");
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO users(id, email, password, name, created_at) VALUES(?, ?, ?, ?, NOW())")) {
+            for (long id = 1; id <= users; id++) {
+                ps.setLong(1, id);
+                ps.setString(2, "user" + id + "@loadtest.local");
+                ps.setString(3, "password");
+                ps.setString(4, "用户" + id);
+                ps.addBatch();
+                data.userIds.add(id);
+                flushIfFull(ps, (int) id);
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void seedEntries(Connection connection, SeedData data, List<String> sharedEntries) throws SQLException {
+        int perUser = config.getInt("entriesPerUser");
+        double sharedRatio = config.getDouble("sharedRatio");
+        int storyDays = config.getInt("storyDays");
+        LocalDate today = LocalDate.now();
+        int n = 0;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO diary_entries(id, user_id, title, content, date, tags, mood, privacy, is_story, deleted, created_at, updated_at) "
+                        + "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, false, NOW(), NOW())")) {
+            for (long userId : data.userIds) {
+                for (int i = 0; i < perUser; i++) {
+                    boolean shared = random.nextDouble() < sharedRatio;
+                    String id = addEntry(connection, ps, userId, today.minusDays(random.nextInt(365)), shared, false);
+                    if (shared) {
+                        sharedEntries.add(id);
+                    }
+                    flushIfFull(ps, ++n);
+                }
+                // Roughly a third of users submit a topic story on each recent day
+                for (int day = 0; day < storyDays; day++) {
+                    if (random.nextInt(3) == 0) {
+                        String id = addEntry(connection, ps, userId, today.minusDays(day), true, true);
+                        if (day == 0) {
+                            data.todayStoryIds.add(id);
+                        }
+                        flushIfFull(ps, ++n);
+                    }
+                }
+            }
+            ps.executeBatch();
+        }
+        if (data.todayStoryIds.isEmpty()) {
+            throw new IllegalStateException("Seed produced no stories for today; increase users or storyDays");
+        }
+    }
+
+    private String addEntry(Connection connection, PreparedStatement ps, long userId, LocalDate date,
+                            boolean shared, boolean story) throws SQLException {
+        String id = UUID.randomUUID().toString();
+        String[] tags = new String[1 + random.nextInt(3)];
+        for (int t = 0; t < tags.length; t++) {
+            tags[t] = TAGS[random.nextInt(TAGS.length)];
+        }
+        ps.setString(1, id);
+        ps.setLong(2, userId);
+        ps.setString(3, (story ? "今日话题 " : "日记 ") + date);
+        ps.setString(4, PARAGRAPH.repeat(2 + random.nextInt(12)));
+        ps.setDate(5, Date.valueOf(date));
+        ps.setArray(6, connection.createArrayOf("text", tags));
+        ps.setString(7, MOODS[random.nextInt(MOODS.length)]);
+        ps.setString(8, shared ? "shared" : "private");
+        ps.setBoolean(9, story);
+        ps.addBatch();
+        return id;
+    }
+
+    private void seedReactions(Connection connection, SeedData data, List<String> sharedEntries) throws SQLException {
+        int likes = config.getInt("likesPerSharedEntry");
+        int comments = config.getInt("commentsPerSharedEntry");
+        int votes = config.getInt("votesPerStory");
+        int n = 0;
+        try (PreparedStatement likePs = connection.prepareStatement(
+                "INSERT INTO likes(user_id, entry_id, entry_created_at, created_at) SELECT ?, id, created_at, NOW() FROM diary_entries WHERE id = ?");
+             PreparedStatement commentPs = connection.prepareStatement(
+                     "INSERT INTO comments(id, user_id, entry_id, entry_created_at, content, created_at) "
+                             + "SELECT ?, ?, id, created_at, ?, NOW() FROM diary_entries WHERE id = ?")) {
+            long commentId = 1;
+            for (String entryId : sharedEntries) {
+                for (long userId : distinctUsers(data, likes)) {
+                    likePs.setLong(1, userId);
+                    likePs.setString(2, entryId);
+                    likePs.addBatch();
+                }
+                for (int c = 0; c < comments; c++) {
+                    commentPs.setLong(1, commentId++);
+                    commentPs.setLong(2, data.userIds.get(random.nextInt(data.userIds.size())));
+                    commentPs.setString(3, "写得真好！Nice entry #" + c);
+                    commentPs.setString(4, entryId);
+                    commentPs.addBatch();
+                }
+                if (++n % BATCH == 0) {
+                    likePs.executeBatch();
+                    commentPs.executeBatch();
+                }
+            }
+            likePs.executeBatch();
+            commentPs.executeBatch();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO votes(user_id, entry_id, entry_created_at, created_at) SELECT ?, id, created_at, NOW() FROM diary_entries WHERE id = ?")) {
+            for (String storyId : data.todayStoryIds) {
+                for (long userId : distinctUsers(data, votes)) {
+                    ps.setLong(1, userId);
+                    ps.setString(2, storyId);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void seedBooks(Connection connection, SeedData data) throws SQLException {
+        int books = config.getInt("books");
+        byte[] file = new byte[config.getInt("bookSizeKb") * 1024];
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO books(id, user_id, title, author, file_data, created_at) VALUES(?, ?, ?, ?, ?, NOW())")) {
+            for (int i = 0; i < books; i++) {
+                random.nextBytes(file);
+                String id = UUID.randomUUID().toString();
+                ps.setString(1, id);
+                ps.setLong(2, data.userIds.get(i % data.userIds.size()));
+                ps.setString(3, "Book " + i);
+                ps.setString(4, "Author " + i);
+                ps.setBytes(5, file);
+                ps.executeUpdate();
+                data.bookIds.add(id);
+            }
+        }
+    }
+
+    private void seedMindMaps(Connection connection, SeedData data) throws SQLException {
+        int perUser = config.getInt("mindMapsPerUser");
+        data.mindMapContent = mindMapContent(config.getInt("mindMapNodes"));
+        int n = 0;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO mindmaps(id, user_id, title, content, created_at, updated_at) VALUES(?, ?, ?, ?, NOW(), NOW())")) {
+            for (long userId : data.userIds) {
+                for (int i = 0; i < perUser; i++) {
+                    String id = UUID.randomUUID().toString();
+                    ps.setString(1, id);
+                    ps.setLong(2, userId);
+                    ps.setString(3, "Map " + i);
+                    ps.setString(4, data.mindMapContent);
+                    ps.addBatch();
+                    data.mindMapIds.add(id);
+                    data.mindMapOwners.add(userId);
+                    flushIfFull(ps, ++n);
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private Set<Long> distinctUsers(SeedData data, int count) {
+        Set<Long> users = new HashSet<>();
+        int target = Math.min(count, data.userIds.size());
+        while (users.size() < target) {
+            users.add(data.userIds.get(random.nextInt(data.userIds.size())));
+        }
+        return users;
+    }
+
+    private static void flushIfFull(PreparedStatement ps, int n) throws SQLException {
+        if (n % BATCH == 0) {
+            ps.executeBatch();
+        }
+    }
+
+    static String mindMapContent(int nodes) {
+        StringBuilder sb = new StringBuilder("{\"nodes\":[");
+        for (int i = 0; i < nodes; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"node-").append(i).append("\",\"position\":{\"x\":").append(i % 20 * 180)
+                    .append(",\"y\":").append(i / 20 * 96).append("},\"data\":{\"label\":\"节点 ").append(i).append("\"}}");
+        }
+        sb.append("],\"edges\":[");
+        for (int i = 1; i < nodes; i++) {
+            if (i > 1) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"e").append(i).append("\",\"source\":\"node-").append((i - 1) / 3)
+                    .append("\",\"target\":\"node-").append(i).append("\"}");
+        }
+        return sb.append("]}").toString();
+    }
+}
@@ -0,0 +1,205 @@
+package com.diary.backend.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop workers issuing a weighted mix of realistic requests. Latencies recorded during
+ * the warmup period are discarded.
+ */
+class TrafficDriver {
+
+    private static final String[] SCENARIOS = {"timeline", "feed", "topic", "vote", "download", "autosave"};
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    private final LoadTestConfig config;
+    private final Seeder.SeedData data;
+    private final String baseUrl;
+    private final LatencyReport report;
+    private final HttpClient client;
+    private final int[] cumulativeWeights = new int[SCENARIOS.length];
+    private final Map<Long, String> tokens = new ConcurrentHashMap<>();
+
+    TrafficDriver(LoadTestConfig config, Seeder.SeedData data, String baseUrl, LatencyReport report) {
+        this.config = config;
+        this.data = data;
+        this.baseUrl = baseUrl;
+        this.report = report;
+        int concurrency = config.getInt("concurrency");
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                // Daemon threads: the client is never closed and must not keep the JVM alive after the run
+                .executor(Executors.newFixedThreadPool(Math.max(4, concurrency / 4), runnable -> {
+                    Thread thread = new Thread(runnable, "loadtest-http");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+        int sum = 0;
+        for (int i = 0; i < SCENARIOS.length; i++) {
+            sum += config.getInt("weight." + SCENARIOS[i]);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    void run() throws InterruptedException {
+        int concurrency = config.getInt("concurrency");
+        login(concurrency);
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getInt("warmupSeconds"));
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(config.getInt("durationSeconds"));
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.submit(() -> {
+                while (System.nanoTime() < end) {
+                    runScenario(pickScenario(), System.nanoTime() >= warmupEnd);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(config.getInt("warmupSeconds") + config.getInt("durationSeconds") + 120L, TimeUnit.SECONDS);
+        report.setMeasuredSeconds(config.getInt("durationSeconds"));
+    }
+
+    /**
+     * Every seeded user logs in once before the clock starts; the first login also upgrades the
+     * seeded plaintext password to a hash, so this is kept out of the measured window.
+     */
+    private void login(int concurrency) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        for (long userId : data.userIds) {
+            pool.submit(() -> {
+                String body = "{\"email\":\"user" + userId + "@loadtest.local\",\"password\":\"password\"}";
+                for (int attempt = 0; attempt < 20 && !tokens.containsKey(userId); attempt++) {
+                    try {
+                        HttpResponse<String> response = client.send(post("/api/auth/login", body, null),
+                                HttpResponse.BodyHandlers.ofString());
+                        Matcher matcher = TOKEN.matcher(response.body());
+                        if (matcher.find()) {
+                            tokens.put(userId, matcher.group(1));
+                        } else {
+                            // 503 while the hashing queue is full
+                            Thread.sleep(100L * (attempt + 1));
+                        }
+                    } catch (Exception e) {
+                        Thread.sleep(100L * (attempt + 1));
+                    }
+                }
+                return null;
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        if (tokens.size() < data.userIds.size()) {
+            throw new IllegalStateException("Only " + tokens.size() + " of " + data.userIds.size() + " users could log in");
+        }
+    }
+
+    private String pickScenario() {
+        int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return SCENARIOS[i];
+            }
+        }
+        return SCENARIOS[0];
+    }
+
+    private void runScenario(String scenario, boolean measured) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = data.userIds.get(random.nextInt(data.userIds.size()));
+        switch (scenario) {
+            case "timeline" -> send("timeline", get("/api/entries", userId), true, measured);
+            case "feed" -> send("feed", get("/api/community/entries", userId), true, measured);
+            case "topic" -> send("topic", get("/api/community/topics/" + LocalDate.now(), userId), true, measured);
+            case "vote" -> {
+                // A burst of different users voting for (and retracting) today's stories
+                for (int i = 0; i < config.getInt("voteBurstSize"); i++) {
+                    long voter = data.userIds.get(random.nextInt(data.userIds.size()));
+                    String storyId = data.todayStoryIds.get(random.nextInt(data.todayStoryIds.size()));
+                    send("vote", post("/api/community/entries/" + storyId + "/vote", "{}", voter), true, measured);
+                    send("unvote", delete("/api/community/entries/" + storyId + "/vote", voter), true, measured);
+                }
+            }
+            case "download" -> {
+                if (!data.bookIds.isEmpty()) {
+                    String bookId = data.bookIds.get(random.nextInt(data.bookIds.size()));
+                    send("download", get("/api/books/" + bookId + "/download", userId), false, measured);
+                }
+            }
+            case "autosave" -> {
+                int i = random.nextInt(data.mindMapIds.size());
+                String body = "{\"title\":\"Map autosave\",\"content\":" + quote(data.mindMapContent) + "}";
+                send("autosave", put("/api/mindmaps/" + data.mindMapIds.get(i), body, data.mindMapOwners.get(i)), true, measured);
+            }
+            default -> throw new IllegalArgumentException(scenario);
+        }
+    }
+
+    private void send(String endpoint, HttpRequest request, boolean json, boolean measured) {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            if (json) {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                ok = response.statusCode() == 200 && response.body().contains("\"code\":200");
+            } else {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                ok = response.statusCode() == 200;
+            }
+        } catch (Exception e) {
+            ok = false;
+        }
+        if (measured) {
+            report.record(endpoint, System.nanoTime() - start, ok);
+        }
+    }
+
+    private HttpRequest get(String path, Long userId) {
+        return builder(path, userId).GET().build();
+    }
+
+    private HttpRequest delete(String path, Long userId) {
+        return builder(path, userId).DELETE().build();
+    }
+
+    private HttpRequest post(String path, String body, Long userId) {
+        return builder(path, userId).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private HttpRequest put(String path, String body, Long userId) {
+        return builder(path, userId).header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private HttpRequest.Builder builder(String path, Long userId) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+        return userId == null ? builder : builder.header("Authorization", "Bearer " + tokens.get(userId));
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    static List<String> endpoints() {
+        List<String> endpoints = new ArrayList<>(List.of(SCENARIOS));
+        endpoints.add(endpoints.indexOf("vote") + 1, "unvote");
+        return endpoints;
+    }
+}
@@ -0,0 +1,71 @@
+#!/usr/bin/env bash
+# Compares cold-start time of the regular exec jar with the fast-startup profile
+# (Spring AOT, and Spring AOT plus the AppCDS archive from its training run).
+#
+# Requires a running Postgres the backend can reach with its usual settings
+# (application.properties, or SPRING_DATASOURCE_* in the environment).
+#
+#   RUNS=5 ./scripts/bench-startup.sh
+#
+# Each start is timed from launching the JVM to the first HTTP response from
+# /actuator/health; the "Started ... in" line Spring logs is reported next to it.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+PORT=${PORT:-8080}
+RUNS=${RUNS:-5}
+JAVA_OPTS=${JAVA_OPTS:-}
+OUT_DIR=${OUT_DIR:-target/bench-startup}
+
+mvn -B -q -DskipTests package
+EXEC_JAR=$(ls target/backend-*-exec.jar | head -n 1)
+mvn -B -q -Pfast-startup -DskipTests package
+AOT_JAR=$(ls target/fast-startup/backend-*.jar | grep -v -- -exec.jar | head -n 1)
+mkdir -p "$OUT_DIR"
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+start_once() {
+  local mode=$1 run=$2
+  shift 2
+  local log="$OUT_DIR/$mode-$run.log"
+  local began
+  began=$(now_ms)
+  # shellcheck disable=SC2086
+  java $JAVA_OPTS "$@" --server.port="$PORT" > "$log" 2>&1 &
+  local pid=$!
+  until curl -s -o /dev/null "http://localhost:$PORT/actuator/health"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "backend exited during startup, see $log" >&2
+      return 1
+    fi
+    sleep 0.02
+  done
+  local elapsed=$(( $(now_ms) - began ))
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  local reported
+  reported=$(grep -o "Started DiaryBackendApplication in [0-9.]* seconds" "$log" | grep -o "[0-9.]* seconds" || echo "?")
+  echo "$mode run $run: first response after ${elapsed} ms (Spring: $reported)"
+  echo "$elapsed" >> "$OUT_DIR/$mode.ms"
+}
+
+run_mode() {
+  local mode=$1
+  shift
+  echo "== $mode"
+  rm -f "$OUT_DIR/$mode.ms"
+  for run in $(seq 1 "$RUNS"); do
+    start_once "$mode" "$run" "$@"
+  done
+  sort -n "$OUT_DIR/$mode.ms" | awk -v mode="$mode" '{ v[NR] = $1 } END { printf "%s median: %d ms\n", mode, v[int((NR + 1) / 2)] }'
+}
+
+run_mode jar -jar "$EXEC_JAR"
+run_mode aot -Dspring.aot.enabled=true -jar "$AOT_JAR"
+run_mode aot-cds -XX:SharedArchiveFile=target/fast-startup/backend.jsa -Dspring.aot.enabled=true -jar "$AOT_JAR"
+
+echo "Logs written to $OUT_DIR"
@@ -0,0 +1,90 @@
+#!/usr/bin/env bash
+# Compares the default platform-thread mode against the virtual-thread profile.
+#
+# Requires Java 21, a running Postgres seeded with at least one user, and `hey`
+# (https://github.com/rakyll/hey) on the PATH. Requests are sent as that user,
+# with the bearer token from logging in; BOOK_ID must be one of their books.
+#
+#   EMAIL=me@example.com PASSWORD=secret BOOK_ID=<uuid> ./scripts/bench-virtual-threads.sh
+#
+# Each mode is built/started in turn, warmed up, then hit with the same mix of
+# slow reads (community feed, timeline, book download) at increasing concurrency.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+EMAIL=${EMAIL:?EMAIL of the user to benchmark as is required}
+PASSWORD=${PASSWORD:?PASSWORD is required}
+BOOK_ID=${BOOK_ID:-}
+PORT=${PORT:-8080}
+DURATION=${DURATION:-30s}
+CONCURRENCY_LEVELS=${CONCURRENCY_LEVELS:-"50 200 800"}
+OUT_DIR=${OUT_DIR:-target/bench-virtual-threads}
+
+mvn -B -q -Pvirtual-threads -DskipTests package
+JAR=$(ls target/backend-*-exec.jar | head -n 1)
+mkdir -p "$OUT_DIR"
+
+urls=(
+  "http://localhost:$PORT/api/community/entries"
+  "http://localhost:$PORT/api/entries"
+)
+if [[ -n "$BOOK_ID" ]]; then
+  urls+=("http://localhost:$PORT/api/books/$BOOK_ID/download")
+fi
+
+wait_for_start() {
+  for _ in $(seq 1 60); do
+    if curl -sf -o /dev/null "http://localhost:$PORT/actuator/health"; then
+      return 0
+    fi
+    sleep 1
+  done
+  echo "backend did not start" >&2
+  return 1
+}
+
+# Tokens are signed per run unless diary.auth.token-secret is set, so log in after every start
+login() {
+  local token
+  token=$(curl -sf -H 'Content-Type: application/json' \
+    -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" \
+    "http://localhost:$PORT/api/auth/login" | sed -n 's/.*"token":"\([^"]*\)".*/\1/p')
+  if [[ -z "$token" ]]; then
+    echo "login as $EMAIL failed" >&2
+    return 1
+  fi
+  echo "$token"
+}
+
+run_mode() {
+  local mode=$1 profile=$2
+  echo "== $mode"
+  # One user drives all the traffic, so the per-user rate limits would turn most of it into 429s
+  java -jar "$JAR" --server.port="$PORT" --diary.ratelimit.enabled=false ${profile:+--spring.profiles.active=$profile} \
+    > "$OUT_DIR/$mode-server.log" 2>&1 &
+  local pid=$!
+  trap "kill $pid 2>/dev/null || true" RETURN
+  wait_for_start
+  local auth
+  auth="Authorization: Bearer $(login)"
+
+  for url in "${urls[@]}"; do
+    hey -z 10s -c 20 -H "$auth" "$url" > /dev/null
+  done
+
+  for c in $CONCURRENCY_LEVELS; do
+    for url in "${urls[@]}"; do
+      local name
+      name=$(echo "$url" | sed -E 's#https?://[^/]+/api/##; s#\?.*##; s#[/]#_#g')
+      echo "-- $mode c=$c $name"
+      hey -z "$DURATION" -c "$c" -H "$auth" "$url" | tee "$OUT_DIR/$mode-c$c-$name.txt" \
+        | grep -E "Requests/sec|99% in|50% in|\[5[0-9][0-9]\]" || true
+    done
+  done
+}
+
+run_mode platform ""
+run_mode virtual virtual
+
+echo "Reports written to $OUT_DIR"
@@ -0,0 +1,58 @@
+package com.diary.backend.auth;
+
+import com.diary.backend.common.Result;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+/**
+ * Requires a valid "Authorization: Bearer <token>" on API calls and records whose session it is
+ * for {@link CurrentUser} parameters. Runs after Spring's CORS handling, so browsers can read the
+ * 401 and preflight requests pass through untouched.
+ */
+@Component
+public class AuthInterceptor implements HandlerInterceptor {
+
+    public static final String USER_ID_ATTRIBUTE = AuthInterceptor.class.getName() + ".userId";
+    private static final String BEARER = "Bearer ";
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+        String token = bearerToken(request);
+        TokenService.Session session = token == null ? null : tokenService.authenticate(token);
+        if (session == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), Result.error(401, "Not logged in or session expired"));
+            return false;
+        }
+        request.setAttribute(USER_ID_ATTRIBUTE, session.userId());
+        return true;
+    }
+
+    public static String bearerToken(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return null;
+        }
+        String token = header.substring(BEARER.length()).trim();
+        return token.isEmpty() ? null : token;
+    }
+}
@@ -0,0 +1,107 @@
+package com.diary.backend.auth;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt on its own small, bounded pool. A hash deliberately burns tens of milliseconds of CPU, so
+ * a burst of logins queues here (and is turned away with {@link java.util.concurrent.RejectedExecutionException}
+ * once the queue is full) instead of occupying request threads that ordinary API calls need.
+ */
+@Component
+public class PasswordHasher {
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    // Compared against when the email is unknown, so a miss takes as long as a wrong password
+    private final String dummyHash;
+
+    public PasswordHasher(MeterRegistry meterRegistry,
+                          @Value("${diary.auth.bcrypt-strength:10}") int strength,
+                          @Value("${diary.auth.hash-threads:0}") int threads,
+                          @Value("${diary.auth.hash-queue:64}") int queueSize) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger count = new AtomicInteger();
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.dummyHash = encoder.encode("dummy-password");
+        Gauge.builder("diary.auth.hash.queue", executor, e -> e.getQueue().size())
+                .description("Password hashes waiting for the hashing pool")
+                .register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    public String encode(String rawPassword) {
+        return encoder.encode(rawPassword);
+    }
+
+    /**
+     * Accepts BCrypt hashes and, for accounts created before passwords were hashed, plaintext.
+     * A null stored password still costs one hash comparison.
+     */
+    public boolean matches(String rawPassword, String storedPassword) {
+        if (rawPassword == null) {
+            return false;
+        }
+        if (storedPassword == null) {
+            encoder.matches(rawPassword, dummyHash);
+            return false;
+        }
+        if (!isHashed(storedPassword)) {
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+        return encoder.matches(rawPassword, storedPassword);
+    }
+
+    /**
+     * True for plaintext passwords and for hashes made with a lower strength than configured.
+     */
+    public boolean needsUpgrade(String storedPassword) {
+        return !isHashed(storedPassword) || encoder.upgradeEncoding(storedPassword);
+    }
+
+    private boolean isHashed(String storedPassword) {
+        try {
+            encoder.upgradeEncoding(storedPassword);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // Not in BCrypt format
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
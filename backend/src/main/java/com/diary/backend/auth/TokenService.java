@@ -0,0 +1,151 @@
+package com.diary.backend.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session tokens are "payload.signature", where the payload carries the user id, a random session
+ * id and the expiry, and the signature is an HMAC-SHA256 over it. Checking one needs no database:
+ * verified tokens are kept in a bounded in-memory cache so a request usually costs one map lookup,
+ * and a cache miss (eviction, another instance, a restart with the same secret) just re-verifies
+ * the signature. Logging out revokes the session id on this instance until the token would have
+ * expired anyway.
+ */
+@Component
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public record Session(long userId, String sessionId, long expiresAt) {
+    }
+
+    public record IssuedToken(String token, long expiresAt) {
+    }
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final Duration ttl;
+    private final int maxSessions;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>(); // session id -> token expiry
+
+    public TokenService(@Value("${diary.auth.token-secret:}") String secret,
+                        @Value("${diary.auth.token-ttl-hours:168}") long ttlHours,
+                        @Value("${diary.auth.session-cache-size:10000}") int maxSessions) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < 32) {
+            // Fine for a single instance; tokens stop working when it restarts
+            log.warn("diary.auth.token-secret is unset or shorter than 32 bytes, using a random per-process key");
+            secretBytes = new byte[32];
+            random.nextBytes(secretBytes);
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.maxSessions = maxSessions;
+    }
+
+    public IssuedToken issue(long userId) {
+        byte[] sessionId = new byte[12];
+        random.nextBytes(sessionId);
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        String payload = ENCODER.encodeToString((userId + ":" + ENCODER.encodeToString(sessionId) + ":" + expiresAt)
+                .getBytes(StandardCharsets.UTF_8));
+        return new IssuedToken(payload + "." + ENCODER.encodeToString(sign(payload)), expiresAt);
+    }
+
+    /**
+     * Returns null when the token is malformed, forged, expired or logged out.
+     */
+    public Session authenticate(String token) {
+        Session session = sessions.get(token);
+        if (session == null) {
+            session = verify(token);
+            if (session == null) {
+                return null;
+            }
+            if (sessions.size() >= maxSessions) {
+                evictOne();
+            }
+            sessions.put(token, session);
+        }
+        if (session.expiresAt() <= System.currentTimeMillis()) {
+            sessions.remove(token);
+            return null;
+        }
+        return revoked.containsKey(session.sessionId()) ? null : session;
+    }
+
+    public void revoke(String token) {
+        Session session = verify(token);
+        sessions.remove(token);
+        if (session != null) {
+            long now = System.currentTimeMillis();
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            revoked.put(session.sessionId(), session.expiresAt());
+        }
+    }
+
+    private Session verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+        try {
+            if (!MessageDigest.isEqual(sign(payload), DECODER.decode(token.substring(dot + 1)))) {
+                return null;
+            }
+            String[] fields = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split(":");
+            if (fields.length != 3) {
+                return null;
+            }
+            return new Session(Long.parseLong(fields[0]), fields[1], Long.parseLong(fields[2]));
+        } catch (IllegalArgumentException e) {
+            // Bad base64 or number
+            return null;
+        }
+    }
+
+    // Arbitrary victim: the cache only saves an HMAC, so an evicted session just gets verified again
+    private void evictOne() {
+        Iterator<String> tokens = sessions.keySet().iterator();
+        if (tokens.hasNext()) {
+            tokens.next();
+            tokens.remove();
+        }
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
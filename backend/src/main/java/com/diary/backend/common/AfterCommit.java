@@ -0,0 +1,36 @@
+package com.diary.backend.common;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers in-memory side effects until the surrounding transaction commits, so a rollback
+ * can't leave caches ahead of the database. Runs immediately when there is no transaction, or
+ * when called from an action that is itself running after commit (synchronizations registered
+ * at that point would never fire).
+ */
+public final class AfterCommit {
+
+    private static final ThreadLocal<Boolean> COMMITTED = new ThreadLocal<>();
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() && COMMITTED.get() == null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    COMMITTED.set(Boolean.TRUE);
+                    try {
+                        action.run();
+                    } finally {
+                        COMMITTED.remove();
+                    }
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
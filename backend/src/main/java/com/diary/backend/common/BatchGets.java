@@ -0,0 +1,64 @@
+package com.diary.backend.common;
+
+import com.diary.backend.dto.BatchGetResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Helpers for the fetch-by-ids endpoints: the ids are de-duplicated and capped before the single
+ * id = ANY(?) query, and its rows (which come back in any order) are put back in request order.
+ */
+public final class BatchGets {
+
+    public static final int MAX_IDS = 100;
+
+    private BatchGets() {
+    }
+
+    public static String[] ids(List<String> ids) {
+        LinkedHashSet<String> unique = new LinkedHashSet<>();
+        if (ids != null) {
+            // Spring only splits a single ids=a,b,c parameter, not repeated ones
+            for (String value : ids) {
+                for (String id : value == null ? new String[0] : value.split(",")) {
+                    if (!id.isBlank()) {
+                        unique.add(id.trim());
+                    }
+                }
+            }
+        }
+        if (unique.isEmpty()) {
+            throw new IllegalArgumentException("At least one id is required");
+        }
+        if (unique.size() > MAX_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_IDS + " ids per request");
+        }
+        return unique.toArray(String[]::new);
+    }
+
+    public static <T> BatchGetResult<T> inRequestOrder(String[] ids, List<T> rows, Function<T, String> idOf) {
+        Map<String, T> byId = new HashMap<>();
+        for (T row : rows) {
+            byId.put(idOf.apply(row), row);
+        }
+        List<T> items = new ArrayList<>(ids.length);
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            T row = byId.get(id);
+            if (row != null) {
+                items.add(row);
+            } else {
+                missing.add(id);
+            }
+        }
+        BatchGetResult<T> result = new BatchGetResult<>();
+        result.setItems(items);
+        result.setMissing(missing);
+        return result;
+    }
+}
@@ -0,0 +1,28 @@
+package com.diary.backend.common;
+
+import org.apache.ibatis.cursor.Cursor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Hands every row of a MyBatis cursor to a consumer and closes it. The caller must hold a
+ * transaction: outside one the SqlSession, and with it the cursor, is closed as soon as the
+ * mapper method returns.
+ */
+public final class Cursors {
+
+    private Cursors() {
+    }
+
+    public static <T> void drain(Cursor<T> cursor, Consumer<? super T> consumer) {
+        try (cursor) {
+            for (T row : cursor) {
+                consumer.accept(row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
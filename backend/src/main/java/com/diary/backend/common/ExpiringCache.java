@@ -0,0 +1,93 @@
+package com.diary.backend.common;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded LRU cache whose entries expire after a per-call TTL. Concurrent requests for a key
+ * that is being loaded wait for that one load instead of starting their own; a failed load is not
+ * cached, so the next caller retries it.
+ */
+public final class ExpiringCache<K, V> {
+
+    private record Slot<V>(CompletableFuture<V> value, long expiresAt) {
+    }
+
+    private final Map<K, Slot<V>> slots;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ExpiringCache(int maxSize) {
+        this.slots = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Slot<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public V get(K key, Duration ttl, Supplier<V> loader) {
+        Slot<V> slot;
+        boolean load = false;
+        synchronized (slots) {
+            slot = slots.get(key);
+            if (slot == null || slot.expiresAt() < System.nanoTime()) {
+                // Still loading: expiresAt stays at MAX_VALUE until the value arrives
+                slot = new Slot<>(new CompletableFuture<>(), Long.MAX_VALUE);
+                slots.put(key, slot);
+                load = true;
+            }
+        }
+        if (!load) {
+            hits.incrementAndGet();
+            return join(slot.value());
+        }
+        misses.incrementAndGet();
+        try {
+            V value = loader.get();
+            synchronized (slots) {
+                if (slots.get(key) == slot) {
+                    slots.put(key, new Slot<>(slot.value(), System.nanoTime() + ttl.toNanos()));
+                }
+            }
+            slot.value().complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            synchronized (slots) {
+                slots.remove(key, slot);
+            }
+            slot.value().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public int size() {
+        synchronized (slots) {
+            return slots.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
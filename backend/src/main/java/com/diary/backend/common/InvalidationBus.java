@@ -0,0 +1,269 @@
+package com.diary.backend.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps in-process caches coherent across backend instances. Caches publish a key such as
+ * "v:entries:42" when something changes; once the transaction commits, keys are collected for
+ * diary.invalidation.flush-ms, de-duplicated and sent with pg_notify in as few payloads as fit.
+ * Every instance LISTENs on its own long-lived connection and hands the keys of other instances
+ * to the cache that registered the prefix. Notifications sent while an instance was disconnected
+ * are lost, so after reconnecting every cache is flushed wholesale.
+ * <p>
+ * Off by default (diary.invalidation.enabled); with a single instance publish() does nothing.
+ */
+@Component
+public class InvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+    // Postgres rejects NOTIFY payloads of 8000 bytes or more
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private record Subscriber(Consumer<String> evict, Runnable flushAll) {
+    }
+
+    private final boolean enabled;
+    private final String channel;
+    private final long flushMs;
+    private final DataSource dataSource;
+    private final DataSourceProperties dataSourceProperties;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Counter sent;
+    private final Counter received;
+    private final Counter resyncs;
+
+    private ScheduledExecutorService flusher;
+    private Thread listener;
+    private volatile boolean running;
+
+    public InvalidationBus(DataSource dataSource, DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry,
+                           @Value("${diary.invalidation.enabled:false}") boolean enabled,
+                           @Value("${diary.invalidation.channel:diary_invalidation}") String channel,
+                           @Value("${diary.invalidation.flush-ms:20}") long flushMs) {
+        this.dataSource = dataSource;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.flushMs = flushMs;
+        this.sent = Counter.builder("diary.invalidation.keys")
+                .description("Cache invalidation keys exchanged with other instances")
+                .tag("direction", "sent")
+                .register(meterRegistry);
+        this.received = Counter.builder("diary.invalidation.keys")
+                .description("Cache invalidation keys exchanged with other instances")
+                .tag("direction", "received")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("diary.invalidation.resyncs")
+                .description("Full cache flushes after the invalidation channel reconnected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Routes keys "prefix:..." from other instances to evict (with the prefix stripped) and calls
+     * flushAll when invalidations may have been missed.
+     */
+    public void subscribe(String prefix, Consumer<String> evict, Runnable flushAll) {
+        subscribers.put(prefix, new Subscriber(evict, flushAll));
+    }
+
+    public void publish(String prefix, String key) {
+        if (enabled) {
+            String entry = prefix + ":" + key;
+            AfterCommit.run(() -> pending.add(entry));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        listener = new Thread(this::listen, "invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.shutdown();
+            flush();
+        }
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+            keys.add(it.next());
+            it.remove();
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            for (String payload : payloads(keys)) {
+                ps.setString(1, channel);
+                ps.setString(2, payload);
+                ps.execute();
+            }
+            sent.increment(keys.size());
+        } catch (SQLException | RuntimeException e) {
+            // Try again with the next batch; the keys are idempotent
+            pending.addAll(keys);
+            log.warn("Could not publish {} cache invalidations: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    // "instanceId\nkey\nkey..." split so each payload stays under the NOTIFY limit
+    private List<String> payloads(List<String> keys) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(instanceId);
+        int bytes = instanceId.length();
+        for (String key : keys) {
+            int keyBytes = key.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (bytes + keyBytes > MAX_PAYLOAD_BYTES && payload.length() > instanceId.length()) {
+                payloads.add(payload.toString());
+                payload = new StringBuilder(instanceId);
+                bytes = instanceId.length();
+            }
+            payload.append('\n').append(key);
+            bytes += keyBytes;
+        }
+        payloads.add(payload.toString());
+        return payloads;
+    }
+
+    private void listen() {
+        boolean connectedBefore = false;
+        long backoffMs = 500;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(), listenerProperties())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN \"" + channel.replace("\"", "\"\"") + "\"");
+                }
+                if (connectedBefore) {
+                    resync();
+                }
+                connectedBefore = true;
+                backoffMs = 500;
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                long lastProbe = System.nanoTime();
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(1000);
+                    if (notifications != null && notifications.length > 0) {
+                        deliver(notifications);
+                    }
+                    // A silently dropped connection just stops delivering; a round trip exposes it
+                    if (System.nanoTime() - lastProbe > TimeUnit.SECONDS.toNanos(30)) {
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("SELECT 1");
+                        }
+                        lastProbe = System.nanoTime();
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation channel lost, reconnecting in {}ms: {}", backoffMs, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+            }
+        }
+    }
+
+    private Properties listenerProperties() {
+        Properties properties = new Properties();
+        if (dataSourceProperties.determineUsername() != null) {
+            properties.setProperty("user", dataSourceProperties.determineUsername());
+        }
+        if (dataSourceProperties.determinePassword() != null) {
+            properties.setProperty("password", dataSourceProperties.determinePassword());
+        }
+        // Easy to spot in pg_stat_activity
+        properties.setProperty("ApplicationName", "diary-invalidation-listener");
+        return properties;
+    }
+
+    private void deliver(PGNotification[] notifications) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (PGNotification notification : notifications) {
+            String[] lines = notification.getParameter().split("\n");
+            if (lines[0].equals(instanceId)) {
+                continue;
+            }
+            for (int i = 1; i < lines.length; i++) {
+                keys.add(lines[i]);
+            }
+        }
+        received.increment(keys.size());
+        for (String key : keys) {
+            int colon = key.indexOf(':');
+            Subscriber subscriber = colon < 0 ? null : subscribers.get(key.substring(0, colon));
+            if (subscriber != null) {
+                try {
+                    subscriber.evict().accept(key.substring(colon + 1));
+                } catch (RuntimeException e) {
+                    log.warn("Failed to apply cache invalidation {}", key, e);
+                }
+            }
+        }
+    }
+
+    private void resync() {
+        log.info("Cache invalidation channel reconnected, flushing local caches");
+        resyncs.increment();
+        subscribers.values().forEach(subscriber -> subscriber.flushAll().run());
+    }
+}
@@ -0,0 +1,75 @@
+package com.diary.backend.common;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one: the first caller runs the loader, callers
+ * that arrive while it is running wait for and share its result (or its exception). Nothing is
+ * kept once the load finishes, so unlike {@link ExpiringCache} a later caller always sees a fresh
+ * value. A caller joining a load may get a row as it was when that load started, and whatever the
+ * loader's connection sees: with a read replica, keys must separate primary from replica reads so
+ * a caller that has to read its own writes never shares a replica load.
+ */
+public final class RequestCoalescer<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong joins = new AtomicLong();
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            joins.incrementAndGet();
+            return join(running);
+        }
+        loads.incrementAndGet();
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public long loads() {
+        return loads.get();
+    }
+
+    public long joins() {
+        return joins.get();
+    }
+
+    public static void register(MeterRegistry registry, String kind, RequestCoalescer<?, ?> coalescer) {
+        FunctionCounter.builder("diary.coalesced.requests", coalescer, RequestCoalescer::loads)
+                .description("Single-item reads by whether they ran a query or joined one already in flight")
+                .tags("kind", kind, "result", "load")
+                .register(registry);
+        FunctionCounter.builder("diary.coalesced.requests", coalescer, RequestCoalescer::joins)
+                .description("Single-item reads by whether they ran a query or joined one already in flight")
+                .tags("kind", kind, "result", "join")
+                .register(registry);
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
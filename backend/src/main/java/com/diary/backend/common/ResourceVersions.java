@@ -0,0 +1,153 @@
+package com.diary.backend.common;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Version counters behind conditional GETs. Every write bumps the scope it affects (e.g.
+ * "entries:42" for user 42's entries, or "community" for the shared feed) after it commits, and
+ * reads derive a weak ETag from the scope's current version without loading anything.
+ * <p>
+ * Scopes are hashed onto a fixed array of counters so memory stays bounded; two scopes sharing a
+ * slot only costs an occasional unnecessary 200. The instance epoch makes ETags from another
+ * instance or a previous run never match.
+ * <p>
+ * With a read replica the body may be read from a copy that hasn't caught up with the version yet,
+ * so for the replica's lag window after a bump no ETag is handed out for that scope.
+ * <p>
+ * Bumps are shared with other instances through the {@link InvalidationBus}; if some may have
+ * been missed, a new epoch invalidates every ETag handed out so far.
+ */
+@Component
+public class ResourceVersions {
+
+    public static final String COMMUNITY = "community";
+
+    private static final int SLOTS = 1 << 16;
+
+    private final AtomicLongArray versions = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray bumpedAt = new AtomicLongArray(SLOTS);
+    private final long settleNanos;
+    private final InvalidationBus invalidationBus;
+    private volatile String epoch = newEpoch();
+
+    public ResourceVersions(InvalidationBus invalidationBus,
+                            @Value("${diary.datasource.replica.enabled:false}") boolean replica,
+                            @Value("${diary.datasource.replica.sticky-ms:5000}") long replicaLagMs) {
+        this.invalidationBus = invalidationBus;
+        this.settleNanos = replica ? TimeUnit.MILLISECONDS.toNanos(replicaLagMs) : 0;
+        invalidationBus.subscribe("v", this::bumpLocal, () -> epoch = newEpoch());
+    }
+
+    public static String entries(Long userId) {
+        return "entries:" + userId;
+    }
+
+    public static String entry(String entryId) {
+        return "entry:" + entryId;
+    }
+
+    public static String folders(Long userId) {
+        return "folders:" + userId;
+    }
+
+    public static String mindMaps(Long userId) {
+        return "mindmaps:" + userId;
+    }
+
+    public static String mindMap(String mindMapId) {
+        return "mindmap:" + mindMapId;
+    }
+
+    public static String books(Long userId) {
+        return "books:" + userId;
+    }
+
+    public static String book(String bookId) {
+        return "book:" + bookId;
+    }
+
+    public static String notes(Long userId) {
+        return "notes:" + userId;
+    }
+
+    public static String comments(String entryId) {
+        return "comments:" + entryId;
+    }
+
+    /**
+     * Bumps the given scopes once the current transaction commits.
+     */
+    public void bumpAfterCommit(String... scopes) {
+        AfterCommit.run(() -> bump(scopes));
+    }
+
+    public void bump(String... scopes) {
+        for (String scope : scopes) {
+            bumpLocal(scope);
+            invalidationBus.publish("v", scope);
+        }
+    }
+
+    private void bumpLocal(String scope) {
+        int slot = slot(scope);
+        versions.incrementAndGet(slot);
+        bumpedAt.set(slot, System.nanoTime());
+    }
+
+    public String etag(String... scopes) {
+        StringBuilder tag = new StringBuilder("W/\"").append(epoch);
+        for (String scope : scopes) {
+            int slot = slot(scope);
+            tag.append('-').append(Integer.toUnsignedString(scope.hashCode(), 36)).append('.').append(versions.get(slot));
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Answers 304 when the client's If-None-Match matches the current version of the scopes;
+     * otherwise sets the ETag so the response can be revalidated next time.
+     */
+    public boolean notModified(WebRequest request, String... scopes) {
+        if (request instanceof NativeWebRequest nativeRequest) {
+            HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+            if (response != null) {
+                // Let clients store the body but always revalidate it
+                response.setHeader("Cache-Control", "private, no-cache");
+                // Same URL for every user now that the user comes from the session token
+                response.addHeader("Vary", "Authorization");
+            }
+        }
+        return !settling(scopes) && request.checkNotModified(etag(scopes));
+    }
+
+    private boolean settling(String... scopes) {
+        if (settleNanos == 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        for (String scope : scopes) {
+            long at = bumpedAt.get(slot(scope));
+            if (at != 0 && now - at < settleNanos) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String newEpoch() {
+        return Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    }
+
+    private static int slot(String scope) {
+        int h = scope.hashCode();
+        return (h ^ (h >>> 16)) & (SLOTS - 1);
+    }
+}
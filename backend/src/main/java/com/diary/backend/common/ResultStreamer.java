@@ -0,0 +1,56 @@
+package com.diary.backend.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes a list response as a {@link Result} envelope ({"code":200,"message":"Success","data":[...]})
+ * one element at a time, so large lists never have to be held in memory. The producer pushes
+ * rows into the sink it is given, typically straight from a MyBatis cursor.
+ */
+@Component
+public class ResultStreamer {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public <T> void writeList(HttpServletResponse response, Consumer<Consumer<T>> producer) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            Result<Void> envelope = Result.success();
+            generator.writeStartObject();
+            generator.writeNumberField("code", envelope.getCode());
+            generator.writeStringField("message", envelope.getMessage());
+            generator.writeArrayFieldStart("data");
+            producer.accept(row -> {
+                try {
+                    generator.writeObject(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.close();
+        } catch (RuntimeException e) {
+            // Nothing has reached the client yet: drop the partial body and let the normal error handling respond
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+            }
+            throw e;
+        }
+    }
+}
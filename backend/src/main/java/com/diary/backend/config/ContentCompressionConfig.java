@@ -0,0 +1,18 @@
+package com.diary.backend.config;
+
+import com.diary.backend.mapper.CompressedTextTypeHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Applies the diary.content-compression.* settings to {@link CompressedTextTypeHandler}.
+ */
+@Configuration
+public class ContentCompressionConfig {
+
+    public ContentCompressionConfig(@Value("${diary.content-compression.enabled:false}") boolean enabled,
+                                    @Value("${diary.content-compression.threshold-bytes:2048}") int thresholdBytes,
+                                    @Value("${diary.content-compression.level:3}") int level) {
+        CompressedTextTypeHandler.configure(enabled, thresholdBytes, level);
+    }
+}
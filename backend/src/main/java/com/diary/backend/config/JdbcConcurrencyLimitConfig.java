@@ -0,0 +1,57 @@
+package com.diary.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Enabled together with virtual threads (see application-virtual.properties). Platform threads
+ * are naturally bounded by the Tomcat pool, virtual threads are not, so JDBC access is limited
+ * to the size of the Hikari pool unless diary.jdbc.concurrency-limit.permits says otherwise.
+ */
+@Configuration
+@ConditionalOnProperty(name = "diary.jdbc.concurrency-limit.enabled", havingValue = "true")
+public class JdbcConcurrencyLimitConfig {
+
+    @Bean
+    public static BeanPostProcessor jdbcConcurrencyLimiter(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitingDataSource) {
+                    return bean;
+                }
+                int permits = environment.getProperty("diary.jdbc.concurrency-limit.permits", Integer.class, 0);
+                if (permits <= 0) {
+                    permits = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+                }
+                long timeoutMs = environment.getProperty("diary.jdbc.concurrency-limit.acquire-timeout-ms", Long.class, 30000L);
+                return new ConcurrencyLimitingDataSource(dataSource, permits, timeoutMs);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder jdbcConcurrencyLimiterMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> dataSources.orderedStream()
+                .filter(ConcurrencyLimitingDataSource.class::isInstance)
+                .map(ConcurrencyLimitingDataSource.class::cast)
+                .findFirst()
+                .ifPresent(limiter -> {
+                    Gauge.builder("diary.jdbc.limiter.available", limiter, ConcurrencyLimitingDataSource::getAvailablePermits)
+                            .description("Free JDBC concurrency permits")
+                            .register(registry);
+                    Gauge.builder("diary.jdbc.limiter.queued", limiter, ConcurrencyLimitingDataSource::getQueueLength)
+                            .description("Threads waiting for a JDBC concurrency permit")
+                            .register(registry);
+                });
+    }
+}
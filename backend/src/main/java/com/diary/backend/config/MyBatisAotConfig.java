@@ -0,0 +1,53 @@
+package com.diary.backend.config;
+
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.mybatis.spring.mapper.MapperScannerConfigurer;
+import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+
+/**
+ * Lets the mapper beans survive Spring AOT (the fast-startup build profile). The scanned mapper
+ * definitions are MapperFactoryBeans whose type only says which mapper they produce through a
+ * property, so AOT would record them as a raw MapperFactoryBean and nothing could be injected by
+ * mapper type; and the scanner itself would run again at startup and collide with the recorded
+ * definitions. Without AOT this changes nothing.
+ */
+@Configuration
+public class MyBatisAotConfig {
+
+    @Bean
+    static MergedBeanDefinitionPostProcessor mapperFactoryBeanTypeResolver() {
+        return (beanDefinition, beanType, beanName) -> resolveMapperType(beanDefinition);
+    }
+
+    private static void resolveMapperType(RootBeanDefinition beanDefinition) {
+        if (!beanDefinition.hasBeanClass() || !MapperFactoryBean.class.isAssignableFrom(beanDefinition.getBeanClass())
+                || !beanDefinition.getResolvableType().hasUnresolvableGenerics()) {
+            return;
+        }
+        if (beanDefinition.getPropertyValues().get("mapperInterface") instanceof Class<?> mapperInterface) {
+            // The scanner passes the interface name; the AOT instance supplier only matches a Class
+            ConstructorArgumentValues arguments = new ConstructorArgumentValues();
+            arguments.addGenericArgumentValue(mapperInterface);
+            beanDefinition.setConstructorArgumentValues(arguments);
+            beanDefinition.setTargetType(ResolvableType.forClassWithGenerics(beanDefinition.getBeanClass(), mapperInterface));
+        }
+    }
+
+    /**
+     * Registered in META-INF/spring/aot.factories: the mappers are already in the AOT bean factory.
+     */
+    public static class MapperScannerExcludeFilter implements BeanRegistrationExcludeFilter {
+
+        @Override
+        public boolean isExcludedFromAotProcessing(RegisteredBean registeredBean) {
+            return MapperScannerConfigurer.class.isAssignableFrom(registeredBean.getBeanClass());
+        }
+    }
+}
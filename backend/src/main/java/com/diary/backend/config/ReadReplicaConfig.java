@@ -0,0 +1,73 @@
+package com.diary.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Enabled with diary.datasource.replica.enabled=true. The primary pool is built from the usual
+ * spring.datasource.* settings and the replica pool from diary.datasource.replica.* (credentials
+ * default to the primary's, pool settings under diary.datasource.replica.hikari.*). Services mark
+ * their reads with @Transactional(readOnly = true) to have them served by the replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "diary.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("diary-pool");
+        }
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        HikariDataSource replica = new HikariDataSource();
+        replica.setDriverClassName(properties.determineDriverClassName());
+        replica.setJdbcUrl(environment.getRequiredProperty("diary.datasource.replica.url"));
+        replica.setUsername(environment.getProperty("diary.datasource.replica.username", properties.determineUsername()));
+        replica.setPassword(environment.getProperty("diary.datasource.replica.password", properties.determinePassword()));
+        binder.bind("diary.datasource.replica.hikari", Bindable.ofInstance(replica));
+        if (replica.getPoolName() == null) {
+            replica.setPoolName("diary-replica-pool");
+        }
+        // Also guards against a write slipping through when one server plays both roles
+        replica.setReadOnly(true);
+        replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        long stickyMs = environment.getProperty("diary.datasource.replica.sticky-ms", Long.class, 5000L);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, stickyMs, meterRegistry);
+        routing.afterPropertiesSet();
+        return new RoutingProxy(routing);
+    }
+
+    // Lets the context close both pools on shutdown
+    static class RoutingProxy extends LazyConnectionDataSourceProxy implements AutoCloseable {
+        private final ReadWriteRoutingDataSource routing;
+
+        RoutingProxy(ReadWriteRoutingDataSource routing) {
+            super(routing);
+            this.routing = routing;
+        }
+
+        @Override
+        public void close() throws Exception {
+            routing.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.diary.backend.config;
+
+import com.diary.backend.auth.AuthInterceptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary. Meant to sit
+ * behind a LazyConnectionDataSourceProxy, so the choice is made at the first statement, when the
+ * transaction's read-only flag is known. A user who just wrote something (any POST/PUT/PATCH/DELETE
+ * that reached the database) keeps reading from the primary for a short window, so replication
+ * lag never hides their own change.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private static final int MAX_STICKY_USERS = 10000;
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long stickyNanos;
+    private final Map<Long, Long> stickyUntil = new ConcurrentHashMap<>();
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+    private final Counter writes;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long stickyMs, MeterRegistry meterRegistry) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.primary = primary;
+        this.replica = replica;
+        this.stickyNanos = TimeUnit.MILLISECONDS.toNanos(stickyMs);
+        this.primaryReads = routed(meterRegistry, "primary", "read-only");
+        this.replicaReads = routed(meterRegistry, "replica", "read-only");
+        this.writes = routed(meterRegistry, "primary", "read-write");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        HttpServletRequest request = currentRequest();
+        Long userId = request == null ? null : (Long) request.getAttribute(AuthInterceptor.USER_ID_ATTRIBUTE);
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (request != null && isWrite(request.getMethod())) {
+            if (userId != null) {
+                markSticky(userId);
+            }
+            (readOnly ? primaryReads : writes).increment();
+            return Target.PRIMARY;
+        }
+        if (!readOnly) {
+            writes.increment();
+            return Target.PRIMARY;
+        }
+        if (userId != null && isSticky(userId)) {
+            primaryReads.increment();
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    /**
+     * Where a read-only transaction started now on this thread would go, without counting it.
+     * Lets reads that are shared between requests keep primary and replica results apart.
+     */
+    public Target readTarget() {
+        HttpServletRequest request = currentRequest();
+        if (request == null) {
+            return Target.REPLICA;
+        }
+        Long userId = (Long) request.getAttribute(AuthInterceptor.USER_ID_ATTRIBUTE);
+        if (isWrite(request.getMethod()) || (userId != null && isSticky(userId))) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    // The router behind a possibly wrapped DataSource, or null when reads aren't split
+    public static ReadWriteRoutingDataSource find(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)
+                    ? dataSource.unwrap(ReadWriteRoutingDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource target : new DataSource[]{replica, primary}) {
+            if (target instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private void markSticky(long userId) {
+        long now = System.nanoTime();
+        if (stickyUntil.size() >= MAX_STICKY_USERS) {
+            stickyUntil.values().removeIf(until -> until - now <= 0);
+        }
+        stickyUntil.put(userId, now + stickyNanos);
+    }
+
+    private boolean isSticky(long userId) {
+        Long until = stickyUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        stickyUntil.remove(userId, until);
+        return false;
+    }
+
+    private static boolean isWrite(String method) {
+        return !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet.getRequest() : null;
+    }
+
+    private static Counter routed(MeterRegistry registry, String target, String transaction) {
+        return Counter.builder("diary.datasource.routed")
+                .description("Connections handed out by the read/write router")
+                .tag("target", target)
+                .tag("transaction", transaction)
+                .register(registry);
+    }
+}
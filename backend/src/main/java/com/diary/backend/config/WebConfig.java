@@ -0,0 +1,44 @@
+package com.diary.backend.config;
+
+import com.diary.backend.auth.AuthInterceptor;
+import com.diary.backend.auth.CurrentUserArgumentResolver;
+import com.diary.backend.metrics.DbTimeInterceptor;
+import com.diary.backend.ratelimit.RateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private DbTimeInterceptor dbTimeInterceptor;
+
+    @Autowired
+    private AuthInterceptor authInterceptor;
+
+    @Autowired(required = false)
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private CurrentUserArgumentResolver currentUserArgumentResolver;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(dbTimeInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(authInterceptor).addPathPatterns("/api/**")
+                .excludePathPatterns("/api/auth/login", "/api/auth/register");
+        if (rateLimitInterceptor != null) {
+            registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/api/**");
+        }
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(currentUserArgumentResolver);
+    }
+}
@@ -1,16 +1,31 @@
 package com.diary.backend.controller;
 
+import com.diary.backend.auth.AuthInterceptor;
+import com.diary.backend.auth.CurrentUser;
+import com.diary.backend.auth.TokenService;
 import com.diary.backend.common.Result;
+import com.diary.backend.dto.AuthResponse;
 import com.diary.backend.dto.LoginRequest;
 import com.diary.backend.dto.RegisterRequest;
 import com.diary.backend.entity.User;
 import com.diary.backend.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import com.diary.backend.dto.UpdatePasswordRequest;
 import com.diary.backend.dto.UpdateProfileRequest;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Login, register and password changes hash passwords on {@link com.diary.backend.auth.PasswordHasher}'s
+ * pool and return futures, so the request thread is released while the hash runs.
+ */
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -18,29 +33,25 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenService tokenService;
+
     @PostMapping("/login")
-    public Result<User> login(@RequestBody LoginRequest request) {
-        User user = userService.login(request);
-        if (user != null) {
-            return Result.success(user);
-        }
-        return Result.error(401, "Invalid email or password");
+    public CompletableFuture<Result<AuthResponse>> login(@RequestBody LoginRequest request) {
+        return async(() -> userService.login(request), user -> user != null
+                ? Result.success(session(user))
+                : Result.error(401, "Invalid email or password"));
     }
 
     @PostMapping("/register")
-    public Result<User> register(@RequestBody RegisterRequest request) {
-        try {
-            User user = userService.register(request);
-            return Result.success(user);
-        } catch (Exception e) {
-            return Result.error(400, e.getMessage());
-        }
+    public CompletableFuture<Result<AuthResponse>> register(@RequestBody RegisterRequest request) {
+        return async(() -> userService.register(request), user -> Result.success(session(user)));
     }
 
     @PutMapping("/profile")
-    public Result<User> updateProfile(@RequestBody UpdateProfileRequest request) {
+    public Result<User> updateProfile(@CurrentUser Long userId, @RequestBody UpdateProfileRequest request) {
         try {
-            User user = userService.updateProfile(request);
+            User user = userService.updateProfile(userId, request);
             return Result.success(user);
         } catch (Exception e) {
             return Result.error(400, e.getMessage());
@@ -48,17 +59,37 @@ public class AuthController {
     }
 
     @PutMapping("/password")
-    public Result<Void> updatePassword(@RequestBody UpdatePasswordRequest request) {
-        try {
-            userService.updatePassword(request);
-            return Result.success();
-        } catch (Exception e) {
-            return Result.error(400, e.getMessage());
-        }
+    public CompletableFuture<Result<Void>> updatePassword(@CurrentUser Long userId, @RequestBody UpdatePasswordRequest request) {
+        return async(() -> userService.updatePassword(userId, request), done -> Result.success());
     }
 
     @PostMapping("/logout")
-    public Result<Void> logout() {
+    public Result<Void> logout(HttpServletRequest request) {
+        String token = AuthInterceptor.bearerToken(request);
+        if (token != null) {
+            tokenService.revoke(token);
+        }
         return Result.success();
     }
+
+    private AuthResponse session(User user) {
+        TokenService.IssuedToken token = tokenService.issue(user.getId());
+        return new AuthResponse(token.token(), token.expiresAt(), user);
+    }
+
+    private static <T, R> CompletableFuture<Result<R>> async(Supplier<CompletableFuture<T>> call, Function<T, Result<R>> onSuccess) {
+        try {
+            return call.get().handle((value, error) -> {
+                if (error == null) {
+                    return onSuccess.apply(value);
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                return Result.error(400, cause.getMessage());
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(Result.error(503, "Too many sign-in attempts, please try again shortly"));
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(Result.error(400, e.getMessage()));
+        }
+    }
 }
@@ -1,13 +1,24 @@
 package com.diary.backend.controller;
 
+import com.diary.backend.auth.CurrentUser;
+import com.diary.backend.common.ResourceVersions;
 import com.diary.backend.common.Result;
+import com.diary.backend.dto.BookSearchHit;
 import com.diary.backend.entity.Book;
 import com.diary.backend.entity.BookNote;
+import com.diary.backend.epub.EpubManifest;
+import com.diary.backend.service.BookManifestService;
+import com.diary.backend.service.BookSearchService;
 import com.diary.backend.service.BookService;
+import com.diary.backend.service.NoteService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -22,20 +33,63 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookManifestService bookManifestService;
+
+    @Autowired
+    private NoteService noteService;
+
+    private final Counter downloadedBytes;
+
+    public BookController(MeterRegistry meterRegistry) {
+        this.downloadedBytes = Counter.builder("diary.books.download.bytes")
+                .description("Bytes of book files streamed to clients")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
     @GetMapping
-    public Result<List<Book>> getBooks(@RequestParam Long userId) {
+    public Result<List<Book>> getBooks(@CurrentUser Long userId, WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.books(userId))) {
+            return null;
+        }
         return Result.success(bookService.getBooks(userId));
     }
 
+    // 在用户的整个书库中搜索正文
+    @GetMapping("/search")
+    public Result<List<BookSearchHit>> searchLibrary(@CurrentUser Long userId, @RequestParam String q,
+                                                     @RequestParam(required = false) Integer limit) {
+        try {
+            return Result.success(bookSearchService.searchLibrary(userId, q, limit));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
-    public Result<Book> getBook(@PathVariable String id) {
-        return Result.success(bookService.getBookMetadata(id));
+    public Result<Book> getBook(@PathVariable String id, @CurrentUser Long userId, WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.book(id))) {
+            return null;
+        }
+        Book book = bookService.getBookMetadata(userId, id);
+        return book == null ? Result.error(404, "Book not found") : Result.success(book);
     }
 
     @GetMapping("/{id}/download")
-    public ResponseEntity<byte[]> downloadBook(@PathVariable String id) {
+    public ResponseEntity<byte[]> downloadBook(@PathVariable String id, @CurrentUser Long userId, WebRequest webRequest) {
         System.out.println("Downloading book with ID: " + id);
-        Book book = bookService.getBook(id);
+        // The file behind a book id never changes, so a cached copy is always valid
+        if (bookService.getBookMetadata(userId, id) != null && webRequest.checkNotModified("\"" + id + "\"")) {
+            return null;
+        }
+        Book book = bookService.getBook(userId, id);
         if (book == null) {
             System.out.println("Book not found for ID: " + id);
             return ResponseEntity.notFound().build();
@@ -45,6 +99,7 @@ public class BookController {
              return ResponseEntity.notFound().build();
         }
         System.out.println("Returning book file, size: " + book.getFileData().length + " bytes");
+        downloadedBytes.increment(book.getFileData().length);
         
         String filename = book.getTitle() + ".epub";
         String encodedFilename = URLEncoder.encode(filename, StandardCharsets.UTF_8).replaceAll("\\+", "%20");
@@ -52,12 +107,48 @@ public class BookController {
         return ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType("application/epub+zip"))
                 .header("Content-Disposition", "attachment; filename*=UTF-8''" + encodedFilename)
+                .header("Cache-Control", "private, max-age=31536000, immutable")
                 .body(book.getFileData());
     }
 
+    // 书的目录、阅读顺序以及每个文件在压缩包中的位置，阅读器据此按章节加载
+    @GetMapping("/{id}/manifest")
+    public Result<EpubManifest> getManifest(@PathVariable String id, @CurrentUser Long userId, WebRequest webRequest) {
+        EpubManifest manifest = bookManifestService.getManifest(userId, id);
+        if (manifest == null) {
+            return Result.error(404, "Book not found or not a readable EPUB");
+        }
+        if (webRequest.checkNotModified("\"" + id + "-manifest\"")) {
+            return null;
+        }
+        return Result.success(manifest);
+    }
+
+    // Serves one file of the EPUB (chapter, stylesheet, image...) straight out of the stored archive
+    @GetMapping("/{id}/resources/{*path}")
+    public void getResource(@PathVariable String id, @PathVariable String path, @CurrentUser Long userId,
+                            WebRequest webRequest, HttpServletResponse response) throws IOException {
+        String name = path.startsWith("/") ? path.substring(1) : path;
+        // The manifest is usually cached, so this ownership check rarely costs a query
+        if (bookManifestService.getManifest(userId, id) != null
+                && webRequest.checkNotModified("\"" + id + "-" + Integer.toHexString(name.hashCode()) + "\"")) {
+            return;
+        }
+        BookManifestService.ResourceContent content = bookManifestService.getResource(userId, id, name);
+        if (content == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType(content.mediaType());
+        response.setHeader("Cache-Control", "private, max-age=31536000, immutable");
+        response.setContentLengthLong(content.size());
+        bookManifestService.write(content, response.getOutputStream());
+        downloadedBytes.increment(content.data().length);
+    }
+
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public Result<Void> uploadBook(
-            @RequestParam("userId") Long userId,
+            @CurrentUser Long userId,
             @RequestParam("title") String title,
             @RequestParam("author") String author,
             @RequestParam(value = "coverImage", required = false) String coverImage,
@@ -71,35 +162,54 @@ public class BookController {
     }
 
     @DeleteMapping("/{id}")
-    public Result<Void> deleteBook(@PathVariable String id) {
-        bookService.deleteBook(id);
+    public Result<Void> deleteBook(@PathVariable String id, @CurrentUser Long userId) {
+        if (!bookService.deleteBook(userId, id)) {
+            return Result.error(404, "Book not found");
+        }
         return Result.success();
     }
 
     @PutMapping("/{id}/progress")
-    public Result<Void> updateProgress(@PathVariable String id, @RequestParam String progress) {
-        bookService.updateProgress(id, progress);
+    public Result<Void> updateProgress(@PathVariable String id, @CurrentUser Long userId, @RequestParam String progress) {
+        if (!bookService.updateProgress(userId, id, progress)) {
+            return Result.error(404, "Book not found");
+        }
         return Result.success();
     }
 
+    // 在单本书中搜索，返回带 CFI 位置的片段
+    @GetMapping("/{id}/search")
+    public Result<List<BookSearchHit>> searchBook(@PathVariable String id, @CurrentUser Long userId, @RequestParam String q,
+                                                  @RequestParam(required = false) Integer limit) {
+        try {
+            List<BookSearchHit> hits = bookSearchService.searchBook(userId, id, q, limit);
+            return hits == null ? Result.error(404, "Book not found") : Result.success(hits);
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}/notes")
-    public Result<List<BookNote>> getNotes(@PathVariable String id, @RequestParam Long userId) {
-        return Result.success(bookService.getNotes(id, userId));
+    public Result<List<BookNote>> getNotes(@PathVariable String id, @CurrentUser Long userId, WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.notes(userId))) {
+            return null;
+        }
+        return Result.success(noteService.getBookNotes(id, userId));
     }
 
     @PostMapping("/{id}/notes")
-    public Result<Void> addNote(@PathVariable String id, @RequestBody BookNote note) {
+    public Result<BookNote> addNote(@PathVariable String id, @CurrentUser Long userId, @RequestBody BookNote note) {
         note.setBookId(id);
-        if (note.getUserId() == null) {
-            return Result.error(400, "User ID is required");
+        try {
+            return Result.success(noteService.addNote(userId, note));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
         }
-        bookService.addNote(note.getUserId(), note);
-        return Result.success();
     }
 
     @DeleteMapping("/notes/{noteId}")
-    public Result<Void> deleteNote(@PathVariable String noteId) {
-        bookService.deleteNote(noteId);
+    public Result<Void> deleteNote(@PathVariable String noteId, @CurrentUser Long userId) {
+        noteService.deleteNote(userId, noteId);
         return Result.success();
     }
 }
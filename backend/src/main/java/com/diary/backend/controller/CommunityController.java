@@ -1,12 +1,21 @@
 package com.diary.backend.controller;
 
+import com.diary.backend.auth.CurrentUser;
+import com.diary.backend.common.ResourceVersions;
 import com.diary.backend.common.Result;
+import com.diary.backend.common.ResultStreamer;
 import com.diary.backend.dto.CommunityEntryDTO;
+import com.diary.backend.dto.TopicStoriesDTO;
 import com.diary.backend.entity.Comment;
 import com.diary.backend.service.CommunityService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -17,15 +26,32 @@ public class CommunityController {
     @Autowired
     private CommunityService communityService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ResultStreamer resultStreamer;
+
     @GetMapping("/entries")
-    public Result<List<CommunityEntryDTO>> getSharedEntries(@RequestParam Long userId) {
-        return Result.success(communityService.getSharedEntries(userId));
+    public void getSharedEntries(@CurrentUser Long userId, WebRequest webRequest, HttpServletResponse response) throws IOException {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.COMMUNITY)) {
+            return;
+        }
+        resultStreamer.<CommunityEntryDTO>writeList(response, sink -> communityService.streamSharedEntries(userId, sink));
+    }
+
+    // 某一天的话题故事，按票数排序，并返回当前用户是否已经投稿
+    @GetMapping("/topics/{date}")
+    public Result<TopicStoriesDTO> getTopicStories(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                   @CurrentUser Long userId, WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.COMMUNITY)) {
+            return null;
+        }
+        return Result.success(communityService.getTopicStories(date, userId));
     }
 
     @PostMapping("/entries/{id}/like")
-    public Result<Void> likeEntry(@PathVariable String id, @RequestBody Map<String, Long> payload) {
-        Long userId = payload.get("userId");
-        if (userId == null) return Result.error(400, "User ID required");
+    public Result<Void> likeEntry(@PathVariable String id, @CurrentUser Long userId) {
         try {
             communityService.likeEntry(userId, id);
             return Result.success();
@@ -35,15 +61,13 @@ public class CommunityController {
     }
 
     @DeleteMapping("/entries/{id}/like")
-    public Result<Void> unlikeEntry(@PathVariable String id, @RequestParam Long userId) {
+    public Result<Void> unlikeEntry(@PathVariable String id, @CurrentUser Long userId) {
         communityService.unlikeEntry(userId, id);
         return Result.success();
     }
 
     @PostMapping("/entries/{id}/vote")
-    public Result<Void> voteEntry(@PathVariable String id, @RequestBody Map<String, Long> payload) {
-        Long userId = payload.get("userId");
-        if (userId == null) return Result.error(400, "User ID required");
+    public Result<Void> voteEntry(@PathVariable String id, @CurrentUser Long userId) {
         try {
             communityService.voteEntry(userId, id);
             return Result.success();
@@ -53,35 +77,43 @@ public class CommunityController {
     }
 
     @DeleteMapping("/entries/{id}/vote")
-    public Result<Void> unvoteEntry(@PathVariable String id, @RequestParam Long userId) {
+    public Result<Void> unvoteEntry(@PathVariable String id, @CurrentUser Long userId) {
         communityService.unvoteEntry(userId, id);
         return Result.success();
     }
 
     @PostMapping("/entries/{id}/comments")
-    public Result<Comment> addComment(@PathVariable String id, @RequestBody Map<String, Object> payload) {
-        Long userId = ((Number) payload.get("userId")).longValue();
+    public Result<Comment> addComment(@PathVariable String id, @CurrentUser Long userId, @RequestBody Map<String, Object> payload) {
         String content = (String) payload.get("content");
         Long parentId = null;
         if (payload.get("parentId") != null) {
             parentId = ((Number) payload.get("parentId")).longValue();
         }
 
-        if (userId == null || content == null) return Result.error(400, "User ID and content required");
+        if (content == null) return Result.error(400, "Content required");
         
-        Comment comment = communityService.addComment(userId, id, content, parentId);
-        return Result.success(comment);
+        try {
+            Comment comment = communityService.addComment(userId, id, content, parentId);
+            return Result.success(comment);
+        } catch (RuntimeException e) {
+            return Result.error(400, e.getMessage());
+        }
     }
 
     @GetMapping("/entries/{id}/comments")
-    public Result<List<Comment>> getComments(@PathVariable String id) {
+    public Result<List<Comment>> getComments(@PathVariable String id, WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.comments(id))) {
+            return null;
+        }
         return Result.success(communityService.getComments(id));
     }
 
     // 删除某个笔记下的评论
     @DeleteMapping("/entries/{id}/comments/{commentId}")
-    public Result<Void> deleteComment(@PathVariable String id, @PathVariable Long commentId) {
-        communityService.deleteComment(commentId);
+    public Result<Void> deleteComment(@CurrentUser Long userId, @PathVariable String id, @PathVariable Long commentId) {
+        if (!communityService.deleteComment(userId, id, commentId)) {
+            return Result.error(404, "Comment not found");
+        }
         return Result.success();
     }
 
@@ -1,13 +1,29 @@
 package com.diary.backend.controller;
 
+import com.diary.backend.auth.CurrentUser;
+import com.diary.backend.common.ResourceVersions;
 import com.diary.backend.common.Result;
+import com.diary.backend.common.ResultStreamer;
+import com.diary.backend.dto.BatchGetResult;
+import com.diary.backend.dto.EntrySummary;
+import com.diary.backend.dto.ImportProgress;
 import com.diary.backend.entity.DiaryEntry;
 import com.diary.backend.service.DiaryEntryService;
+import com.diary.backend.service.ImportService;
+import com.diary.backend.service.OnThisDayService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/entries")
@@ -16,22 +32,61 @@ public class DiaryEntryController {
     @Autowired
     private DiaryEntryService diaryEntryService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ResultStreamer resultStreamer;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OnThisDayService onThisDayService;
+
     @GetMapping
-    public Result<List<DiaryEntry>> getEntries(@RequestParam Long userId) {
-        return Result.success(diaryEntryService.getEntries(userId));
+    public void getEntries(@CurrentUser Long userId, WebRequest webRequest, HttpServletResponse response) throws IOException {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.entries(userId))) {
+            return;
+        }
+        resultStreamer.<DiaryEntry>writeList(response, sink -> diaryEntryService.streamEntries(userId, sink));
+    }
+
+    // Entries from the same calendar day in earlier years, or within window days of it
+    @GetMapping("/on-this-day")
+    public Result<List<EntrySummary>> getOnThisDay(@CurrentUser Long userId, @RequestParam(defaultValue = "0") int window) {
+        try {
+            return Result.success(onThisDayService.getMemories(userId, window));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    // GET ?ids=a,b,c (or repeated ids=): up to BatchGets.MAX_IDS entries in one query, visible as in GET /{id}
+    @GetMapping("/batch")
+    public Result<BatchGetResult<DiaryEntry>> getBatch(@CurrentUser Long userId, @RequestParam(required = false) List<String> ids) {
+        try {
+            return Result.success(diaryEntryService.getEntriesByIds(userId, ids));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
     }
 
     @GetMapping("/{id}")
-    public Result<DiaryEntry> getEntry(@PathVariable String id) {
-        return Result.success(diaryEntryService.getEntry(id));
+    public Result<DiaryEntry> getEntry(@CurrentUser Long userId, @PathVariable String id, WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.entry(id))) {
+            return null;
+        }
+        DiaryEntry entry = diaryEntryService.getEntry(userId, id);
+        return entry == null ? Result.error(404, "Entry not found") : Result.success(entry);
     }
 
     @PostMapping
-    public Result<DiaryEntry> createEntry(@RequestBody DiaryEntry entry) {
-        // Ensure userId is present. In a real app, get from Security Context.
-        if (entry.getUserId() == null) {
-             return Result.error(400, "User ID is required");
-        }
+    public Result<DiaryEntry> createEntry(@CurrentUser Long userId, @RequestBody DiaryEntry entry) {
+        entry.setUserId(userId);
         try {
             diaryEntryService.createEntry(entry);
             return Result.success(entry);
@@ -40,9 +95,33 @@ public class DiaryEntryController {
         }
     }
 
+    // 批量导入：请求体为 NDJSON（每行一篇日记）或导出的 ZIP，响应为逐行的 NDJSON 进度
+    @PostMapping("/import")
+    public void importEntries(@CurrentUser Long userId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+        Consumer<ImportProgress> progress = report -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(report));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.startsWith("application/zip")) {
+            importService.importArchive(userId, request.getInputStream(), progress);
+        } else {
+            importService.importEntries(userId, request.getInputStream(), progress);
+        }
+    }
+
     @PutMapping("/{id}")
-    public Result<Void> updateEntry(@PathVariable String id, @RequestBody DiaryEntry entry) {
+    public Result<Void> updateEntry(@PathVariable String id, @CurrentUser Long userId, @RequestBody DiaryEntry entry) {
         entry.setId(id);
+        entry.setUserId(userId);
         try {
             diaryEntryService.updateEntry(entry);
             return Result.success();
@@ -52,14 +131,8 @@ public class DiaryEntryController {
     }
 
     @PutMapping("/{id}/folder")
-    public Result<Void> moveEntryToFolder(@PathVariable String id, @RequestBody Map<String, Object> payload) {
+    public Result<Void> moveEntryToFolder(@PathVariable String id, @CurrentUser Long userId, @RequestBody Map<String, Object> payload) {
         String folderId = (String) payload.get("folderId");
-        Object userIdObj = payload.get("userId");
-        if (userIdObj == null) {
-            return Result.error(400, "User ID is required");
-        }
-        Long userId = Long.valueOf(userIdObj.toString());
-        
         try {
             diaryEntryService.moveEntryToFolder(id, folderId, userId);
             return Result.success();
@@ -69,25 +142,32 @@ public class DiaryEntryController {
     }
 
     @DeleteMapping("/{id}")
-    public Result<Void> deleteEntry(@PathVariable String id) {
-        diaryEntryService.deleteEntry(id);
+    public Result<Void> deleteEntry(@PathVariable String id, @CurrentUser Long userId) {
+        diaryEntryService.deleteEntry(id, userId);
         return Result.success();
     }
 
     @PutMapping("/{id}/restore")
-    public Result<Void> restoreEntry(@PathVariable String id) {
-        diaryEntryService.restoreEntry(id);
-        return Result.success();
+    public Result<Void> restoreEntry(@PathVariable String id, @CurrentUser Long userId) {
+        try {
+            diaryEntryService.restoreEntry(id, userId);
+            return Result.success();
+        } catch (RuntimeException e) {
+            return Result.error(400, e.getMessage());
+        }
     }
 
     @DeleteMapping("/{id}/permanent")
-    public Result<Void> permanentlyDeleteEntry(@PathVariable String id) {
-        diaryEntryService.permanentlyDeleteEntry(id);
+    public Result<Void> permanentlyDeleteEntry(@PathVariable String id, @CurrentUser Long userId) {
+        diaryEntryService.permanentlyDeleteEntry(id, userId);
         return Result.success();
     }
     
     @GetMapping("/trash")
-    public Result<List<DiaryEntry>> getTrash(@RequestParam Long userId) {
-        return Result.success(diaryEntryService.getTrash(userId));
+    public void getTrash(@CurrentUser Long userId, WebRequest webRequest, HttpServletResponse response) throws IOException {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.entries(userId))) {
+            return;
+        }
+        resultStreamer.<DiaryEntry>writeList(response, sink -> diaryEntryService.streamTrash(userId, sink));
     }
 }
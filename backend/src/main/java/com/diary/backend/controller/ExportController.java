@@ -0,0 +1,32 @@
+package com.diary.backend.controller;
+
+import com.diary.backend.auth.CurrentUser;
+import com.diary.backend.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    // 导出整个账号（日记、思维导图、书籍和笔记）为 ZIP，边查询边写入响应
+    @GetMapping
+    public void exportAccount(@CurrentUser Long userId, HttpServletResponse response) throws IOException {
+        response.setContentType("application/zip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"diary-export-" + LocalDate.now() + ".zip\"");
+        response.setHeader("Cache-Control", "no-store");
+
+        OutputStream out = new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+        exportService.exportAccount(userId, out);
+        out.flush();
+    }
+}
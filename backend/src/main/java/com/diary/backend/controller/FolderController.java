@@ -1,10 +1,13 @@
 package com.diary.backend.controller;
 
+import com.diary.backend.auth.CurrentUser;
+import com.diary.backend.common.ResourceVersions;
 import com.diary.backend.common.Result;
 import com.diary.backend.entity.Folder;
 import com.diary.backend.service.FolderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -16,45 +19,41 @@ public class FolderController {
     @Autowired
     private FolderService folderService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     @GetMapping
-    public Result<List<Folder>> getUserFolders(@RequestParam Long userId) {
+    public Result<List<Folder>> getUserFolders(@CurrentUser Long userId, WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.folders(userId))) {
+            return null;
+        }
         return folderService.getUserFolders(userId);
     }
 
     @PostMapping
-    public Result<Folder> createFolder(@RequestBody Map<String, Object> payload) {
-        Object userIdObj = payload.get("userId");
+    public Result<Folder> createFolder(@CurrentUser Long userId, @RequestBody Map<String, Object> payload) {
         String name = (String) payload.get("name");
         
-        if (userIdObj == null) {
-            return Result.error(400, "User ID is required");
-        }
         if (name == null || name.trim().isEmpty()) {
             return Result.error(400, "Folder name is required");
         }
         
-        Long userId = Long.valueOf(userIdObj.toString());
         return folderService.createFolder(userId, name);
     }
 
     @PutMapping("/{id}")
-    public Result<Void> updateFolder(@PathVariable String id, @RequestBody Map<String, Object> payload) {
-        Object userIdObj = payload.get("userId");
+    public Result<Void> updateFolder(@PathVariable String id, @CurrentUser Long userId, @RequestBody Map<String, Object> payload) {
         String name = (String) payload.get("name");
         
-        if (userIdObj == null) {
-            return Result.error(400, "User ID is required");
-        }
         if (name == null || name.trim().isEmpty()) {
             return Result.error(400, "Folder name is required");
         }
         
-        Long userId = Long.valueOf(userIdObj.toString());
         return folderService.updateFolder(userId, id, name);
     }
 
     @DeleteMapping("/{id}")
-    public Result<Void> deleteFolder(@PathVariable String id, @RequestParam Long userId) {
+    public Result<Void> deleteFolder(@PathVariable String id, @CurrentUser Long userId) {
         return folderService.deleteFolder(userId, id);
     }
 }
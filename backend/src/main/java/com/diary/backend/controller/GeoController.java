@@ -0,0 +1,45 @@
+package com.diary.backend.controller;
+
+import com.diary.backend.common.Result;
+import com.diary.backend.dto.GeoPlace;
+import com.diary.backend.dto.WeatherReport;
+import com.diary.backend.geo.GeoLookupException;
+import com.diary.backend.service.GeoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/api/geo")
+public class GeoController {
+
+    @Autowired
+    private GeoService geoService;
+
+    @GetMapping("/reverse")
+    public Result<GeoPlace> reverse(@RequestParam double lat, @RequestParam double lon) {
+        return lookup(() -> geoService.reverse(lat, lon));
+    }
+
+    @GetMapping("/search")
+    public Result<List<GeoPlace>> search(@RequestParam String q) {
+        return lookup(() -> geoService.search(q));
+    }
+
+    @GetMapping("/weather")
+    public Result<WeatherReport> weather(@RequestParam double lat, @RequestParam double lon) {
+        return lookup(() -> geoService.currentWeather(lat, lon));
+    }
+
+    private static <T> Result<T> lookup(Supplier<T> call) {
+        try {
+            return Result.success(call.get());
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (GeoLookupException e) {
+            return Result.error(502, e.getMessage());
+        }
+    }
+}
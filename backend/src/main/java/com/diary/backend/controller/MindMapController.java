@@ -1,11 +1,18 @@
 package com.diary.backend.controller;
 
+import com.diary.backend.auth.CurrentUser;
+import com.diary.backend.common.ResourceVersions;
 import com.diary.backend.common.Result;
+import com.diary.backend.common.ResultStreamer;
+import com.diary.backend.dto.BatchGetResult;
 import com.diary.backend.entity.MindMap;
 import com.diary.backend.service.MindMapService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -15,33 +22,60 @@ public class MindMapController {
     @Autowired
     private MindMapService mindMapService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private ResultStreamer resultStreamer;
+
     @GetMapping
-    public Result<List<MindMap>> getMindMaps(@RequestParam Long userId) {
-        return Result.success(mindMapService.getMindMaps(userId));
+    public void getMindMaps(@CurrentUser Long userId, WebRequest webRequest, HttpServletResponse response) throws IOException {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.mindMaps(userId))) {
+            return;
+        }
+        resultStreamer.<MindMap>writeList(response, sink -> mindMapService.streamMindMaps(userId, sink));
+    }
+
+    // GET ?ids=a,b,c (or repeated ids=): up to BatchGets.MAX_IDS of the caller's items in one query
+    @GetMapping("/batch")
+    public Result<BatchGetResult<MindMap>> getBatch(@CurrentUser Long userId, @RequestParam(required = false) List<String> ids) {
+        try {
+            return Result.success(mindMapService.getMindMapsByIds(userId, ids));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
     }
 
     @GetMapping("/{id}")
-    public Result<MindMap> getMindMap(@PathVariable String id) {
-        return Result.success(mindMapService.getMindMap(id));
+    public Result<MindMap> getMindMap(@CurrentUser Long userId, @PathVariable String id, WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.mindMap(id))) {
+            return null;
+        }
+        MindMap mindMap = mindMapService.getMindMap(userId, id);
+        return mindMap == null ? Result.error(404, "Mind map not found") : Result.success(mindMap);
     }
 
     @PostMapping
-    public Result<MindMap> createMindMap(@RequestBody MindMap mindMap) {
-        if (mindMap.getUserId() == null || mindMap.getTitle() == null) {
-            return Result.error(400, "User ID and Title are required");
+    public Result<MindMap> createMindMap(@CurrentUser Long userId, @RequestBody MindMap mindMap) {
+        if (mindMap.getTitle() == null) {
+            return Result.error(400, "Title is required");
         }
-        return Result.success(mindMapService.createMindMap(mindMap.getUserId(), mindMap.getTitle(), mindMap.getContent()));
+        return Result.success(mindMapService.createMindMap(userId, mindMap.getTitle(), mindMap.getContent()));
     }
 
     @PutMapping("/{id}")
-    public Result<Void> updateMindMap(@PathVariable String id, @RequestBody MindMap mindMap) {
-        mindMapService.updateMindMap(id, mindMap.getTitle(), mindMap.getContent());
+    public Result<Void> updateMindMap(@CurrentUser Long userId, @PathVariable String id, @RequestBody MindMap mindMap) {
+        if (!mindMapService.updateMindMap(userId, id, mindMap.getTitle(), mindMap.getContent())) {
+            return Result.error(404, "Mind map not found");
+        }
         return Result.success();
     }
 
     @DeleteMapping("/{id}")
-    public Result<Void> deleteMindMap(@PathVariable String id) {
-        mindMapService.deleteMindMap(id);
+    public Result<Void> deleteMindMap(@CurrentUser Long userId, @PathVariable String id) {
+        if (!mindMapService.deleteMindMap(userId, id)) {
+            return Result.error(404, "Mind map not found");
+        }
         return Result.success();
     }
 }
@@ -0,0 +1,64 @@
+package com.diary.backend.controller;
+
+import com.diary.backend.auth.CurrentUser;
+import com.diary.backend.common.ResourceVersions;
+import com.diary.backend.common.Result;
+import com.diary.backend.dto.NoteBatchRequest;
+import com.diary.backend.dto.NoteBatchResult;
+import com.diary.backend.dto.NoteChanges;
+import com.diary.backend.dto.NotePage;
+import com.diary.backend.service.NoteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/notes")
+public class NoteController {
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @GetMapping
+    public Result<NotePage> listNotes(@CurrentUser Long userId,
+                                      @RequestParam(required = false) String bookId,
+                                      @RequestParam(required = false) String color,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer limit,
+                                      WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.notes(userId))) {
+            return null;
+        }
+        try {
+            return Result.success(noteService.listNotes(userId, bookId, color, from, to, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    @GetMapping("/changes")
+    public Result<NoteChanges> getChanges(@CurrentUser Long userId, @RequestParam(defaultValue = "0") long since,
+                                          @RequestParam(required = false) Integer limit, WebRequest webRequest) {
+        if (resourceVersions.notModified(webRequest, ResourceVersions.notes(userId))) {
+            return null;
+        }
+        return Result.success(noteService.getChanges(userId, since, limit));
+    }
+
+    @PostMapping("/batch")
+    public Result<NoteBatchResult> applyBatch(@CurrentUser Long userId, @RequestBody NoteBatchRequest request) {
+        try {
+            return Result.success(noteService.applyBatch(userId, request));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+}
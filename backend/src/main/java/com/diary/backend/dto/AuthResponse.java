@@ -0,0 +1,13 @@
+package com.diary.backend.dto;
+
+import com.diary.backend.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AuthResponse {
+    private String token; // Send as "Authorization: Bearer <token>"
+    private long expiresAt; // Epoch milliseconds
+    private User user;
+}
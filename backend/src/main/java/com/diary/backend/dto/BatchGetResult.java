@@ -0,0 +1,11 @@
+package com.diary.backend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchGetResult<T> {
+    private List<T> items; // Found items, in request order
+    private List<String> missing; // Requested ids that don't exist or the caller may not read, in request order
+}
@@ -0,0 +1,14 @@
+package com.diary.backend.dto;
+
+import lombok.Data;
+
+@Data
+public class BookSearchHit {
+    private String bookId;
+    private String bookTitle;
+    private Integer spineIndex;
+    private String cfi;
+    private String snippet;
+    private Integer matchStart; // Offset of the match inside snippet
+    private Integer matchLength;
+}
@@ -0,0 +1,15 @@
+package com.diary.backend.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class EntrySummary {
+    private String id;
+    private String title;
+    private LocalDate date;
+    private String mood;
+    private String excerpt; // Start of the content, as in the timeline preview
+    private int yearsAgo;
+}
@@ -0,0 +1,15 @@
+package com.diary.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeoPlace {
+    private String name; // City (or town/district) name for display in an entry
+    private String displayName;
+    private double latitude;
+    private double longitude;
+}
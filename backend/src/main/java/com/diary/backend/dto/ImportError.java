@@ -0,0 +1,13 @@
+package com.diary.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportError {
+    private Integer line; // 1-based line in the NDJSON input, 0 for errors not tied to a record
+    private String message;
+}
@@ -0,0 +1,15 @@
+package com.diary.backend.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportProgress {
+    private boolean done;
+    private int processed; // Records read so far
+    private int imported;
+    private int failed;
+    private List<ImportError> errors = new ArrayList<>(); // Only the errors since the previous progress report
+}
@@ -0,0 +1,13 @@
+package com.diary.backend.dto;
+
+import com.diary.backend.entity.BookNote;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class NoteBatchRequest {
+    private List<BookNote> create = new ArrayList<>();
+    private List<String> delete = new ArrayList<>(); // Note ids
+}
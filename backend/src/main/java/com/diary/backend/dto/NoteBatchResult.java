@@ -0,0 +1,13 @@
+package com.diary.backend.dto;
+
+import com.diary.backend.entity.BookNote;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class NoteBatchResult {
+    private List<BookNote> created; // Same order as the request
+    private List<String> deleted; // Ids that existed and were deleted by this batch
+    private long version; // Latest note version of the user after the batch
+}
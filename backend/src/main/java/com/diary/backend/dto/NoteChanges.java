@@ -0,0 +1,13 @@
+package com.diary.backend.dto;
+
+import com.diary.backend.entity.BookNote;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class NoteChanges {
+    private List<BookNote> changes; // Deleted notes come back as tombstones with deletedAt set
+    private long version; // Pass as since on the next call
+    private boolean hasMore;
+}
@@ -0,0 +1,12 @@
+package com.diary.backend.dto;
+
+import com.diary.backend.entity.BookNote;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class NotePage {
+    private List<BookNote> notes;
+    private String nextCursor; // Null on the last page
+}
@@ -0,0 +1,14 @@
+package com.diary.backend.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class StoryVoteCount {
+    private String entryId;
+    private LocalDate date;
+    private LocalDateTime createdAt;
+    private Integer votes;
+}
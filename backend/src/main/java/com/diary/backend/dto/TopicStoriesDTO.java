@@ -0,0 +1,14 @@
+package com.diary.backend.dto;
+
+import com.diary.backend.entity.DiaryEntry;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class TopicStoriesDTO {
+    private LocalDate date;
+    private List<CommunityEntryDTO> stories; // Ranked by votes
+    private DiaryEntry mySubmission; // The current user's story for this day, if any
+}
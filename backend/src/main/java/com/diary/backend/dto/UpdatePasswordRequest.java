@@ -4,7 +4,6 @@ import lombok.Data;
 
 @Data
 public class UpdatePasswordRequest {
-    private Long userId;
     private String currentPassword;
     private String newPassword;
 }
@@ -4,7 +4,6 @@ import lombok.Data;
 
 @Data
 public class UpdateProfileRequest {
-    private Long id;
     private String name;
     private String email;
 }
@@ -0,0 +1,13 @@
+package com.diary.backend.dto;
+
+import lombok.Data;
+
+@Data
+public class WeatherReport {
+    private double temperature; // °C
+    private double apparentTemperature; // °C
+    private double humidity; // %
+    private double windSpeed; // km/h
+    private int weatherCode; // WMO weather interpretation code
+    private String observedAt; // Local time at the location, ISO-8601
+}
@@ -10,6 +10,9 @@ public class BookNote {
     private String content;
     private String color;
     private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime deletedAt; // Set on tombstones returned by the change feed
+    private Long version;
 
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -25,4 +28,10 @@ public class BookNote {
     public void setColor(String color) { this.color = color; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
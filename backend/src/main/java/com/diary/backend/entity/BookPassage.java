@@ -0,0 +1,12 @@
+package com.diary.backend.entity;
+
+import lombok.Data;
+
+@Data
+public class BookPassage {
+    private String bookId;
+    private Integer seq; // Position in reading order
+    private Integer spineIndex;
+    private String cfi; // epubcfi(...) of the block element the text came from
+    private String content;
+}
@@ -0,0 +1,23 @@
+package com.diary.backend.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class Job {
+    private Long id;
+    private String kind;
+    private String payload;
+    private Integer priority;
+    private String status; // queued, running, done, failed
+    private Integer attempts;
+    private Integer maxAttempts;
+    private LocalDateTime runAt;
+    private LocalDateTime lockedAt;
+    private String lockedBy;
+    private String lastError;
+    private String dedupeKey;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
@@ -1,5 +1,6 @@
 package com.diary.backend.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.time.LocalDateTime;
 
@@ -7,6 +8,7 @@ import java.time.LocalDateTime;
 public class User {
     private Long id;
     private String email;
+    @JsonIgnore
     private String password;
     private String name;
     private LocalDateTime createdAt;
@@ -0,0 +1,131 @@
+package com.diary.backend.epub;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Read-only view of an EPUB (a ZIP) held in memory, built from the central directory so any entry
+ * can be opened directly without walking the archive. Each entry records where its compressed data
+ * starts, which is what lets a single resource be served later straight from the stored bytes.
+ * ZIP64 archives are not supported; EPUBs are far below the 4GB limit.
+ */
+public class EpubArchive {
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+
+    public static final int STORED = 0;
+    public static final int DEFLATED = 8;
+
+    public record Entry(String name, int method, long compressedSize, long size, long dataOffset) {
+    }
+
+    private final byte[] data;
+    private final Map<String, Entry> entries;
+
+    private EpubArchive(byte[] data, Map<String, Entry> entries) {
+        this.data = data;
+        this.entries = entries;
+    }
+
+    public static EpubArchive open(byte[] data) throws EpubException {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int eocd = findEndOfCentralDirectory(buffer);
+        int count = Short.toUnsignedInt(buffer.getShort(eocd + 10));
+        long directoryOffset = Integer.toUnsignedLong(buffer.getInt(eocd + 16));
+
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        // Offsets and lengths come from the file itself: check each against the data (in long, so
+        // nothing can wrap) before using it, or a truncated upload fails with an index error
+        long position = directoryOffset;
+        for (int i = 0; i < count; i++) {
+            if (position + 46 > data.length || buffer.getInt((int) position) != CENTRAL_DIRECTORY_HEADER) {
+                throw new EpubException("Corrupt ZIP central directory");
+            }
+            int header = (int) position;
+            int method = Short.toUnsignedInt(buffer.getShort(header + 10));
+            long compressedSize = Integer.toUnsignedLong(buffer.getInt(header + 20));
+            long size = Integer.toUnsignedLong(buffer.getInt(header + 24));
+            int nameLength = Short.toUnsignedInt(buffer.getShort(header + 28));
+            int extraLength = Short.toUnsignedInt(buffer.getShort(header + 30));
+            int commentLength = Short.toUnsignedInt(buffer.getShort(header + 32));
+            long localHeader = Integer.toUnsignedLong(buffer.getInt(header + 42));
+            if (position + 46 + nameLength + extraLength + commentLength > data.length) {
+                throw new EpubException("Corrupt ZIP central directory");
+            }
+            String name = new String(data, header + 46, nameLength, StandardCharsets.UTF_8);
+
+            // The local header's name/extra lengths may differ from the central directory's
+            if (localHeader + 30 > data.length || buffer.getInt((int) localHeader) != LOCAL_FILE_HEADER) {
+                throw new EpubException("Corrupt ZIP local header for " + name);
+            }
+            long dataOffset = localHeader + 30
+                    + Short.toUnsignedInt(buffer.getShort((int) localHeader + 26))
+                    + Short.toUnsignedInt(buffer.getShort((int) localHeader + 28));
+            if (dataOffset + compressedSize > data.length) {
+                throw new EpubException("ZIP entry " + name + " runs past the end of the file");
+            }
+            if (!name.endsWith("/")) {
+                entries.put(name, new Entry(name, method, compressedSize, size, dataOffset));
+            }
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return new EpubArchive(data, entries);
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer buffer) throws EpubException {
+        // The record is 22 bytes plus a comment of up to 64KB at the very end of the file
+        int last = buffer.limit() - 22;
+        int first = Math.max(0, last - 0xFFFF);
+        for (int i = last; i >= first; i--) {
+            if (buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+                return i;
+            }
+        }
+        throw new EpubException("Not a ZIP file");
+    }
+
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public Entry entry(String name) {
+        return entries.get(name);
+    }
+
+    public InputStream open(String name) throws EpubException {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new EpubException("Missing " + name);
+        }
+        return open(entry);
+    }
+
+    public InputStream open(Entry entry) throws EpubException {
+        InputStream raw = new ByteArrayInputStream(data, (int) entry.dataOffset(), (int) entry.compressedSize());
+        return switch (entry.method()) {
+            case STORED -> raw;
+            case DEFLATED -> new InflaterInputStream(raw, new Inflater(true));
+            default -> throw new EpubException("Unsupported compression method " + entry.method() + " for " + entry.name());
+        };
+    }
+
+    public byte[] read(String name) throws EpubException {
+        try (InputStream in = open(name)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new EpubException("Cannot read " + name + ": " + e.getMessage());
+        }
+    }
+}
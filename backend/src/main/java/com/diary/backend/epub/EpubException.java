@@ -0,0 +1,11 @@
+package com.diary.backend.epub;
+
+/**
+ * The uploaded file is not an EPUB we can read.
+ */
+public class EpubException extends Exception {
+
+    public EpubException(String message) {
+        super(message);
+    }
+}
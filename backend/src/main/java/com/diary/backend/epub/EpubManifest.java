@@ -0,0 +1,182 @@
+package com.diary.backend.epub;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a reader needs to open a book without downloading it: spine order, table of contents, and
+ * for every file in the archive its media type and where its (possibly deflated) bytes sit inside
+ * the stored EPUB, so one resource can be read with a single slice of the blob.
+ * Built once at upload and stored as JSON.
+ */
+public record EpubManifest(String opfPath, List<EpubPackage.SpineItem> spine, List<TocEntry> toc,
+                           Map<String, Resource> resources) {
+
+    public record TocEntry(String label, String path, String fragment, List<TocEntry> children) {
+    }
+
+    public record Resource(String mediaType, int method, long offset, long compressedSize, long size) {
+    }
+
+    private static final String OPS_NAMESPACE = "http://www.idpf.org/2007/ops";
+
+    private static final Map<String, String> MEDIA_TYPES = Map.ofEntries(
+            Map.entry("xhtml", "application/xhtml+xml"), Map.entry("html", "text/html"),
+            Map.entry("css", "text/css"), Map.entry("xml", "application/xml"),
+            Map.entry("opf", "application/oebps-package+xml"), Map.entry("ncx", "application/x-dtbncx+xml"),
+            Map.entry("jpg", "image/jpeg"), Map.entry("jpeg", "image/jpeg"), Map.entry("png", "image/png"),
+            Map.entry("gif", "image/gif"), Map.entry("svg", "image/svg+xml"), Map.entry("webp", "image/webp"),
+            Map.entry("otf", "font/otf"), Map.entry("ttf", "font/ttf"), Map.entry("woff", "font/woff"),
+            Map.entry("woff2", "font/woff2"), Map.entry("js", "text/javascript"));
+
+    public static EpubManifest build(EpubArchive archive, EpubPackage epub) {
+        Map<String, String> declaredTypes = new LinkedHashMap<>();
+        for (EpubPackage.Item item : epub.getManifest().values()) {
+            if (item.mediaType() != null) {
+                declaredTypes.put(item.path(), item.mediaType());
+            }
+        }
+        Map<String, Resource> resources = new LinkedHashMap<>();
+        for (EpubArchive.Entry entry : archive.entries()) {
+            String mediaType = declaredTypes.getOrDefault(entry.name(), guessMediaType(entry.name()));
+            resources.put(entry.name(), new Resource(mediaType, entry.method(), entry.dataOffset(),
+                    entry.compressedSize(), entry.size()));
+        }
+
+        List<TocEntry> toc = List.of();
+        try {
+            if (epub.getTocPath() != null) {
+                toc = readNav(archive, epub.getTocPath());
+            }
+            if (toc.isEmpty() && epub.getNcxPath() != null) {
+                toc = readNcx(archive, epub.getNcxPath());
+            }
+        } catch (EpubException | XMLStreamException | IOException e) {
+            // A broken TOC shouldn't make the book unreadable; the spine still gives the order
+            toc = List.of();
+        }
+        return new EpubManifest(epub.getOpfPath(), epub.getSpine(), toc, resources);
+    }
+
+    private static String guessMediaType(String name) {
+        int dot = name.lastIndexOf('.');
+        String extension = dot >= 0 ? name.substring(dot + 1).toLowerCase() : "";
+        return MEDIA_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    // EPUB 3 navigation document: <nav epub:type="toc"><ol><li><a href>label</a><ol>...</ol></li></ol></nav>
+    private static List<TocEntry> readNav(EpubArchive archive, String path) throws EpubException, XMLStreamException, IOException {
+        List<TocEntry> roots = new ArrayList<>();
+        try (InputStream in = archive.open(path)) {
+            XMLStreamReader reader = EpubPackage.newInputFactory().createXMLStreamReader(in);
+            int navDepth = 0;
+            int depth = 0;
+            Deque<MutableEntry> open = new ArrayDeque<>();
+            StringBuilder label = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (navDepth == 0) {
+                        String type = reader.getAttributeValue(OPS_NAMESPACE, "type");
+                        if ("nav".equals(name) && type != null && List.of(type.split("\\s+")).contains("toc")) {
+                            navDepth = depth;
+                        }
+                    } else if ("li".equals(name)) {
+                        open.push(new MutableEntry());
+                    } else if (("a".equals(name) || "span".equals(name)) && !open.isEmpty() && open.peek().label == null) {
+                        String href = reader.getAttributeValue(null, "href");
+                        if (href != null) {
+                            open.peek().path = EpubPackage.resolve(path, href);
+                            open.peek().fragment = fragment(href);
+                        }
+                        label = new StringBuilder();
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS && label != null) {
+                    label.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (navDepth > 0) {
+                        if (("a".equals(name) || "span".equals(name)) && label != null) {
+                            open.peek().label = label.toString().replaceAll("\\s+", " ").trim();
+                            label = null;
+                        } else if ("li".equals(name) && !open.isEmpty()) {
+                            TocEntry entry = open.pop().toEntry();
+                            (open.isEmpty() ? roots : open.peek().children).add(entry);
+                        }
+                        if (depth == navDepth) {
+                            break;
+                        }
+                    }
+                    depth--;
+                }
+            }
+        }
+        return roots;
+    }
+
+    // EPUB 2 NCX: <navPoint><navLabel><text>label</text></navLabel><content src/>...nested navPoints</navPoint>
+    private static List<TocEntry> readNcx(EpubArchive archive, String path) throws EpubException, XMLStreamException, IOException {
+        List<TocEntry> roots = new ArrayList<>();
+        try (InputStream in = archive.open(path)) {
+            XMLStreamReader reader = EpubPackage.newInputFactory().createXMLStreamReader(in);
+            Deque<MutableEntry> open = new ArrayDeque<>();
+            StringBuilder label = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("navPoint".equals(name)) {
+                        open.push(new MutableEntry());
+                    } else if ("text".equals(name) && !open.isEmpty() && open.peek().label == null) {
+                        label = new StringBuilder();
+                    } else if ("content".equals(name) && !open.isEmpty()) {
+                        String src = reader.getAttributeValue(null, "src");
+                        if (src != null) {
+                            open.peek().path = EpubPackage.resolve(path, src);
+                            open.peek().fragment = fragment(src);
+                        }
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS && label != null) {
+                    label.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("text".equals(name) && label != null) {
+                        open.peek().label = label.toString().replaceAll("\\s+", " ").trim();
+                        label = null;
+                    } else if ("navPoint".equals(name) && !open.isEmpty()) {
+                        TocEntry entry = open.pop().toEntry();
+                        (open.isEmpty() ? roots : open.peek().children).add(entry);
+                    }
+                }
+            }
+        }
+        return roots;
+    }
+
+    private static String fragment(String href) {
+        int hash = href.indexOf('#');
+        return hash >= 0 ? href.substring(hash + 1) : null;
+    }
+
+    private static final class MutableEntry {
+        String label;
+        String path;
+        String fragment;
+        final List<TocEntry> children = new ArrayList<>();
+
+        TocEntry toEntry() {
+            return new TocEntry(label, path, fragment, children);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.diary.backend.epub;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of an EPUB package document (OPF) the server needs: the manifest, the reading order
+ * (spine) and where the table of contents lives. Paths are resolved to archive entry names.
+ */
+public class EpubPackage {
+
+    public record Item(String id, String path, String mediaType, String properties) {
+    }
+
+    // step is the itemref's CFI step within the spine element
+    public record SpineItem(String idref, String path, String mediaType, boolean linear, int step) {
+    }
+
+    private final String opfPath;
+    private final Map<String, Item> manifest;
+    private final List<SpineItem> spine;
+    private final int spineStep;
+    private final String tocPath;
+    private final String ncxPath;
+
+    private EpubPackage(String opfPath, Map<String, Item> manifest, List<SpineItem> spine, int spineStep,
+                        String tocPath, String ncxPath) {
+        this.opfPath = opfPath;
+        this.manifest = manifest;
+        this.spine = spine;
+        this.spineStep = spineStep;
+        this.tocPath = tocPath;
+        this.ncxPath = ncxPath;
+    }
+
+    public static EpubPackage read(EpubArchive archive) throws EpubException {
+        String opfPath = findRootFile(archive);
+        Map<String, Item> manifest = new HashMap<>();
+        List<String[]> itemrefs = new ArrayList<>();
+        String spineToc = null;
+        int spineStep = 6;
+
+        try (InputStream in = archive.open(opfPath)) {
+            XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+            int depth = 0;
+            int packageChildren = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (depth == 2) {
+                        packageChildren++;
+                    }
+                    if ("item".equals(name)) {
+                        String id = reader.getAttributeValue(null, "id");
+                        String href = reader.getAttributeValue(null, "href");
+                        if (id != null && href != null) {
+                            manifest.put(id, new Item(id, resolve(opfPath, href),
+                                    reader.getAttributeValue(null, "media-type"), reader.getAttributeValue(null, "properties")));
+                        }
+                    } else if ("spine".equals(name) && depth == 2) {
+                        // Step of the spine element in the package document, the first step of every CFI
+                        spineStep = packageChildren * 2;
+                        spineToc = reader.getAttributeValue(null, "toc");
+                    } else if ("itemref".equals(name)) {
+                        itemrefs.add(new String[]{reader.getAttributeValue(null, "idref"), reader.getAttributeValue(null, "linear")});
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        } catch (XMLStreamException | IOException e) {
+            throw new EpubException("Cannot parse " + opfPath + ": " + e.getMessage());
+        }
+
+        List<SpineItem> spine = new ArrayList<>(itemrefs.size());
+        for (int i = 0; i < itemrefs.size(); i++) {
+            String[] itemref = itemrefs.get(i);
+            Item item = manifest.get(itemref[0]);
+            if (item != null) {
+                spine.add(new SpineItem(itemref[0], item.path(), item.mediaType(), !"no".equals(itemref[1]), (i + 1) * 2));
+            }
+        }
+        if (spine.isEmpty()) {
+            throw new EpubException("Empty spine");
+        }
+
+        String tocPath = null;
+        for (Item item : manifest.values()) {
+            if (item.properties() != null && List.of(item.properties().split("\\s+")).contains("nav")) {
+                tocPath = item.path();
+            }
+        }
+        Item ncx = spineToc == null ? null : manifest.get(spineToc);
+        return new EpubPackage(opfPath, manifest, spine, spineStep, tocPath, ncx == null ? null : ncx.path());
+    }
+
+    private static String findRootFile(EpubArchive archive) throws EpubException {
+        try (InputStream in = archive.open("META-INF/container.xml")) {
+            XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "rootfile".equals(reader.getLocalName())) {
+                    String path = reader.getAttributeValue(null, "full-path");
+                    if (path != null && archive.entry(path) != null) {
+                        return path;
+                    }
+                }
+            }
+        } catch (XMLStreamException | IOException e) {
+            throw new EpubException("Cannot parse META-INF/container.xml: " + e.getMessage());
+        }
+        throw new EpubException("No package document");
+    }
+
+    /**
+     * Resolves an href found in the document at {@code basePath} to an archive entry name,
+     * dropping any fragment.
+     */
+    public static String resolve(String basePath, String href) {
+        int hash = href.indexOf('#');
+        String path = URLDecoder.decode(hash >= 0 ? href.substring(0, hash) : href, StandardCharsets.UTF_8);
+        if (path.isEmpty()) {
+            return basePath;
+        }
+        int slash = basePath.lastIndexOf('/');
+        String base = slash >= 0 ? basePath.substring(0, slash + 1) : "";
+        ArrayDeque<String> segments = new ArrayDeque<>();
+        for (String segment : (path.startsWith("/") ? path.substring(1) : base + path).split("/")) {
+            if ("..".equals(segment)) {
+                segments.pollLast();
+            } else if (!segment.isEmpty() && !".".equals(segment)) {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    // EPUB documents are XHTML without reachable DTDs: never resolve them, and report entity references
+    static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+
+    public String getOpfPath() {
+        return opfPath;
+    }
+
+    public Map<String, Item> getManifest() {
+        return Collections.unmodifiableMap(manifest);
+    }
+
+    public List<SpineItem> getSpine() {
+        return Collections.unmodifiableList(spine);
+    }
+
+    public int getSpineStep() {
+        return spineStep;
+    }
+
+    public String getTocPath() {
+        return tocPath;
+    }
+
+    public String getNcxPath() {
+        return ncxPath;
+    }
+}
@@ -0,0 +1,142 @@
+package com.diary.backend.epub;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Walks the spine in reading order and streams each chapter through StAX, emitting the text of
+ * every block-level element (paragraph, heading, list item...) together with an EPUB CFI that
+ * points at that element. Chapters are never held in memory as a DOM.
+ */
+public final class EpubTextExtractor {
+
+    public record Passage(int spineIndex, String cfi, String text) {
+    }
+
+    // Longer blocks are split so each indexed row stays small
+    private static final int MAX_PASSAGE_LENGTH = 4000;
+
+    private static final Set<String> BLOCKS = Set.of("body", "p", "div", "section", "article", "aside",
+            "h1", "h2", "h3", "h4", "h5", "h6", "li", "dt", "dd", "blockquote", "pre", "td", "th",
+            "caption", "figcaption");
+    private static final Set<String> SKIPPED = Set.of("head", "script", "style");
+    private static final Map<String, String> ENTITIES = Map.of("nbsp", " ", "mdash", "—", "ndash", "–",
+            "hellip", "…", "lsquo", "‘", "rsquo", "’", "ldquo", "“", "rdquo", "”",
+            "shy", "");
+
+    private EpubTextExtractor() {
+    }
+
+    /**
+     * Returns the number of chapters that could not be parsed; their text is skipped.
+     */
+    public static int extract(EpubArchive archive, EpubPackage epub, Consumer<Passage> sink) {
+        int failed = 0;
+        for (int i = 0; i < epub.getSpine().size(); i++) {
+            EpubPackage.SpineItem item = epub.getSpine().get(i);
+            // The navigation document is often in the spine too; its text is the TOC, not the book
+            if (item.mediaType() != null && !item.mediaType().contains("html") || item.path().equals(epub.getTocPath())) {
+                continue;
+            }
+            String prefix = "/" + epub.getSpineStep() + "/" + item.step() + "[" + item.idref() + "]!";
+            try (InputStream in = archive.open(item.path())) {
+                extractChapter(in, i, prefix, sink);
+            } catch (EpubException | XMLStreamException | IOException e) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private static final class Element {
+        final String name;
+        final String path;
+        int children;
+        final StringBuilder text;
+
+        Element(String name, String path, boolean block) {
+            this.name = name;
+            this.path = path;
+            this.text = block ? new StringBuilder() : null;
+        }
+    }
+
+    private static void extractChapter(InputStream in, int spineIndex, String cfiPrefix, Consumer<Passage> sink)
+            throws XMLStreamException {
+        XMLStreamReader reader = EpubPackage.newInputFactory().createXMLStreamReader(in);
+        Deque<Element> stack = new ArrayDeque<>();
+        Deque<Element> blocks = new ArrayDeque<>();
+        int skipping = 0;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    String name = reader.getLocalName().toLowerCase();
+                    String path = "";
+                    Element parent = stack.peek();
+                    if (parent != null) {
+                        parent.children++;
+                        String id = reader.getAttributeValue(null, "id");
+                        path = parent.path + "/" + parent.children * 2 + (id == null ? "" : "[" + id + "]");
+                    }
+                    boolean block = parent != null && BLOCKS.contains(name);
+                    Element element = new Element(name, path, block);
+                    stack.push(element);
+                    if (SKIPPED.contains(name)) {
+                        skipping++;
+                    }
+                    if (block) {
+                        // Keep reading order: text the enclosing block collected so far comes first
+                        if (!blocks.isEmpty()) {
+                            emit(blocks.peek(), spineIndex, cfiPrefix, sink);
+                        }
+                        blocks.push(element);
+                    } else if ("br".equals(name) && !blocks.isEmpty()) {
+                        blocks.peek().text.append(' ');
+                    }
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    Element element = stack.pop();
+                    if (SKIPPED.contains(element.name)) {
+                        skipping--;
+                    }
+                    if (element.text != null) {
+                        emit(element, spineIndex, cfiPrefix, sink);
+                        blocks.pop();
+                    }
+                }
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (skipping == 0 && !blocks.isEmpty()) {
+                        blocks.peek().text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                }
+                case XMLStreamConstants.ENTITY_REFERENCE -> {
+                    if (skipping == 0 && !blocks.isEmpty()) {
+                        blocks.peek().text.append(ENTITIES.getOrDefault(reader.getLocalName(), " "));
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static void emit(Element block, int spineIndex, String cfiPrefix, Consumer<Passage> sink) {
+        String text = block.text.toString().replaceAll("\\s+", " ").trim();
+        block.text.setLength(0);
+        if (text.isEmpty()) {
+            return;
+        }
+        String cfi = "epubcfi(" + cfiPrefix + block.path + ")";
+        for (int start = 0; start < text.length(); start += MAX_PASSAGE_LENGTH) {
+            sink.accept(new Passage(spineIndex, cfi, text.substring(start, Math.min(text.length(), start + MAX_PASSAGE_LENGTH))));
+        }
+    }
+}
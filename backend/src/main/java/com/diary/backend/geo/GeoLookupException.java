@@ -0,0 +1,11 @@
+package com.diary.backend.geo;
+
+/**
+ * The geocoding or weather service could not be reached or gave an unusable answer.
+ */
+public class GeoLookupException extends RuntimeException {
+
+    public GeoLookupException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,22 @@
+package com.diary.backend.geo;
+
+import com.diary.backend.dto.GeoPlace;
+import com.diary.backend.dto.WeatherReport;
+
+import java.util.List;
+
+/**
+ * Where location and weather lookups for new entries come from. Selected with diary.geo.provider;
+ * implementations throw {@link GeoLookupException} when the upstream service fails.
+ */
+public interface GeoProvider {
+
+    /**
+     * Returns null when nothing is known at that point (e.g. open sea).
+     */
+    GeoPlace reverse(double latitude, double longitude);
+
+    List<GeoPlace> search(String query, int limit);
+
+    WeatherReport currentWeather(double latitude, double longitude);
+}
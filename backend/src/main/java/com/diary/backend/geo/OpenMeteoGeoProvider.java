@@ -0,0 +1,138 @@
+package com.diary.backend.geo;
+
+import com.diary.backend.dto.GeoPlace;
+import com.diary.backend.dto.WeatherReport;
+import com.diary.backend.ratelimit.StripedTokenBuckets;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nominatim (OpenStreetMap) for place names and Open-Meteo for current weather, the same services
+ * the write page used to call from the browser. Nominatim's usage policy asks for an identifying
+ * User-Agent and at most one request per second. Now that every cache miss leaves from this
+ * server, Nominatim calls go through a token bucket (diary.geo.nominatim-rate-per-second, per
+ * instance); a call that would have to wait longer than diary.geo.nominatim-max-wait-ms fails
+ * with a GeoLookupException instead of queueing.
+ */
+@Component
+@ConditionalOnProperty(name = "diary.geo.provider", havingValue = "open-meteo", matchIfMissing = true)
+public class OpenMeteoGeoProvider implements GeoProvider {
+
+    private static final String CURRENT_FIELDS = "temperature_2m,weather_code,relative_humidity_2m,apparent_temperature,wind_speed_10m";
+
+    private final RestClient nominatim;
+    private final RestClient openMeteo;
+    private final String language;
+    private final StripedTokenBuckets nominatimRate;
+    private final long nominatimMaxWaitNanos;
+
+    public OpenMeteoGeoProvider(@Value("${diary.geo.nominatim-url:https://nominatim.openstreetmap.org}") String nominatimUrl,
+                                @Value("${diary.geo.open-meteo-url:https://api.open-meteo.com}") String openMeteoUrl,
+                                @Value("${diary.geo.user-agent:diary-backend}") String userAgent,
+                                @Value("${diary.geo.language:zh-CN}") String language,
+                                @Value("${diary.geo.timeout-ms:5000}") int timeoutMs,
+                                @Value("${diary.geo.nominatim-rate-per-second:1}") double nominatimRatePerSecond,
+                                @Value("${diary.geo.nominatim-max-wait-ms:2000}") long nominatimMaxWaitMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofMillis(timeoutMs));
+        requestFactory.setReadTimeout(Duration.ofMillis(timeoutMs));
+        this.nominatim = RestClient.builder().baseUrl(nominatimUrl).requestFactory(requestFactory)
+                .defaultHeader("User-Agent", userAgent).build();
+        this.openMeteo = RestClient.builder().baseUrl(openMeteoUrl).requestFactory(requestFactory)
+                .defaultHeader("User-Agent", userAgent).build();
+        this.language = language;
+        this.nominatimRate = new StripedTokenBuckets(1, nominatimRatePerSecond, 1);
+        this.nominatimMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(nominatimMaxWaitMs);
+    }
+
+    @Override
+    public GeoPlace reverse(double latitude, double longitude) {
+        throttleNominatim();
+        JsonNode body = get(nominatim, "/reverse?format=json&lat={lat}&lon={lon}&zoom=10&accept-language={lang}",
+                latitude, longitude, language);
+        if (body.has("error")) {
+            return null;
+        }
+        JsonNode address = body.path("address");
+        String name = firstText(address, "city", "town", "district", "county", "state");
+        return new GeoPlace(name, body.path("display_name").asText(name), latitude, longitude);
+    }
+
+    @Override
+    public List<GeoPlace> search(String query, int limit) {
+        throttleNominatim();
+        JsonNode body = get(nominatim, "/search?q={q}&format=json&limit={limit}&accept-language={lang}",
+                query, limit, language);
+        List<GeoPlace> places = new ArrayList<>();
+        for (JsonNode hit : body) {
+            String displayName = hit.path("display_name").asText();
+            String name = hit.path("name").asText("");
+            places.add(new GeoPlace(name.isEmpty() ? displayName.split(",")[0] : name, displayName,
+                    hit.path("lat").asDouble(), hit.path("lon").asDouble()));
+        }
+        return places;
+    }
+
+    @Override
+    public WeatherReport currentWeather(double latitude, double longitude) {
+        JsonNode current = get(openMeteo, "/v1/forecast?latitude={lat}&longitude={lon}&current={fields}&timezone=auto",
+                latitude, longitude, CURRENT_FIELDS).path("current");
+        if (!current.has("weather_code")) {
+            throw new GeoLookupException("Weather service returned no current conditions", null);
+        }
+        WeatherReport report = new WeatherReport();
+        report.setTemperature(current.path("temperature_2m").asDouble());
+        report.setApparentTemperature(current.path("apparent_temperature").asDouble());
+        report.setHumidity(current.path("relative_humidity_2m").asDouble());
+        report.setWindSpeed(current.path("wind_speed_10m").asDouble());
+        report.setWeatherCode(current.path("weather_code").asInt());
+        report.setObservedAt(current.path("time").asText(null));
+        return report;
+    }
+
+    private void throttleNominatim() {
+        long wait = nominatimRate.acquire(0, nominatimMaxWaitNanos);
+        if (wait < 0) {
+            throw new GeoLookupException("Place lookups are busy, try again shortly", null);
+        }
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GeoLookupException("Interrupted while waiting for a place lookup", e);
+            }
+        }
+    }
+
+    private static JsonNode get(RestClient client, String uri, Object... variables) {
+        try {
+            JsonNode body = client.get().uri(uri, variables).retrieve().body(JsonNode.class);
+            if (body == null) {
+                throw new GeoLookupException("Empty response from " + uri, null);
+            }
+            return body;
+        } catch (RestClientException e) {
+            throw new GeoLookupException("Lookup failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static String firstText(JsonNode node, String... fields) {
+        for (String field : fields) {
+            if (node.hasNonNull(field)) {
+                return node.get(field).asText();
+            }
+        }
+        return "Unknown Location";
+    }
+}
@@ -0,0 +1,44 @@
+package com.diary.backend.geo;
+
+import com.diary.backend.dto.GeoPlace;
+import com.diary.backend.dto.WeatherReport;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Offline provider for tests, load tests and development without network access
+ * (diary.geo.provider=stub). Answers are made up but stable for the same input.
+ */
+@Component
+@ConditionalOnProperty(name = "diary.geo.provider", havingValue = "stub")
+public class StubGeoProvider implements GeoProvider {
+
+    @Override
+    public GeoPlace reverse(double latitude, double longitude) {
+        String name = String.format("Stub City %.1f,%.1f", latitude, longitude);
+        return new GeoPlace(name, name, latitude, longitude);
+    }
+
+    @Override
+    public List<GeoPlace> search(String query, int limit) {
+        double latitude = Math.floorMod(query.hashCode(), 180) - 90;
+        double longitude = Math.floorMod(query.hashCode() / 180, 360) - 180;
+        return List.of(new GeoPlace(query, query + ", Stub Country", latitude, longitude));
+    }
+
+    @Override
+    public WeatherReport currentWeather(double latitude, double longitude) {
+        WeatherReport report = new WeatherReport();
+        report.setTemperature(Math.round(30 - Math.abs(latitude) / 2));
+        report.setApparentTemperature(report.getTemperature() - 1);
+        report.setHumidity(60);
+        report.setWindSpeed(10);
+        report.setWeatherCode(0);
+        report.setObservedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).toString());
+        return report;
+    }
+}
@@ -0,0 +1,45 @@
+package com.diary.backend.jobs;
+
+import com.diary.backend.entity.Book;
+import com.diary.backend.mapper.BookMapper;
+import com.diary.backend.service.BookManifestService;
+import com.diary.backend.service.BookSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Parses a freshly uploaded EPUB: builds its reading manifest and its search index. Until this
+ * has run, both are built on demand by the first reader or search, so nothing breaks if the
+ * queue is behind.
+ */
+@Component
+public class BookProcessingJob implements JobHandler {
+
+    public static final String KIND = "book.process";
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private BookManifestService bookManifestService;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Override
+    public String kind() {
+        return KIND;
+    }
+
+    @Override
+    public void run(String bookId) {
+        Book book = bookMapper.findById(bookId);
+        if (book == null) {
+            // Deleted before we got to it
+            return;
+        }
+        byte[] data = book.getFileData() == null ? new byte[0] : book.getFileData();
+        bookManifestService.buildManifest(bookId, data);
+        bookSearchService.indexBook(bookId, data);
+    }
+}
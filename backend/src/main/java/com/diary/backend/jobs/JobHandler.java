@@ -0,0 +1,13 @@
+package com.diary.backend.jobs;
+
+/**
+ * Runs one kind of background job. Implementations are Spring beans and are picked up by the
+ * {@link JobWorker} automatically. A job may run more than once (a retry after an exception, or
+ * after its worker died mid-run), so run() must be safe to repeat.
+ */
+public interface JobHandler {
+
+    String kind();
+
+    void run(String payload) throws Exception;
+}
@@ -0,0 +1,48 @@
+package com.diary.backend.jobs;
+
+import com.diary.backend.mapper.JobMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes finished jobs after diary.jobs.retention-days. Every instance schedules it, the dedupe
+ * key makes sure only one copy is queued at a time.
+ */
+@Component
+public class JobPurgeJob implements JobHandler {
+
+    public static final String KIND = "jobs.purge";
+
+    private static final Logger log = LoggerFactory.getLogger(JobPurgeJob.class);
+
+    @Autowired
+    private JobMapper jobMapper;
+
+    @Autowired
+    private JobQueue jobQueue;
+
+    @Value("${diary.jobs.retention-days:7}")
+    private int retentionDays;
+
+    @Override
+    public String kind() {
+        return KIND;
+    }
+
+    @Scheduled(initialDelayString = "${diary.jobs.purge-interval-ms:3600000}", fixedDelayString = "${diary.jobs.purge-interval-ms:3600000}")
+    public void schedule() {
+        jobQueue.enqueueUnique(KIND, null, JobQueue.PRIORITY_LOW, KIND);
+    }
+
+    @Override
+    public void run(String payload) {
+        int deleted = jobMapper.deleteFinishedBefore(retentionDays);
+        if (deleted > 0) {
+            log.info("Purged {} finished job(s) older than {} days", deleted, retentionDays);
+        }
+    }
+}
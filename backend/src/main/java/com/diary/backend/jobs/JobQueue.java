@@ -0,0 +1,56 @@
+package com.diary.backend.jobs;
+
+import com.diary.backend.common.AfterCommit;
+import com.diary.backend.entity.Job;
+import com.diary.backend.mapper.JobMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+/**
+ * Enqueues background jobs. The row is written in the caller's transaction, so a job exists
+ * exactly when the change that asked for it was committed.
+ */
+@Service
+public class JobQueue {
+
+    public static final int PRIORITY_HIGH = 10;
+    public static final int PRIORITY_NORMAL = 100;
+    public static final int PRIORITY_LOW = 1000;
+
+    @Autowired
+    private JobMapper jobMapper;
+
+    // Lazy: the worker depends on the handlers, which enqueue through this class
+    @Autowired
+    @Lazy
+    private JobWorker jobWorker;
+
+    @Value("${diary.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    public void enqueue(String kind, String payload, int priority) {
+        insert(kind, payload, priority, null);
+    }
+
+    /**
+     * Skipped when an unfinished job with the same key exists, e.g. on another instance.
+     */
+    public void enqueueUnique(String kind, String payload, int priority, String dedupeKey) {
+        insert(kind, payload, priority, dedupeKey);
+    }
+
+    private void insert(String kind, String payload, int priority, String dedupeKey) {
+        Job job = new Job();
+        job.setKind(kind);
+        job.setPayload(payload);
+        job.setPriority(priority);
+        job.setMaxAttempts(maxAttempts);
+        job.setDedupeKey(dedupeKey);
+        if (jobMapper.insert(job) > 0) {
+            // Don't make the job wait for the next poll
+            AfterCommit.run(jobWorker::wake);
+        }
+    }
+}
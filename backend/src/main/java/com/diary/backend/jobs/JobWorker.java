@@ -0,0 +1,225 @@
+package com.diary.backend.jobs;
+
+import com.diary.backend.entity.Job;
+import com.diary.backend.mapper.JobMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs queued jobs on a small fixed pool. One poller thread claims as many due jobs as there are
+ * idle workers (FOR UPDATE SKIP LOCKED, so several instances can share the table) and sleeps
+ * until the next poll or until a local enqueue wakes it. A failed job is retried with
+ * exponential backoff and jitter until it runs out of attempts; a job whose worker died is
+ * handed out again once its lease expires.
+ */
+@Component
+public class JobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(JobWorker.class);
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final JobMapper jobMapper;
+    private final Map<String, JobHandler> handlers = new HashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int threads;
+    private final long pollMs;
+    private final long leaseSeconds;
+    private final long retryBaseSeconds;
+    private final long retryMaxSeconds;
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final Semaphore idle;
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicInteger active = new AtomicInteger();
+    private ExecutorService pool;
+    private Thread poller;
+    private volatile boolean running;
+    private long lastLeaseCheck;
+
+    public JobWorker(JobMapper jobMapper, List<JobHandler> handlerBeans, MeterRegistry meterRegistry,
+                     @Value("${diary.jobs.enabled:true}") boolean enabled,
+                     @Value("${diary.jobs.threads:2}") int threads,
+                     @Value("${diary.jobs.poll-ms:2000}") long pollMs,
+                     @Value("${diary.jobs.lease-minutes:30}") long leaseMinutes,
+                     @Value("${diary.jobs.retry-base-seconds:10}") long retryBaseSeconds,
+                     @Value("${diary.jobs.retry-max-seconds:3600}") long retryMaxSeconds) {
+        this.jobMapper = jobMapper;
+        for (JobHandler handler : handlerBeans) {
+            handlers.put(handler.kind(), handler);
+        }
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.threads = Math.max(1, threads);
+        this.pollMs = pollMs;
+        this.leaseSeconds = TimeUnit.MINUTES.toSeconds(leaseMinutes);
+        this.retryBaseSeconds = retryBaseSeconds;
+        this.retryMaxSeconds = retryMaxSeconds;
+        this.idle = new Semaphore(this.threads);
+        Gauge.builder("diary.jobs.active", active, AtomicInteger::get)
+                .description("Background jobs running on this instance")
+                .register(meterRegistry);
+        Gauge.builder("diary.jobs.queued", jobMapper, JobMapper::countQueued)
+                .description("Jobs waiting in the queue, all instances")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        lastLeaseCheck = System.nanoTime() - TimeUnit.MINUTES.toNanos(1);
+        AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, "job-worker-" + count.incrementAndGet()));
+        poller = new Thread(this::poll, "job-poller");
+        poller.setDaemon(true);
+        poller.start();
+        log.info("Job worker {} started with {} thread(s) for {}", workerId, threads, handlers.keySet());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (poller != null) {
+            poller.interrupt();
+        }
+        if (pool != null) {
+            // Jobs cut off here are picked up again when their lease runs out
+            pool.shutdown();
+            pool.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Asks the poller to look for work now instead of at the next interval.
+     */
+    public void wake() {
+        wakeups.release();
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                requeueExpiredLeases();
+                int free = idle.availablePermits();
+                List<Job> jobs = free == 0 ? List.of() : jobMapper.claim(workerId, free);
+                for (Job job : jobs) {
+                    idle.acquire();
+                    active.incrementAndGet();
+                    pool.execute(() -> {
+                        try {
+                            execute(job);
+                        } finally {
+                            active.decrementAndGet();
+                            idle.release();
+                        }
+                    });
+                }
+                // A full batch suggests there is more waiting; otherwise sleep until woken
+                if (jobs.isEmpty() || jobs.size() < free) {
+                    wakeups.tryAcquire(pollMs, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                } else {
+                    idle.acquire();
+                    idle.release();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Job poll failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void execute(Job job) {
+        JobHandler handler = handlers.get(job.getKind());
+        if (handler == null) {
+            jobMapper.markFailed(job.getId(), "No handler for job kind " + job.getKind());
+            outcome(job, "failed");
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            handler.run(job.getPayload());
+            jobMapper.markDone(job.getId());
+            outcome(job, "done");
+        } catch (Exception e) {
+            String error = truncate(e.toString());
+            if (job.getAttempts() >= job.getMaxAttempts()) {
+                log.error("Job {} ({}) failed for good after {} attempts", job.getId(), job.getKind(), job.getAttempts(), e);
+                jobMapper.markFailed(job.getId(), error);
+                outcome(job, "failed");
+            } else {
+                long delay = backoffSeconds(job.getAttempts());
+                log.warn("Job {} ({}) failed, attempt {} of {}, retrying in {}s: {}", job.getId(), job.getKind(),
+                        job.getAttempts(), job.getMaxAttempts(), delay, error);
+                jobMapper.reschedule(job.getId(), delay, error);
+                outcome(job, "retry");
+            }
+        } finally {
+            sample.stop(Timer.builder("diary.jobs.duration")
+                    .description("Time spent running background jobs")
+                    .tag("kind", job.getKind())
+                    .register(meterRegistry));
+        }
+    }
+
+    private void requeueExpiredLeases() {
+        long now = System.nanoTime();
+        if (now - lastLeaseCheck < TimeUnit.MINUTES.toNanos(1)) {
+            return;
+        }
+        lastLeaseCheck = now;
+        int requeued = jobMapper.requeueExpired(leaseSeconds);
+        if (requeued > 0) {
+            log.warn("Requeued {} job(s) whose worker stopped responding", requeued);
+        }
+    }
+
+    // base * 2^(attempt-1), capped, with up to 20% jitter so failed jobs don't retry in lockstep
+    private long backoffSeconds(int attempt) {
+        long delay = Math.min(retryMaxSeconds, retryBaseSeconds << Math.min(attempt - 1, 20));
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    private void outcome(Job job, String outcome) {
+        Counter.builder("diary.jobs.completed")
+                .description("Background job runs by outcome")
+                .tag("kind", job.getKind())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,161 @@
+package com.diary.backend.jobs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of likes, votes and comments (see partitioning.sql) ahead of time:
+ * the current month and the next diary.partitioning.premake-months get a partition, created as a
+ * plain table and then attached so the parent is never locked exclusively. Rows that landed in the
+ * default partition for such a month are moved over first. With diary.partitioning.detach-after-months
+ * set, partitions for older months are detached and left in place as standalone tables for
+ * archiving or dropping. Months are those of the entries, so a detach hides the likes, votes and
+ * comments of every entry written in that month, live or not, and reactions added to those entries
+ * later go to the default partition, which is never emptied for a detached month.
+ */
+@Component
+@ConditionalOnProperty(name = "diary.partitioning.enabled", havingValue = "true")
+public class PartitionMaintenanceJob implements JobHandler {
+
+    public static final String KIND = "partitions.maintain";
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceJob.class);
+
+    private static final List<String> MONTHLY_TABLES = List.of("likes", "votes", "comments");
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile("_p(\\d{4})_(\\d{2})$");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'_p'yyyy_MM");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JobQueue jobQueue;
+
+    @Value("${diary.partitioning.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${diary.partitioning.detach-after-months:0}")
+    private int detachAfterMonths;
+
+    @Override
+    public String kind() {
+        return KIND;
+    }
+
+    @Scheduled(initialDelay = 60_000, fixedDelayString = "${diary.partitioning.interval-ms:21600000}")
+    public void schedule() {
+        jobQueue.enqueueUnique(KIND, null, JobQueue.PRIORITY_LOW, KIND);
+    }
+
+    @Override
+    public void run(String payload) throws SQLException {
+        YearMonth now = YearMonth.now();
+        try (Connection connection = dataSource.getConnection()) {
+            for (String table : MONTHLY_TABLES) {
+                if (!isPartitioned(connection, table)) {
+                    log.warn("{} is not partitioned; run partitioning.sql or turn off diary.partitioning.enabled", table);
+                    continue;
+                }
+                TreeSet<YearMonth> existing = monthlyPartitions(connection, table);
+                for (int i = 0; i <= premakeMonths; i++) {
+                    YearMonth month = now.plusMonths(i);
+                    if (!existing.contains(month)) {
+                        attach(connection, table, month);
+                    }
+                }
+                if (detachAfterMonths > 0) {
+                    YearMonth oldest = now.minusMonths(detachAfterMonths);
+                    for (YearMonth month : existing.headSet(oldest)) {
+                        detach(connection, table, month);
+                    }
+                }
+            }
+        }
+    }
+
+    private void attach(Connection connection, String table, YearMonth month) throws SQLException {
+        String partition = table + month.format(SUFFIX);
+        String from = "'" + month.atDay(1) + "'";
+        String to = "'" + month.plusMonths(1).atDay(1) + "'";
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + partition + " (LIKE " + table + " INCLUDING DEFAULTS)");
+            if (exists(connection, table + "_default")) {
+                statement.execute("WITH moved AS (DELETE FROM " + table + "_default WHERE entry_created_at >= " + from
+                        + " AND entry_created_at < " + to + " RETURNING *) INSERT INTO " + partition + " SELECT * FROM moved");
+            }
+            statement.execute("ALTER TABLE " + table + " ATTACH PARTITION " + partition
+                    + " FOR VALUES FROM (" + from + ") TO (" + to + ")");
+            connection.commit();
+            log.info("Attached partition {}", partition);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void detach(Connection connection, String table, YearMonth month) throws SQLException {
+        String partition = table + month.format(SUFFIX);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+        }
+        log.info("Detached partition {}; it stays in place as a standalone table", partition);
+    }
+
+    private static boolean isPartitioned(Connection connection, String table) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?)")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static boolean exists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    // Months of the partitions named <table>_pYYYY_MM that are currently attached
+    private static TreeSet<YearMonth> monthlyPartitions(Connection connection, String table) throws SQLException {
+        TreeSet<YearMonth> months = new TreeSet<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Matcher matcher = MONTHLY_PARTITION.matcher(rs.getString(1));
+                    if (matcher.find()) {
+                        months.add(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+                    }
+                }
+            }
+        }
+        return months;
+    }
+}
@@ -2,12 +2,13 @@ package com.diary.backend.mapper;
 
 import com.diary.backend.entity.Book;
 import org.apache.ibatis.annotations.*;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface BookMapper {
     @Select("SELECT id, user_id, title, author, cover_image, created_at, last_read_at, progress FROM books WHERE user_id = #{userId} ORDER BY created_at DESC")
-    @Results({
+    @Results(id = "bookMetadataResult", value = {
         @Result(property = "id", column = "id"),
         @Result(property = "userId", column = "user_id"),
         @Result(property = "title", column = "title"),
@@ -19,21 +20,26 @@ public interface BookMapper {
     })
     List<Book> findAllByUserId(Long userId);
 
-    @Select("SELECT id, user_id, title, author, cover_image, created_at, last_read_at, progress FROM books WHERE id = #{id}")
-    @Results({
-        @Result(property = "id", column = "id"),
-        @Result(property = "userId", column = "user_id"),
-        @Result(property = "title", column = "title"),
-        @Result(property = "author", column = "author"),
-        @Result(property = "coverImage", column = "cover_image"),
-        @Result(property = "createdAt", column = "created_at"),
-        @Result(property = "lastReadAt", column = "last_read_at"),
-        @Result(property = "progress", column = "progress")
-    })
-    Book findMetadataById(String id);
+    // Queries serving a request include user_id so a book id only ever resolves for its owner
+    @Select("SELECT id, user_id, title, author, cover_image, created_at, last_read_at, progress FROM books WHERE id = #{id} AND user_id = #{userId}")
+    @ResultMap("bookMetadataResult")
+    Book findOwnedMetadataById(@Param("id") String id, @Param("userId") Long userId);
+
+    @Select("SELECT id, user_id, title, author, cover_image, created_at, last_read_at, progress FROM books WHERE user_id = #{userId} AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    @ResultMap("bookMetadataResult")
+    List<Book> findMetadataPageByUserId(@Param("userId") Long userId, @Param("afterId") String afterId, @Param("limit") int limit);
 
+    @Select("SELECT octet_length(file_data) FROM books WHERE id = #{id}")
+    Integer findFileLength(String id);
+
+    // A slice of the file in fileData; offset is 1-based as in SQL substring, and bytea values are at most 1GB.
+    // Returned as a Book because MyBatis would treat a byte[] return type as a list of rows.
+    @Select("SELECT substring(file_data from #{offset} for #{length}) AS file_data FROM books WHERE id = #{id} AND user_id = #{userId}")
+    Book findFileChunk(@Param("id") String id, @Param("userId") Long userId, @Param("offset") int offset, @Param("length") int length);
+
+    // Unscoped: for background jobs working on a book id they were handed
     @Select("SELECT * FROM books WHERE id = #{id}")
-    @Results({
+    @Results(id = "bookResult", value = {
         @Result(property = "id", column = "id"),
         @Result(property = "userId", column = "user_id"),
         @Result(property = "title", column = "title"),
@@ -46,12 +52,39 @@ public interface BookMapper {
     })
     Book findById(String id);
 
+    @Select("SELECT * FROM books WHERE id = #{id} AND user_id = #{userId}")
+    @ResultMap("bookResult")
+    Book findOwnedById(@Param("id") String id, @Param("userId") Long userId);
+
     @Insert("INSERT INTO books(id, user_id, title, author, cover_image, file_data, created_at) VALUES(#{id}, #{userId}, #{title}, #{author}, #{coverImage}, #{fileData}, NOW())")
     void insert(Book book);
 
-    @Update("UPDATE books SET last_read_at = NOW(), progress = #{progress} WHERE id = #{id}")
-    void updateProgress(@Param("id") String id, @Param("progress") String progress);
+    @Update("UPDATE books SET last_read_at = NOW(), progress = #{progress} WHERE id = #{id} AND user_id = #{userId}")
+    int updateProgress(@Param("id") String id, @Param("userId") Long userId, @Param("progress") String progress);
+
+    // EPUB manifest JSON built at upload (see EpubManifest); null until built
+    @Select("SELECT manifest FROM books WHERE id = #{id} AND user_id = #{userId}")
+    String findManifest(@Param("id") String id, @Param("userId") Long userId);
+
+    @Update("UPDATE books SET manifest = #{manifest} WHERE id = #{id}")
+    void updateManifest(@Param("id") String id, @Param("manifest") String manifest);
+
+    @Update("UPDATE books SET text_indexed_at = NOW() WHERE id = #{id}")
+    void markTextIndexed(String id);
+
+    @Select("<script>" +
+            "SELECT id FROM books WHERE user_id = #{userId} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<String> findOwnedIds(@Param("userId") Long userId, @Param("ids") Collection<String> ids);
+
+    @Select("SELECT id FROM books WHERE user_id = #{userId} AND text_indexed_at IS NULL")
+    List<String> findTextUnindexedIds(Long userId);
+
+    // Null when the user has no such book
+    @Select("SELECT text_indexed_at IS NOT NULL FROM books WHERE id = #{id} AND user_id = #{userId}")
+    Boolean isTextIndexed(@Param("id") String id, @Param("userId") Long userId);
 
-    @Delete("DELETE FROM books WHERE id = #{id}")
-    void deleteById(String id);
+    @Delete("DELETE FROM books WHERE id = #{id} AND user_id = #{userId}")
+    int deleteOwned(@Param("id") String id, @Param("userId") Long userId);
 }
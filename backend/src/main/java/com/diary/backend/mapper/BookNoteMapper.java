@@ -2,12 +2,15 @@ package com.diary.backend.mapper;
 
 import com.diary.backend.entity.BookNote;
 import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
 public interface BookNoteMapper {
-    @Select("SELECT * FROM book_notes WHERE book_id = #{bookId} AND user_id = #{userId} ORDER BY created_at DESC")
-    @Results({
+    // Deleted notes are kept as tombstones for the change feed; every other read skips them
+    @Select("SELECT * FROM book_notes WHERE book_id = #{bookId} AND user_id = #{userId} AND deleted_at IS NULL ORDER BY created_at DESC")
+    @Results(id = "bookNoteResult", value = {
         @Result(property = "id", column = "id"),
         @Result(property = "userId", column = "user_id"),
         @Result(property = "bookId", column = "book_id"),
@@ -16,9 +19,62 @@ public interface BookNoteMapper {
     })
     List<BookNote> findByBookId(@Param("bookId") String bookId, @Param("userId") Long userId);
 
+    @Select("SELECT * FROM book_notes WHERE user_id = #{userId} AND deleted_at IS NULL AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    @ResultMap("bookNoteResult")
+    List<BookNote> findPageByUserId(@Param("userId") Long userId, @Param("afterId") String afterId, @Param("limit") int limit);
+
+    // Newest first across the whole library, keyset-paged on (created_at, id)
+    @Select("<script>" +
+            "SELECT * FROM book_notes WHERE user_id = #{userId} AND deleted_at IS NULL" +
+            "<if test='bookId != null'> AND book_id = #{bookId}</if>" +
+            "<if test='color != null'> AND color = #{color}</if>" +
+            "<if test='from != null'> AND created_at &gt;= #{from}</if>" +
+            "<if test='to != null'> AND created_at &lt; #{to}</if>" +
+            "<if test='beforeCreatedAt != null'> AND (created_at, id) &lt; (#{beforeCreatedAt}, #{beforeId})</if>" +
+            " ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    @ResultMap("bookNoteResult")
+    List<BookNote> findPage(@Param("userId") Long userId, @Param("bookId") String bookId, @Param("color") String color,
+                            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                            @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt, @Param("beforeId") String beforeId,
+                            @Param("limit") int limit);
+
+    // Includes tombstones, in the order the changes were made
+    @Select("SELECT * FROM book_notes WHERE user_id = #{userId} AND version > #{since} ORDER BY version LIMIT #{limit}")
+    @ResultMap("bookNoteResult")
+    List<BookNote> findChangesSince(@Param("userId") Long userId, @Param("since") long since, @Param("limit") int limit);
+
+    /**
+     * Serializes a user's note writes until the transaction ends. Versions come from a sequence, so
+     * without this a transaction could commit after another one that took a later version, and a
+     * client that had already synced past that version would never see the change.
+     */
+    @Select("SELECT 1 FROM (SELECT pg_advisory_xact_lock(#{userId})) l")
+    Integer lockUser(Long userId);
+
     @Insert("INSERT INTO book_notes(id, user_id, book_id, cfi_range, content, color, created_at) VALUES(#{id}, #{userId}, #{bookId}, #{cfiRange}, #{content}, #{color}, NOW())")
     void insert(BookNote note);
 
-    @Delete("DELETE FROM book_notes WHERE id = #{id}")
-    void deleteById(String id);
+    @Select("<script>" +
+            "INSERT INTO book_notes(id, user_id, book_id, cfi_range, content, color, created_at) VALUES " +
+            "<foreach collection='notes' item='n' separator=','>" +
+            "(#{n.id}, #{n.userId}, #{n.bookId}, #{n.cfiRange}, #{n.content}, #{n.color}, NOW())" +
+            "</foreach>" +
+            " RETURNING *" +
+            "</script>")
+    @ResultMap("bookNoteResult")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<BookNote> insertAll(@Param("notes") List<BookNote> notes);
+
+    @Select("<script>" +
+            "UPDATE book_notes SET deleted_at = NOW(), updated_at = NOW(), version = nextval('book_notes_version_seq') " +
+            "WHERE user_id = #{userId} AND deleted_at IS NULL AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " RETURNING id" +
+            "</script>")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<String> softDelete(@Param("userId") Long userId, @Param("ids") List<String> ids);
+
+    @Select("SELECT COALESCE(MAX(version), 0) FROM book_notes WHERE user_id = #{userId}")
+    long findLatestVersion(Long userId);
 }
@@ -0,0 +1,34 @@
+package com.diary.backend.mapper;
+
+import com.diary.backend.dto.BookSearchHit;
+import com.diary.backend.entity.BookPassage;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+@Mapper
+public interface BookPassageMapper {
+
+    @Insert({"<script>",
+            "INSERT INTO book_passages(book_id, seq, spine_index, cfi, content) VALUES ",
+            "<foreach collection='passages' item='p' separator=','>",
+            "(#{p.bookId}, #{p.seq}, #{p.spineIndex}, #{p.cfi}, #{p.content})",
+            "</foreach>",
+            "</script>"})
+    void insertAll(@Param("passages") List<BookPassage> passages);
+
+    @Delete("DELETE FROM book_passages WHERE book_id = #{bookId}")
+    void deleteByBookId(String bookId);
+
+    // pattern is an ILIKE pattern with '\' as the escape character. snippet holds the whole passage;
+    // the service cuts it down around the match.
+    @Select("SELECT p.book_id, b.title AS book_title, p.spine_index, p.cfi, p.content AS snippet FROM book_passages p " +
+            "JOIN books b ON b.id = p.book_id " +
+            "WHERE p.book_id = #{bookId} AND b.user_id = #{userId} AND p.content ILIKE #{pattern} ORDER BY p.seq LIMIT #{limit}")
+    List<BookSearchHit> search(@Param("bookId") String bookId, @Param("userId") Long userId, @Param("pattern") String pattern, @Param("limit") int limit);
+
+    @Select("SELECT p.book_id, b.title AS book_title, p.spine_index, p.cfi, p.content AS snippet FROM book_passages p " +
+            "JOIN books b ON b.id = p.book_id " +
+            "WHERE b.user_id = #{userId} AND p.content ILIKE #{pattern} ORDER BY b.title, p.book_id, p.seq LIMIT #{limit}")
+    List<BookSearchHit> searchLibrary(@Param("userId") Long userId, @Param("pattern") String pattern, @Param("limit") int limit);
+}
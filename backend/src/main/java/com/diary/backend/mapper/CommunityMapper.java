@@ -1,23 +1,30 @@
 package com.diary.backend.mapper;
 
 import com.diary.backend.dto.CommunityEntryDTO;
+import com.diary.backend.dto.StoryVoteCount;
 import com.diary.backend.entity.Comment;
 import org.apache.ibatis.annotations.*;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.type.ArrayTypeHandler;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Mapper
 public interface CommunityMapper {
 
-    @Select("""
+    // Reactions are looked up by entry_id together with the entry's created_at (entry_created_at),
+    // which is what likes, votes and comments are range partitioned on, so only one partition is read
+    String ENTRY_CREATED_AT = "(SELECT created_at FROM diary_entries WHERE id = #{entryId})";
+
+    String FIND_SHARED_ENTRIES = """
         SELECT e.*, u.name as author_name,
-               (SELECT COUNT(*) FROM likes l WHERE l.entry_id = e.id) as like_count,
-               (SELECT COUNT(*) FROM votes v WHERE v.entry_id = e.id) as vote_count,
-               (SELECT COUNT(*) FROM comments c WHERE c.entry_id = e.id) as comment_count,
-               CASE WHEN EXISTS (SELECT 1 FROM likes l2 WHERE l2.entry_id = e.id AND l2.user_id = #{currentUserId}) THEN TRUE ELSE FALSE END as is_liked,
-               CASE WHEN EXISTS (SELECT 1 FROM votes v2 WHERE v2.entry_id = e.id AND v2.user_id = #{currentUserId}) THEN TRUE ELSE FALSE END as is_voted
+               (SELECT COUNT(*) FROM likes l WHERE l.entry_id = e.id AND l.entry_created_at = e.created_at) as like_count,
+               (SELECT COUNT(*) FROM votes v WHERE v.entry_id = e.id AND v.entry_created_at = e.created_at) as vote_count,
+               (SELECT COUNT(*) FROM comments c WHERE c.entry_id = e.id AND c.entry_created_at = e.created_at) as comment_count,
+               CASE WHEN EXISTS (SELECT 1 FROM likes l2 WHERE l2.entry_id = e.id AND l2.entry_created_at = e.created_at AND l2.user_id = #{currentUserId}) THEN TRUE ELSE FALSE END as is_liked,
+               CASE WHEN EXISTS (SELECT 1 FROM votes v2 WHERE v2.entry_id = e.id AND v2.entry_created_at = e.created_at AND v2.user_id = #{currentUserId}) THEN TRUE ELSE FALSE END as is_voted
         FROM diary_entries e
         JOIN users u ON e.user_id = u.id
         WHERE e.privacy = 'shared' AND (e.deleted = false OR e.deleted IS NULL)
@@ -25,9 +32,12 @@ public interface CommunityMapper {
          -- CASE WHEN e.is_story = TRUE THEN 0 ELSE 1 END,  这里注释掉就不会让story优先排序了 而且按照投票数量和创建时间优先排序
             vote_count DESC, 
             e.created_at DESC
-    """)
-    @Results({
+    """;
+
+    @Select(FIND_SHARED_ENTRIES)
+    @Results(id = "sharedEntryResult", value = {
         @Result(property = "tags", column = "tags", typeHandler = ArrayTypeHandler.class),
+        @Result(property = "content", column = "content", typeHandler = CompressedTextTypeHandler.class),
         @Result(property = "authorName", column = "author_name"),
         @Result(property = "likeCount", column = "like_count"),
         @Result(property = "voteCount", column = "vote_count"),
@@ -38,27 +48,67 @@ public interface CommunityMapper {
     })
     List<CommunityEntryDTO> findSharedEntries(Long currentUserId);
 
-    @Insert("INSERT INTO likes(user_id, entry_id, created_at) VALUES(#{userId}, #{entryId}, NOW()) ON CONFLICT DO NOTHING")
+    @Select(FIND_SHARED_ENTRIES)
+    @ResultMap("sharedEntryResult")
+    @Options(fetchSize = 256)
+    Cursor<CommunityEntryDTO> streamSharedEntries(Long currentUserId);
+
+    // Topic stories of one day without vote counts; the ranking and counts come from TopicLeaderboard
+    @Select("""
+        SELECT e.*, u.name as author_name,
+               (SELECT COUNT(*) FROM likes l WHERE l.entry_id = e.id AND l.entry_created_at = e.created_at) as like_count,
+               (SELECT COUNT(*) FROM comments c WHERE c.entry_id = e.id AND c.entry_created_at = e.created_at) as comment_count,
+               CASE WHEN EXISTS (SELECT 1 FROM votes v2 WHERE v2.entry_id = e.id AND v2.entry_created_at = e.created_at AND v2.user_id = #{currentUserId}) THEN TRUE ELSE FALSE END as is_voted
+        FROM diary_entries e
+        JOIN users u ON e.user_id = u.id
+        WHERE e.date = #{date} AND e.is_story = true AND e.privacy = 'shared' AND (e.deleted = false OR e.deleted IS NULL)
+    """)
+    @Results({
+        @Result(property = "tags", column = "tags", typeHandler = ArrayTypeHandler.class),
+        @Result(property = "content", column = "content", typeHandler = CompressedTextTypeHandler.class),
+        @Result(property = "authorName", column = "author_name"),
+        @Result(property = "likeCount", column = "like_count"),
+        @Result(property = "commentCount", column = "comment_count"),
+        @Result(property = "isVoted", column = "is_voted"),
+        @Result(property = "isStory", column = "is_story")
+    })
+    List<CommunityEntryDTO> findStoriesByDate(@Param("date") LocalDate date, @Param("currentUserId") Long currentUserId);
+
+    @Select("""
+        SELECT e.id as entry_id, e.date, e.created_at, COUNT(v.user_id) as votes
+        FROM diary_entries e
+        LEFT JOIN votes v ON v.entry_id = e.id AND v.entry_created_at = e.created_at
+        WHERE e.date BETWEEN #{from} AND #{to} AND e.is_story = true AND e.privacy = 'shared'
+          AND (e.deleted = false OR e.deleted IS NULL)
+        GROUP BY e.id, e.date, e.created_at
+    """)
+    List<StoryVoteCount> findStoryVoteCounts(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Insert("INSERT INTO likes(user_id, entry_id, entry_created_at, created_at) " +
+            "SELECT #{userId}, id, created_at, NOW() FROM diary_entries WHERE id = #{entryId} ON CONFLICT DO NOTHING")
     void likeEntry(@Param("userId") Long userId, @Param("entryId") String entryId);
 
-    @Delete("DELETE FROM likes WHERE user_id = #{userId} AND entry_id = #{entryId}")
+    @Delete("DELETE FROM likes WHERE user_id = #{userId} AND entry_id = #{entryId} AND entry_created_at = " + ENTRY_CREATED_AT)
     void unlikeEntry(@Param("userId") Long userId, @Param("entryId") String entryId);
 
-    @Insert("INSERT INTO votes(user_id, entry_id, created_at) VALUES(#{userId}, #{entryId}, NOW()) ON CONFLICT DO NOTHING")
-    void voteEntry(@Param("userId") Long userId, @Param("entryId") String entryId);
+    @Insert("INSERT INTO votes(user_id, entry_id, entry_created_at, created_at) " +
+            "SELECT #{userId}, id, created_at, NOW() FROM diary_entries WHERE id = #{entryId} ON CONFLICT DO NOTHING")
+    int voteEntry(@Param("userId") Long userId, @Param("entryId") String entryId);
 
-    @Delete("DELETE FROM votes WHERE user_id = #{userId} AND entry_id = #{entryId}")
-    void unvoteEntry(@Param("userId") Long userId, @Param("entryId") String entryId);
+    @Delete("DELETE FROM votes WHERE user_id = #{userId} AND entry_id = #{entryId} AND entry_created_at = " + ENTRY_CREATED_AT)
+    int unvoteEntry(@Param("userId") Long userId, @Param("entryId") String entryId);
 
-    @Insert("INSERT INTO comments(user_id, entry_id, parent_id, content, created_at) VALUES(#{userId}, #{entryId}, #{parentId}, #{content}, NOW())")
-    @Options(useGeneratedKeys = true, keyProperty = "id")
-    void addComment(Comment comment);
+    // Inserts nothing (and leaves the id unset) when the entry doesn't exist
+    @Insert("INSERT INTO comments(user_id, entry_id, entry_created_at, parent_id, content, created_at) " +
+            "SELECT #{userId}, id, created_at, #{parentId}, #{content}, NOW() FROM diary_entries WHERE id = #{entryId}")
+    @Options(useGeneratedKeys = true, keyProperty = "id", keyColumn = "id")
+    int addComment(Comment comment);
 
     @Select("""
         SELECT c.*, u.name as author_name
         FROM comments c
         JOIN users u ON c.user_id = u.id
-        WHERE c.entry_id = #{entryId}
+        WHERE c.entry_id = #{entryId} AND c.entry_created_at = (SELECT created_at FROM diary_entries WHERE id = #{entryId})
         ORDER BY c.created_at ASC
     """)
     @Results({
@@ -66,7 +116,31 @@ public interface CommunityMapper {
     })
     List<Comment> findComments(String entryId);
 
-    // 数据库中的comment 的id是自增的不会重复 所以直接按照commentId进行删除即可 前端根据userId判断是否可以进行删除
-    @Delete("DELETE FROM comments WHERE id = #{commentId}")
-    void deleteComment(@Param("commentId") Long commentId);
+    // Only the comment's author or the entry's owner may delete it; replies go with the comment they answer.
+    // Returns the number of comments removed, 0 when the caller isn't allowed or the comment doesn't exist
+    @Delete("""
+        WITH RECURSIVE thread AS (
+            SELECT id FROM comments
+            WHERE id = #{commentId} AND entry_id = #{entryId} AND entry_created_at = (SELECT created_at FROM diary_entries WHERE id = #{entryId})
+              AND (user_id = #{userId} OR EXISTS (SELECT 1 FROM diary_entries WHERE id = #{entryId} AND user_id = #{userId}))
+            UNION ALL
+            SELECT c.id FROM comments c JOIN thread t ON c.parent_id = t.id
+            WHERE c.entry_id = #{entryId} AND c.entry_created_at = (SELECT created_at FROM diary_entries WHERE id = #{entryId})
+        )
+        DELETE FROM comments
+        WHERE entry_id = #{entryId} AND entry_created_at = (SELECT created_at FROM diary_entries WHERE id = #{entryId})
+          AND id IN (SELECT id FROM thread)
+    """)
+    int deleteComment(@Param("entryId") String entryId, @Param("commentId") Long commentId, @Param("userId") Long userId);
+
+    // Reactions of an entry that is being deleted for good (they don't reference it by foreign key
+    // once the tables are partitioned)
+    @Delete("DELETE FROM likes WHERE entry_id = #{entryId} AND entry_created_at = " + ENTRY_CREATED_AT)
+    void deleteLikesOfEntry(@Param("entryId") String entryId);
+
+    @Delete("DELETE FROM votes WHERE entry_id = #{entryId} AND entry_created_at = " + ENTRY_CREATED_AT)
+    void deleteVotesOfEntry(@Param("entryId") String entryId);
+
+    @Delete("DELETE FROM comments WHERE entry_id = #{entryId} AND entry_created_at = " + ENTRY_CREATED_AT)
+    void deleteCommentsOfEntry(@Param("entryId") String entryId);
 }
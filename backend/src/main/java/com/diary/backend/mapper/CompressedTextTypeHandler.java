@@ -0,0 +1,86 @@
+package com.diary.backend.mapper;
+
+import com.github.luben.zstd.Zstd;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+
+/**
+ * Text columns that can get large (entry bodies, mind map JSON) are written zstd-compressed as
+ * "zstd:" + base64 once they reach diary.content-compression.threshold-bytes; Postgres' own pglz
+ * does little for them. Reads accept both forms, so rows written before compression was turned on
+ * (or after it is turned off again) keep working. Plain text that happens to start with the prefix
+ * is always compressed, which keeps the two forms apart.
+ * <p>
+ * MyBatis creates the handler itself, so its settings are process-wide (see ContentCompressionConfig).
+ */
+public class CompressedTextTypeHandler extends BaseTypeHandler<String> {
+
+    static final String PREFIX = "zstd:";
+
+    private static volatile int thresholdBytes = Integer.MAX_VALUE;
+    private static volatile int level = 3;
+
+    public static void configure(boolean enabled, int thresholdBytes, int level) {
+        CompressedTextTypeHandler.thresholdBytes = enabled ? Math.max(thresholdBytes, 0) : Integer.MAX_VALUE;
+        CompressedTextTypeHandler.level = level;
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
+        ps.setString(i, encode(parameter));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return decode(rs.getString(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return decode(rs.getString(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return decode(cs.getString(columnIndex));
+    }
+
+    public static String encode(String text) {
+        boolean ambiguous = text.startsWith(PREFIX);
+        // UTF-8 needs at most three bytes per char, so short strings can be ruled out without encoding
+        if (!ambiguous && text.length() < thresholdBytes / 3) {
+            return text;
+        }
+        byte[] plain = text.getBytes(StandardCharsets.UTF_8);
+        if (!ambiguous && plain.length < thresholdBytes) {
+            return text;
+        }
+        String compressed = PREFIX + Base64.getEncoder().encodeToString(Zstd.compress(plain, level));
+        return ambiguous || compressed.length() < plain.length ? compressed : text;
+    }
+
+    public static String decode(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return stored;
+        }
+        byte[] frame;
+        try {
+            frame = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            // Written as plain text before this handler existed
+            return stored;
+        }
+        long size = Zstd.getFrameContentSize(frame, 0, frame.length);
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            return stored;
+        }
+        return new String(Zstd.decompress(frame, (int) size), StandardCharsets.UTF_8);
+    }
+}
@@ -2,53 +2,112 @@ package com.diary.backend.mapper;
 
 import com.diary.backend.entity.DiaryEntry;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.type.ArrayTypeHandler;
 import org.apache.ibatis.type.JdbcType;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Mapper
 public interface DiaryEntryMapper {
 
-    @Select("SELECT * FROM diary_entries WHERE user_id = #{userId} AND (deleted = false OR deleted IS NULL) ORDER BY date DESC")
-    @Results({
-        @Result(property = "tags", column = "tags", typeHandler = ArrayTypeHandler.class)
+    String FIND_BY_USER_ID = "SELECT * FROM diary_entries WHERE user_id = #{userId} AND (deleted = false OR deleted IS NULL) ORDER BY date DESC";
+    String FIND_DELETED_BY_USER_ID = "SELECT * FROM diary_entries WHERE user_id = #{userId} AND deleted = true ORDER BY updated_at DESC";
+    // What a user may read by id: their own entries, and anyone's live shared ones
+    String VISIBLE_TO_USER = "(user_id = #{userId} OR (privacy = 'shared' AND deleted IS NOT TRUE))";
+    // Calendar day of an entry as month * 100 + day (1019 for 19 October); must stay identical to
+    // the expression of idx_diary_entries_user_month_day for the index to be used
+    String MONTH_DAY = "(EXTRACT(MONTH FROM date) * 100 + EXTRACT(DAY FROM date))::int";
+
+    @Select(FIND_BY_USER_ID)
+    @Results(id = "diaryEntryResult", value = {
+        @Result(property = "tags", column = "tags", typeHandler = ArrayTypeHandler.class),
+        @Result(property = "content", column = "content", typeHandler = CompressedTextTypeHandler.class)
     })
     List<DiaryEntry> findByUserId(Long userId);
 
+    // Same rows as findByUserId, fetched lazily; must be consumed inside a transaction
+    @Select(FIND_BY_USER_ID)
+    @ResultMap("diaryEntryResult")
+    @Options(fetchSize = 256)
+    Cursor<DiaryEntry> streamByUserId(Long userId);
+
+    // Keyset page over a user's live entries, for exports; afterId is the last id of the previous page ("" to start)
+    @Select("SELECT * FROM diary_entries WHERE user_id = #{userId} AND id > #{afterId} AND (deleted = false OR deleted IS NULL) ORDER BY id LIMIT #{limit}")
+    @ResultMap("diaryEntryResult")
+    List<DiaryEntry> findPageByUserId(@Param("userId") Long userId, @Param("afterId") String afterId, @Param("limit") int limit);
+
     @Select("SELECT * FROM diary_entries WHERE id = #{id} ")
     @Results({
-        @Result(property = "tags", column = "tags", typeHandler = ArrayTypeHandler.class)
+        @Result(property = "tags", column = "tags", typeHandler = ArrayTypeHandler.class),
+        @Result(property = "content", column = "content", typeHandler = CompressedTextTypeHandler.class)
     })
     DiaryEntry findById(String id);
 
+    @Select("SELECT * FROM diary_entries WHERE id = #{id} AND " + VISIBLE_TO_USER)
+    @ResultMap("diaryEntryResult")
+    DiaryEntry findVisibleById(@Param("id") String id, @Param("userId") Long userId);
+
+    // One round trip for a set of ids, with the same visibility as findVisibleById; rows come back in no particular order
+    @Select("SELECT * FROM diary_entries WHERE id = ANY(#{ids, typeHandler=org.apache.ibatis.type.ArrayTypeHandler}) AND " + VISIBLE_TO_USER)
+    @ResultMap("diaryEntryResult")
+    List<DiaryEntry> findByIds(@Param("userId") Long userId, @Param("ids") String[] ids);
+
+    // Live entries of a user falling on one of the given calendar days, written before a date
+    @Select("SELECT id, title, content, date, mood FROM diary_entries " +
+            "WHERE user_id = #{userId} AND " + MONTH_DAY + " = ANY(#{monthDays, typeHandler=org.apache.ibatis.type.ArrayTypeHandler}) " +
+            "AND date < #{before} AND deleted IS NOT TRUE ORDER BY date DESC LIMIT #{limit}")
+    @ResultMap("diaryEntryResult")
+    List<DiaryEntry> findByMonthDays(@Param("userId") Long userId, @Param("monthDays") Integer[] monthDays,
+                                     @Param("before") LocalDate before, @Param("limit") int limit);
+
+    // Lookups and writes that know the owner include user_id: it keeps them to the user's own
+    // entries and lets Postgres go straight to one partition once diary_entries is hash partitioned
+    @Select("SELECT * FROM diary_entries WHERE id = #{id} AND user_id = #{userId}")
+    @ResultMap("diaryEntryResult")
+    DiaryEntry findOwnedById(@Param("id") String id, @Param("userId") Long userId);
+
     @Insert("INSERT INTO diary_entries(id, user_id, folder_id, title, content, date, tags, mood, privacy, is_story, deleted, created_at, updated_at) " +
-            "VALUES(#{id}, #{userId}, #{folderId}, #{title}, #{content}, #{date}, #{tags, typeHandler=org.apache.ibatis.type.ArrayTypeHandler}, #{mood}, #{privacy}, #{isStory}, #{deleted}, NOW(), NOW())")
+            "VALUES(#{id}, #{userId}, #{folderId}, #{title}, #{content, typeHandler=com.diary.backend.mapper.CompressedTextTypeHandler}, #{date}, #{tags, typeHandler=org.apache.ibatis.type.ArrayTypeHandler}, #{mood}, #{privacy}, #{isStory}, #{deleted}, NOW(), NOW())")
     void insert(DiaryEntry entry);
 
-    @Update("UPDATE diary_entries SET folder_id=#{folderId}, title=#{title}, content=#{content}, date=#{date}, " +
+    // Imported entries keep their original timestamps when the source has them, and are never stories
+    @Insert("INSERT INTO diary_entries(id, user_id, folder_id, title, content, date, tags, mood, privacy, is_story, deleted, created_at, updated_at) " +
+            "VALUES(#{id}, #{userId}, #{folderId}, #{title}, #{content, typeHandler=com.diary.backend.mapper.CompressedTextTypeHandler}, #{date}, #{tags, typeHandler=org.apache.ibatis.type.ArrayTypeHandler}, #{mood}, #{privacy}, false, false, " +
+            "COALESCE(#{createdAt}, NOW()), COALESCE(#{updatedAt}, #{createdAt}, NOW()))")
+    void insertImported(DiaryEntry entry);
+
+    @Update("UPDATE diary_entries SET folder_id=#{folderId}, title=#{title}, content=#{content, typeHandler=com.diary.backend.mapper.CompressedTextTypeHandler}, date=#{date}, " +
             "tags=#{tags, typeHandler=org.apache.ibatis.type.ArrayTypeHandler}, mood=#{mood}, privacy=#{privacy}, is_story=#{isStory}, updated_at=NOW() " +
-            "WHERE id=#{id}")
-    void update(DiaryEntry entry);
+            "WHERE id=#{id} AND user_id=#{userId}")
+    int update(DiaryEntry entry);
 
-    @Update("UPDATE diary_entries SET folder_id = #{folderId}, updated_at = NOW() WHERE id = #{id}")
-    void updateFolder(@Param("id") String id, @Param("folderId") String folderId);
+    @Update("UPDATE diary_entries SET folder_id = #{folderId}, updated_at = NOW() WHERE id = #{id} AND user_id = #{userId}")
+    void updateFolder(@Param("id") String id, @Param("userId") Long userId, @Param("folderId") String folderId);
 
-    @Update("UPDATE diary_entries SET deleted=true WHERE id=#{id}")
-    void softDelete(String id);
+    @Update("UPDATE diary_entries SET deleted=true WHERE id=#{id} AND user_id=#{userId}")
+    int softDelete(@Param("id") String id, @Param("userId") Long userId);
 
-    @Update("UPDATE diary_entries SET deleted=false WHERE id=#{id}")
-    void restore(String id);
+    @Update("UPDATE diary_entries SET deleted=false WHERE id=#{id} AND user_id=#{userId}")
+    int restore(@Param("id") String id, @Param("userId") Long userId);
 
-    @Delete("DELETE FROM diary_entries WHERE id=#{id}")
-    void deletePermanently(String id);
+    @Delete("DELETE FROM diary_entries WHERE id=#{id} AND user_id=#{userId}")
+    int deletePermanently(@Param("id") String id, @Param("userId") Long userId);
     
-    @Select("SELECT * FROM diary_entries WHERE user_id = #{userId} AND deleted = true ORDER BY updated_at DESC")
-    @Results({
-        @Result(property = "tags", column = "tags", typeHandler = ArrayTypeHandler.class)
-    })
+    @Select(FIND_DELETED_BY_USER_ID)
+    @ResultMap("diaryEntryResult")
     List<DiaryEntry> findDeletedByUserId(Long userId);
 
-    @Select("SELECT COUNT(*) FROM diary_entries WHERE user_id = #{userId} AND date = #{date} AND is_story = true AND (deleted = false OR deleted IS NULL) AND id != #{excludeId}")
-    int countStoriesByDate(@Param("userId") Long userId, @Param("date") java.time.LocalDate date, @Param("excludeId") String excludeId);
+    @Select(FIND_DELETED_BY_USER_ID)
+    @ResultMap("diaryEntryResult")
+    @Options(fetchSize = 256)
+    Cursor<DiaryEntry> streamDeletedByUserId(Long userId);
+
+    @Select("SELECT * FROM diary_entries WHERE user_id = #{userId} AND date = #{date} AND is_story = true AND (deleted = false OR deleted IS NULL) LIMIT 1")
+    @Results({
+        @Result(property = "tags", column = "tags", typeHandler = ArrayTypeHandler.class),
+        @Result(property = "content", column = "content", typeHandler = CompressedTextTypeHandler.class)
+    })
+    DiaryEntry findStoryByUserAndDate(@Param("userId") Long userId, @Param("date") java.time.LocalDate date);
 }
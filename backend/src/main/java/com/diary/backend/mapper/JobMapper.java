@@ -0,0 +1,47 @@
+package com.diary.backend.mapper;
+
+import com.diary.backend.entity.Job;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+@Mapper
+public interface JobMapper {
+    // A second unfinished job with the same dedupe_key is silently dropped
+    @Insert("INSERT INTO jobs(kind, payload, priority, max_attempts, dedupe_key) " +
+            "VALUES(#{kind}, #{payload}, #{priority}, #{maxAttempts}, #{dedupeKey}) " +
+            "ON CONFLICT (dedupe_key) WHERE status IN ('queued', 'running') DO NOTHING")
+    int insert(Job job);
+
+    /**
+     * Claims up to limit due jobs, best priority first. Rows another worker is claiming right now
+     * are skipped instead of waited for.
+     */
+    @Select("UPDATE jobs SET status = 'running', attempts = attempts + 1, locked_at = NOW(), locked_by = #{worker} " +
+            "WHERE id IN (SELECT id FROM jobs WHERE status = 'queued' AND run_at <= NOW() " +
+            "ORDER BY priority, run_at, id LIMIT #{limit} FOR UPDATE SKIP LOCKED) " +
+            "RETURNING *")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<Job> claim(@Param("worker") String worker, @Param("limit") int limit);
+
+    @Update("UPDATE jobs SET status = 'done', finished_at = NOW(), locked_at = NULL, last_error = NULL WHERE id = #{id}")
+    void markDone(Long id);
+
+    @Update("UPDATE jobs SET status = 'queued', run_at = NOW() + #{delaySeconds} * INTERVAL '1 second', " +
+            "locked_at = NULL, locked_by = NULL, last_error = #{error} WHERE id = #{id}")
+    void reschedule(@Param("id") Long id, @Param("delaySeconds") long delaySeconds, @Param("error") String error);
+
+    @Update("UPDATE jobs SET status = 'failed', finished_at = NOW(), locked_at = NULL, last_error = #{error} WHERE id = #{id}")
+    void markFailed(@Param("id") Long id, @Param("error") String error);
+
+    // Jobs whose worker died mid-run; the attempt already counted
+    @Update("UPDATE jobs SET status = 'queued', locked_at = NULL, locked_by = NULL, last_error = 'Lease expired' " +
+            "WHERE status = 'running' AND locked_at < NOW() - #{leaseSeconds} * INTERVAL '1 second'")
+    int requeueExpired(long leaseSeconds);
+
+    @Delete("DELETE FROM jobs WHERE status IN ('done', 'failed') AND finished_at < NOW() - #{days} * INTERVAL '1 day'")
+    int deleteFinishedBefore(int days);
+
+    @Select("SELECT COUNT(*) FROM jobs WHERE status = 'queued'")
+    long countQueued();
+}
@@ -2,38 +2,50 @@ package com.diary.backend.mapper;
 
 import com.diary.backend.entity.MindMap;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+
 import java.util.List;
 
 @Mapper
 public interface MindMapMapper {
-    @Select("SELECT * FROM mindmaps WHERE user_id = #{userId} ORDER BY updated_at DESC")
-    @Results({
+    String FIND_ALL_BY_USER_ID = "SELECT * FROM mindmaps WHERE user_id = #{userId} ORDER BY updated_at DESC";
+
+    @Select(FIND_ALL_BY_USER_ID)
+    @Results(id = "mindMapResult", value = {
         @Result(property = "id", column = "id"),
         @Result(property = "userId", column = "user_id"),
         @Result(property = "title", column = "title"),
-        @Result(property = "content", column = "content"),
+        @Result(property = "content", column = "content", typeHandler = CompressedTextTypeHandler.class),
         @Result(property = "createdAt", column = "created_at"),
         @Result(property = "updatedAt", column = "updated_at")
     })
     List<MindMap> findAllByUserId(Long userId);
 
-    @Select("SELECT * FROM mindmaps WHERE id = #{id}")
-    @Results({
-        @Result(property = "id", column = "id"),
-        @Result(property = "userId", column = "user_id"),
-        @Result(property = "title", column = "title"),
-        @Result(property = "content", column = "content"),
-        @Result(property = "createdAt", column = "created_at"),
-        @Result(property = "updatedAt", column = "updated_at")
-    })
-    MindMap findById(String id);
+    @Select(FIND_ALL_BY_USER_ID)
+    @ResultMap("mindMapResult")
+    @Options(fetchSize = 256)
+    Cursor<MindMap> streamAllByUserId(Long userId);
+
+    @Select("SELECT * FROM mindmaps WHERE user_id = #{userId} AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    @ResultMap("mindMapResult")
+    List<MindMap> findPageByUserId(@Param("userId") Long userId, @Param("afterId") String afterId, @Param("limit") int limit);
+
+    // Single-map reads and writes include user_id so they only ever touch the caller's own maps
+    @Select("SELECT * FROM mindmaps WHERE id = #{id} AND user_id = #{userId}")
+    @ResultMap("mindMapResult")
+    MindMap findOwnedById(@Param("id") String id, @Param("userId") Long userId);
+
+    // One round trip for a set of one user's ids; rows come back in no particular order
+    @Select("SELECT * FROM mindmaps WHERE user_id = #{userId} AND id = ANY(#{ids, typeHandler=org.apache.ibatis.type.ArrayTypeHandler})")
+    @ResultMap("mindMapResult")
+    List<MindMap> findByIds(@Param("userId") Long userId, @Param("ids") String[] ids);
 
-    @Insert("INSERT INTO mindmaps(id, user_id, title, content, created_at, updated_at) VALUES(#{id}, #{userId}, #{title}, #{content}, NOW(), NOW())")
+    @Insert("INSERT INTO mindmaps(id, user_id, title, content, created_at, updated_at) VALUES(#{id}, #{userId}, #{title}, #{content, typeHandler=com.diary.backend.mapper.CompressedTextTypeHandler}, NOW(), NOW())")
     void insert(MindMap mindMap);
 
-    @Update("UPDATE mindmaps SET title = #{title}, content = #{content}, updated_at = NOW() WHERE id = #{id}")
-    void update(MindMap mindMap);
+    @Update("UPDATE mindmaps SET title = #{title}, content = #{content, typeHandler=com.diary.backend.mapper.CompressedTextTypeHandler}, updated_at = NOW() WHERE id = #{id} AND user_id = #{userId}")
+    int update(MindMap mindMap);
 
-    @Delete("DELETE FROM mindmaps WHERE id = #{id}")
-    void deleteById(String id);
+    @Delete("DELETE FROM mindmaps WHERE id = #{id} AND user_id = #{userId}")
+    int deleteOwned(@Param("id") String id, @Param("userId") Long userId);
 }
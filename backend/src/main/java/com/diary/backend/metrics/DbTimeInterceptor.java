@@ -0,0 +1,33 @@
+package com.diary.backend.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Attributes the database time accumulated during a request to its route pattern,
+ * e.g. method=GET, uri=/api/community/entries.
+ */
+@Component
+public class DbTimeInterceptor implements HandlerInterceptor {
+
+    private final SqlStats sqlStats;
+
+    public DbTimeInterceptor(SqlStats sqlStats) {
+        this.sqlStats = sqlStats;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        sqlStats.beginRequest();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        sqlStats.endRequest(request.getMethod(), pattern == null ? null : pattern.toString());
+    }
+}
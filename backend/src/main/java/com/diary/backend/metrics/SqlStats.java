@@ -0,0 +1,76 @@
+package com.diary.backend.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-mapper-method statement timings and per-endpoint database time, fed by
+ * {@link SqlStatsInterceptor} and {@link DbTimeInterceptor} and published as
+ * diary.sql.statement / diary.sql.rows / diary.http.db.time.
+ */
+@Component
+public class SqlStats {
+
+    // Database time spent so far by the request running on this thread
+    private static final ThreadLocal<long[]> REQUEST_DB_NANOS = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> statementTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> statementRows = new ConcurrentHashMap<>();
+    private final Map<String, Timer> endpointTimers = new ConcurrentHashMap<>();
+
+    public SqlStats(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordStatement(String statementId, long nanos, long rows) {
+        statementTimers.computeIfAbsent(statementId, id -> Timer.builder("diary.sql.statement")
+                .description("MyBatis statement execution time")
+                .tag("statement", shortName(id))
+                .publishPercentileHistogram()
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+        statementRows.computeIfAbsent(statementId, id -> DistributionSummary.builder("diary.sql.rows")
+                .description("Rows returned or affected per MyBatis statement")
+                .tag("statement", shortName(id))
+                .register(registry)).record(rows);
+
+        long[] requestNanos = REQUEST_DB_NANOS.get();
+        if (requestNanos != null) {
+            requestNanos[0] += nanos;
+        }
+    }
+
+    public void beginRequest() {
+        REQUEST_DB_NANOS.set(new long[1]);
+    }
+
+    /**
+     * Ends the current request and records its accumulated database time under the route pattern.
+     */
+    public void endRequest(String method, String uri) {
+        long[] requestNanos = REQUEST_DB_NANOS.get();
+        REQUEST_DB_NANOS.remove();
+        if (requestNanos == null || uri == null) {
+            return;
+        }
+        endpointTimers.computeIfAbsent(method + " " + uri, key -> Timer.builder("diary.http.db.time")
+                .description("Database time spent per request")
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(registry)).record(requestNanos[0], TimeUnit.NANOSECONDS);
+    }
+
+    // com.diary.backend.mapper.DiaryEntryMapper.findByUserId -> DiaryEntryMapper.findByUserId
+    private static String shortName(String statementId) {
+        int method = statementId.lastIndexOf('.');
+        int type = method > 0 ? statementId.lastIndexOf('.', method - 1) : -1;
+        return statementId.substring(type + 1);
+    }
+}
@@ -0,0 +1,71 @@
+package com.diary.backend.metrics;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Times every mapper call and counts the rows it returned or touched. Replaces per-statement
+ * stdout logging: only statements slower than diary.sql.slow-query-ms are logged, and only a
+ * sampled fraction of those so a slow period doesn't flood the log.
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class SqlStatsInterceptor implements Interceptor {
+
+    private static final Logger log = LoggerFactory.getLogger("com.diary.backend.sql.slow");
+
+    private final SqlStats sqlStats;
+
+    @Value("${diary.sql.slow-query-ms:200}")
+    private long slowQueryMs;
+
+    @Value("${diary.sql.slow-query-sample-rate:1.0}")
+    private double slowQuerySampleRate;
+
+    public SqlStatsInterceptor(SqlStats sqlStats) {
+        this.sqlStats = sqlStats;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        Object result = invocation.proceed();
+        long elapsed = System.nanoTime() - start;
+
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        long rows = result instanceof Collection<?> c ? c.size() : result instanceof Integer i ? i : 0;
+        sqlStats.recordStatement(ms.getId(), elapsed, rows);
+
+        if (elapsed / 1_000_000 >= slowQueryMs && log.isWarnEnabled()
+                && ThreadLocalRandom.current().nextDouble() < slowQuerySampleRate) {
+            Object parameter = invocation.getArgs()[1];
+            String sql = ms.getBoundSql(parameter).getSql().replaceAll("\\s+", " ");
+            log.warn("Slow statement {} took {} ms, rows={}: {}", ms.getId(), elapsed / 1_000_000, rows, sql);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,156 @@
+package com.diary.backend.ratelimit;
+
+import com.diary.backend.auth.AuthInterceptor;
+import com.diary.backend.common.Result;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for the expensive routes listed under diary.ratelimit.routes: a per-user
+ * token bucket followed by a per-route concurrency cap. A request that can't get through at once
+ * waits up to the route's maxWaitMs (on the request thread) and is then turned away with 429 and
+ * Retry-After, so one client can't tie up the whole connection pool. Runs after authentication
+ * and keys on the session's user id, or on the client address for anonymous routes.
+ */
+@Component
+@ConditionalOnProperty(name = "diary.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    private static final String PERMIT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".permit";
+
+    private final Map<String, Limiter> limiters = new HashMap<>();
+    private final ObjectMapper objectMapper;
+
+    public RateLimitInterceptor(Environment environment, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        int stripes = environment.getProperty("diary.ratelimit.stripes", Integer.class, 4096);
+        Map<String, RouteLimit> routes = Binder.get(environment)
+                .bind("diary.ratelimit.routes", Bindable.mapOf(String.class, RouteLimit.class))
+                .orElse(Map.of());
+        routes.forEach((name, route) -> {
+            Limiter limiter = new Limiter(name, route, stripes, meterRegistry);
+            limiters.put(route.method().toUpperCase() + " " + route.pattern(), limiter);
+            log.info("Rate limit {}: {} {} at {}/s (burst {}), {} concurrent", name, route.method(), route.pattern(),
+                    route.ratePerSecond(), route.burst(), route.maxConcurrent());
+        });
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // Async re-dispatches already hold their permit from the first pass
+        if (request.getDispatcherType() != DispatcherType.REQUEST || CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Limiter limiter = pattern == null ? null : limiters.get(request.getMethod() + " " + pattern);
+        if (limiter == null) {
+            return true;
+        }
+        long deadline = System.nanoTime() + limiter.maxWaitNanos;
+        if (limiter.buckets != null) {
+            long wait = limiter.buckets.acquire(clientKey(request), limiter.maxWaitNanos);
+            if (wait < 0) {
+                limiter.rateRejected.increment();
+                reject(response, -1 - wait, "Too many requests, slow down");
+                return false;
+            }
+            if (wait > 0) {
+                limiter.delayed.increment();
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+        if (limiter.permits != null) {
+            if (!limiter.permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                limiter.concurrencyRejected.increment();
+                reject(response, TimeUnit.SECONDS.toNanos(1), "Server busy, try again shortly");
+                return false;
+            }
+            request.setAttribute(PERMIT_ATTRIBUTE, limiter);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Limiter limiter) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            limiter.permits.release();
+        }
+    }
+
+    private static long clientKey(HttpServletRequest request) {
+        if (request.getAttribute(AuthInterceptor.USER_ID_ATTRIBUTE) instanceof Long userId) {
+            return userId;
+        }
+        return ~(long) request.getRemoteAddr().hashCode();
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterNanos, String message) throws IOException {
+        long seconds = Math.max(1, (retryAfterNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Result.error(429, message));
+    }
+
+    private static final class Limiter {
+        final StripedTokenBuckets buckets;
+        final Semaphore permits;
+        final long maxWaitNanos;
+        final Counter rateRejected;
+        final Counter concurrencyRejected;
+        final Counter delayed;
+
+        Limiter(String name, RouteLimit route, int stripes, MeterRegistry registry) {
+            this.buckets = route.ratePerSecond() > 0
+                    ? new StripedTokenBuckets(stripes, route.ratePerSecond(), route.burst()) : null;
+            this.permits = route.maxConcurrent() > 0 ? new Semaphore(route.maxConcurrent(), true) : null;
+            this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(route.maxWaitMs());
+            this.rateRejected = rejections(registry, name, "rate");
+            this.concurrencyRejected = rejections(registry, name, "concurrency");
+            this.delayed = Counter.builder("diary.ratelimit.delayed")
+                    .description("Requests held back briefly by a rate limit before being admitted")
+                    .tag("route", name)
+                    .register(registry);
+            if (permits != null) {
+                Gauge.builder("diary.ratelimit.queued", permits, Semaphore::getQueueLength)
+                        .description("Requests waiting for a route concurrency permit")
+                        .tag("route", name)
+                        .register(registry);
+            }
+        }
+
+        private static Counter rejections(MeterRegistry registry, String route, String reason) {
+            return Counter.builder("diary.ratelimit.rejected")
+                    .description("Requests turned away with 429")
+                    .tag("route", route)
+                    .tag("reason", reason)
+                    .register(registry);
+        }
+    }
+}
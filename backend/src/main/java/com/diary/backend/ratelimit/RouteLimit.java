@@ -0,0 +1,16 @@
+package com.diary.backend.ratelimit;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limits for one route, bound from diary.ratelimit.routes.&lt;name&gt;.*; pattern is the Spring
+ * MVC mapping as written on the controller, e.g. /api/books/{id}/download. A rate or concurrency
+ * of 0 leaves that dimension unlimited.
+ */
+public record RouteLimit(String method,
+                         String pattern,
+                         @DefaultValue("0") double ratePerSecond,
+                         @DefaultValue("1") int burst,
+                         @DefaultValue("0") int maxConcurrent,
+                         @DefaultValue("250") long maxWaitMs) {
+}
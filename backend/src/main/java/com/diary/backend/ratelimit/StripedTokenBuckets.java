@@ -0,0 +1,53 @@
+package com.diary.backend.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-key token buckets for one route, without locks or a map that grows with the number of
+ * users. Keys are hashed onto a fixed array of stripes; each stripe is a single long holding the
+ * "theoretical arrival time" of GCRA, which is equivalent to a token bucket of the given rate and
+ * burst and is updated with one CAS. Two users sharing a stripe share a bucket, so the stripe
+ * count should comfortably exceed the number of concurrently active users.
+ */
+public class StripedTokenBuckets {
+
+    private final AtomicLongArray stripes;
+    private final int mask;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+
+    public StripedTokenBuckets(int stripeCount, double permitsPerSecond, int burst) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+    }
+
+    /**
+     * Takes a token for the key if one is available now or within maxWaitNanos. Returns how long
+     * the caller must wait before proceeding (0 when a token was free), or -1 - nanos until a
+     * token would be available when that is longer than maxWaitNanos; nothing is consumed then.
+     */
+    public long acquire(long key, long maxWaitNanos) {
+        int index = stripe(key);
+        long now = System.nanoTime();
+        while (true) {
+            long tat = stripes.get(index);
+            // A zero slot has never been used; anything older than now is a full bucket
+            long base = tat == 0 || tat - now < 0 ? now : tat;
+            long wait = base - toleranceNanos - now;
+            if (wait > maxWaitNanos) {
+                return -1 - wait;
+            }
+            if (stripes.compareAndSet(index, tat, base + intervalNanos)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    private int stripe(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,132 @@
+package com.diary.backend.service;
+
+import com.diary.backend.entity.Book;
+import com.diary.backend.epub.EpubArchive;
+import com.diary.backend.epub.EpubException;
+import com.diary.backend.epub.EpubManifest;
+import com.diary.backend.epub.EpubPackage;
+import com.diary.backend.mapper.BookMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Serves EPUBs piece by piece. The manifest (spine, TOC and the position of every file inside the
+ * stored archive) is built once at upload; afterwards a chapter or image is read with one
+ * substring() of books.file_data and inflated on the fly, so opening a book costs the size of the
+ * first chapter rather than the whole file.
+ */
+@Service
+public class BookManifestService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookManifestService.class);
+
+    // Not an EPUB: remembered so the file isn't parsed again on every request
+    private static final String UNREADABLE = "{}";
+    private static final int CACHED_MANIFESTS = 64;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Manifests never change for a book id, so recently opened books are kept parsed. Keyed by
+    // owner and book id: entries are only ever added after an owner-scoped query found the book.
+    private final Map<String, EpubManifest> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(CACHED_MANIFESTS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, EpubManifest> eldest) {
+                    return size() > CACHED_MANIFESTS;
+                }
+            });
+
+    public record ResourceContent(String mediaType, long size, int method, byte[] data) {
+    }
+
+    public void buildManifest(String bookId, byte[] data) {
+        String json = UNREADABLE;
+        try {
+            EpubArchive archive = EpubArchive.open(data);
+            json = objectMapper.writeValueAsString(EpubManifest.build(archive, EpubPackage.read(archive)));
+        } catch (EpubException e) {
+            log.warn("Book {} is not a readable EPUB, no manifest: {}", bookId, e.getMessage());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        bookMapper.updateManifest(bookId, json);
+    }
+
+    /**
+     * Returns null when the user has no such book or it isn't a readable EPUB. Books uploaded before
+     * manifests existed get theirs built on first use.
+     */
+    public EpubManifest getManifest(Long userId, String bookId) {
+        String key = userId + ":" + bookId;
+        EpubManifest cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String json = bookMapper.findManifest(bookId, userId);
+        if (json == null) {
+            Book book = bookMapper.findOwnedById(bookId, userId);
+            if (book == null) {
+                return null;
+            }
+            buildManifest(bookId, book.getFileData() == null ? new byte[0] : book.getFileData());
+            json = bookMapper.findManifest(bookId, userId);
+        }
+        EpubManifest manifest;
+        try {
+            manifest = objectMapper.readValue(json, EpubManifest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt manifest for book " + bookId, e);
+        }
+        if (manifest.resources() == null) {
+            return null;
+        }
+        cache.put(key, manifest);
+        return manifest;
+    }
+
+    public ResourceContent getResource(Long userId, String bookId, String path) {
+        EpubManifest manifest = getManifest(userId, bookId);
+        EpubManifest.Resource resource = manifest == null ? null : manifest.resources().get(path);
+        if (resource == null) {
+            return null;
+        }
+        Book slice = bookMapper.findFileChunk(bookId, userId, (int) resource.offset() + 1, (int) resource.compressedSize());
+        if (slice == null || slice.getFileData() == null) {
+            return null;
+        }
+        return new ResourceContent(resource.mediaType(), resource.size(), resource.method(), slice.getFileData());
+    }
+
+    public void write(ResourceContent content, OutputStream out) throws IOException {
+        if (content.method() == EpubArchive.STORED) {
+            out.write(content.data());
+            return;
+        }
+        if (content.method() != EpubArchive.DEFLATED) {
+            throw new IOException("Unsupported compression method " + content.method());
+        }
+        Inflater inflater = new Inflater(true);
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(content.data()), inflater)) {
+            in.transferTo(out);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.diary.backend.service;
+
+import com.diary.backend.dto.BookSearchHit;
+import com.diary.backend.entity.Book;
+import com.diary.backend.entity.BookPassage;
+import com.diary.backend.epub.EpubArchive;
+import com.diary.backend.epub.EpubException;
+import com.diary.backend.epub.EpubPackage;
+import com.diary.backend.epub.EpubTextExtractor;
+import com.diary.backend.mapper.BookMapper;
+import com.diary.backend.mapper.BookPassageMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Server-side search inside uploaded books. At upload the EPUB's spine is streamed through
+ * {@link EpubTextExtractor} and every block of text is stored in book_passages with its position
+ * and CFI; searches are trigram-indexed ILIKE queries over those rows. Books uploaded before the
+ * index existed are indexed the first time they are searched.
+ */
+@Service
+public class BookSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchService.class);
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+    private static final int MAX_QUERY_LENGTH = 100;
+    private static final int INSERT_BATCH = 500;
+    private static final int SNIPPET_CONTEXT = 60;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private BookPassageMapper bookPassageMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public BookSearchService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * (Re)builds the text index of one book. A file that isn't a readable EPUB is marked indexed
+     * with no passages so it isn't retried on every search.
+     */
+    public void indexBook(String bookId, byte[] data) {
+        transactionTemplate.executeWithoutResult(status -> {
+            bookPassageMapper.deleteByBookId(bookId);
+            List<BookPassage> batch = new ArrayList<>(INSERT_BATCH);
+            int[] seq = {0};
+            try {
+                EpubArchive archive = EpubArchive.open(data);
+                int failed = EpubTextExtractor.extract(archive, EpubPackage.read(archive), passage -> {
+                    BookPassage row = new BookPassage();
+                    row.setBookId(bookId);
+                    row.setSeq(seq[0]++);
+                    row.setSpineIndex(passage.spineIndex());
+                    row.setCfi(passage.cfi());
+                    row.setContent(passage.text());
+                    batch.add(row);
+                    if (batch.size() == INSERT_BATCH) {
+                        bookPassageMapper.insertAll(batch);
+                        batch.clear();
+                    }
+                });
+                if (!batch.isEmpty()) {
+                    bookPassageMapper.insertAll(batch);
+                }
+                if (failed > 0) {
+                    log.warn("Book {}: {} chapter(s) could not be parsed and are not searchable", bookId, failed);
+                }
+            } catch (EpubException e) {
+                log.warn("Book {} is not a readable EPUB, skipping text index: {}", bookId, e.getMessage());
+            }
+            bookMapper.markTextIndexed(bookId);
+        });
+    }
+
+    // Null when the user has no book with this id
+    public List<BookSearchHit> searchBook(Long userId, String bookId, String query, Integer limit) {
+        String term = validate(query);
+        Boolean indexed = bookMapper.isTextIndexed(bookId, userId);
+        if (indexed == null) {
+            return null;
+        }
+        if (!indexed) {
+            indexStored(bookId);
+        }
+        return snippets(bookPassageMapper.search(bookId, userId, likePattern(term), clamp(limit)), term);
+    }
+
+    public List<BookSearchHit> searchLibrary(Long userId, String query, Integer limit) {
+        String term = validate(query);
+        for (String bookId : bookMapper.findTextUnindexedIds(userId)) {
+            indexStored(bookId);
+        }
+        return snippets(bookPassageMapper.searchLibrary(userId, likePattern(term), clamp(limit)), term);
+    }
+
+    private void indexStored(String bookId) {
+        Book book = bookMapper.findById(bookId);
+        if (book != null) {
+            indexBook(bookId, book.getFileData() == null ? new byte[0] : book.getFileData());
+        }
+    }
+
+    private static String validate(String query) {
+        String term = query == null ? "" : query.trim();
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (term.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query is too long");
+        }
+        return term;
+    }
+
+    private static int clamp(Integer limit) {
+        return limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+    }
+
+    private static String likePattern(String term) {
+        return "%" + term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    // The mapper puts the whole passage in snippet; cut it down to some context around the first match
+    private static List<BookSearchHit> snippets(List<BookSearchHit> hits, String term) {
+        String needle = term.toLowerCase(Locale.ROOT);
+        for (BookSearchHit hit : hits) {
+            String text = hit.getSnippet();
+            int match = text.toLowerCase(Locale.ROOT).indexOf(needle);
+            int matchLength = match >= 0 ? term.length() : 0;
+            match = Math.max(match, 0);
+            int start = Math.max(0, match - SNIPPET_CONTEXT);
+            int end = Math.min(text.length(), match + matchLength + SNIPPET_CONTEXT);
+            String prefix = start > 0 ? "…" : "";
+            hit.setSnippet(prefix + text.substring(start, end) + (end < text.length() ? "…" : ""));
+            hit.setMatchStart(match - start + prefix.length());
+            hit.setMatchLength(matchLength);
+        }
+        return hits;
+    }
+}
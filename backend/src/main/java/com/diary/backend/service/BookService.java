@@ -1,11 +1,13 @@
 package com.diary.backend.service;
 
+import com.diary.backend.common.ResourceVersions;
 import com.diary.backend.entity.Book;
-import com.diary.backend.entity.BookNote;
+import com.diary.backend.jobs.BookProcessingJob;
+import com.diary.backend.jobs.JobQueue;
 import com.diary.backend.mapper.BookMapper;
-import com.diary.backend.mapper.BookNoteMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -18,20 +20,27 @@ public class BookService {
     private BookMapper bookMapper;
     
     @Autowired
-    private BookNoteMapper bookNoteMapper;
+    private ResourceVersions resourceVersions;
 
+    @Autowired
+    private JobQueue jobQueue;
+
+    @Transactional(readOnly = true)
     public List<Book> getBooks(Long userId) {
         return bookMapper.findAllByUserId(userId);
     }
 
-    public Book getBook(String id) {
-        return bookMapper.findById(id);
+    @Transactional(readOnly = true)
+    public Book getBook(Long userId, String id) {
+        return bookMapper.findOwnedById(id, userId);
     }
 
-    public Book getBookMetadata(String id) {
-        return bookMapper.findMetadataById(id);
+    @Transactional(readOnly = true)
+    public Book getBookMetadata(Long userId, String id) {
+        return bookMapper.findOwnedMetadataById(id, userId);
     }
 
+    @Transactional
     public void saveBook(Long userId, String title, String author, MultipartFile file, String coverImage) throws IOException {
         Book book = new Book();
         book.setId(UUID.randomUUID().toString());
@@ -41,27 +50,26 @@ public class BookService {
         book.setCoverImage(coverImage);
         book.setFileData(file.getBytes());
         bookMapper.insert(book);
+        resourceVersions.bumpAfterCommit(ResourceVersions.books(userId));
+        // Parsing a large EPUB takes seconds; do it in the background so search and per-chapter
+        // reading are ready soon after upload without holding up the request
+        jobQueue.enqueue(BookProcessingJob.KIND, book.getId(), JobQueue.PRIORITY_HIGH);
     }
 
-    public void deleteBook(String id) {
-        bookMapper.deleteById(id);
-    }
-
-    public void updateProgress(String id, String progress) {
-        bookMapper.updateProgress(id, progress);
-    }
-
-    public List<BookNote> getNotes(String bookId, Long userId) {
-        return bookNoteMapper.findByBookId(bookId, userId);
-    }
-
-    public void addNote(Long userId, BookNote note) {
-        note.setId(UUID.randomUUID().toString());
-        note.setUserId(userId);
-        bookNoteMapper.insert(note);
+    // False when the user has no book with this id
+    public boolean deleteBook(Long userId, String id) {
+        if (bookMapper.deleteOwned(id, userId) == 0) {
+            return false;
+        }
+        resourceVersions.bump(ResourceVersions.books(userId), ResourceVersions.book(id));
+        return true;
     }
 
-    public void deleteNote(String id) {
-        bookNoteMapper.deleteById(id);
+    public boolean updateProgress(Long userId, String id, String progress) {
+        if (bookMapper.updateProgress(id, userId, progress) == 0) {
+            return false;
+        }
+        resourceVersions.bump(ResourceVersions.books(userId), ResourceVersions.book(id));
+        return true;
     }
 }
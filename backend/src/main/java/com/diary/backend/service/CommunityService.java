@@ -1,6 +1,11 @@
 package com.diary.backend.service;
 
+import com.diary.backend.common.AfterCommit;
+import com.diary.backend.common.Cursors;
+import com.diary.backend.common.ResourceVersions;
 import com.diary.backend.dto.CommunityEntryDTO;
+import com.diary.backend.dto.StoryVoteCount;
+import com.diary.backend.dto.TopicStoriesDTO;
 import com.diary.backend.entity.Comment;
 import com.diary.backend.entity.DiaryEntry;
 import com.diary.backend.mapper.CommunityMapper;
@@ -9,7 +14,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 public class CommunityService {
@@ -20,10 +30,52 @@ public class CommunityService {
     @Autowired
     private DiaryEntryMapper diaryEntryMapper;
 
+    @Autowired
+    private TopicLeaderboard topicLeaderboard;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Transactional(readOnly = true)
     public List<CommunityEntryDTO> getSharedEntries(Long currentUserId) {
         return communityMapper.findSharedEntries(currentUserId);
     }
 
+    @Transactional(readOnly = true)
+    public void streamSharedEntries(Long currentUserId, Consumer<CommunityEntryDTO> consumer) {
+        Cursors.drain(communityMapper.streamSharedEntries(currentUserId), consumer);
+    }
+
+    public TopicStoriesDTO getTopicStories(LocalDate date, Long currentUserId) {
+        Map<String, CommunityEntryDTO> byId = new LinkedHashMap<>();
+        for (CommunityEntryDTO story : communityMapper.findStoriesByDate(date, currentUserId)) {
+            byId.put(story.getId(), story);
+        }
+
+        List<CommunityEntryDTO> ranked = new ArrayList<>(byId.size());
+        for (StoryVoteCount row : topicLeaderboard.getRanking(date)) {
+            CommunityEntryDTO story = byId.remove(row.getEntryId());
+            if (story != null) {
+                story.setVoteCount(row.getVotes());
+                ranked.add(story);
+            }
+        }
+        if (!byId.isEmpty()) {
+            // Stories the board hasn't seen yet: show them last and rebuild the board for next time
+            topicLeaderboard.invalidate(date);
+            for (CommunityEntryDTO story : byId.values()) {
+                story.setVoteCount(0);
+                ranked.add(story);
+            }
+        }
+
+        TopicStoriesDTO result = new TopicStoriesDTO();
+        result.setDate(date);
+        result.setStories(ranked);
+        result.setMySubmission(diaryEntryMapper.findStoryByUserAndDate(currentUserId, date));
+        return result;
+    }
+
     @Transactional
     public void likeEntry(Long userId, String entryId) {
         DiaryEntry entry = diaryEntryMapper.findById(entryId);
@@ -34,11 +86,13 @@ public class CommunityService {
             throw new RuntimeException("Cannot like a daily story. Please vote instead.");
         }
         communityMapper.likeEntry(userId, entryId);
+        resourceVersions.bumpAfterCommit(ResourceVersions.COMMUNITY);
     }
 
     @Transactional
     public void unlikeEntry(Long userId, String entryId) {
         communityMapper.unlikeEntry(userId, entryId);
+        resourceVersions.bumpAfterCommit(ResourceVersions.COMMUNITY);
     }
 
     @Transactional
@@ -50,12 +104,18 @@ public class CommunityService {
         if (!Boolean.TRUE.equals(entry.getIsStory())) {
             throw new RuntimeException("Cannot vote for a non-story entry. Please like instead.");
         }
-        communityMapper.voteEntry(userId, entryId);
+        if (communityMapper.voteEntry(userId, entryId) > 0) {
+            AfterCommit.run(() -> topicLeaderboard.adjustVotes(entryId, 1));
+            resourceVersions.bumpAfterCommit(ResourceVersions.COMMUNITY);
+        }
     }
 
     @Transactional
     public void unvoteEntry(Long userId, String entryId) {
-        communityMapper.unvoteEntry(userId, entryId);
+        if (communityMapper.unvoteEntry(userId, entryId) > 0) {
+            AfterCommit.run(() -> topicLeaderboard.adjustVotes(entryId, -1));
+            resourceVersions.bumpAfterCommit(ResourceVersions.COMMUNITY);
+        }
     }
 
     @Transactional
@@ -65,17 +125,26 @@ public class CommunityService {
         comment.setEntryId(entryId);
         comment.setContent(content);
         comment.setParentId(parentId);
-        communityMapper.addComment(comment);
+        if (communityMapper.addComment(comment) == 0) {
+            throw new RuntimeException("Entry not found");
+        }
+        resourceVersions.bumpAfterCommit(ResourceVersions.COMMUNITY, ResourceVersions.comments(entryId));
         // Fetch back to get author name properly populated if needed, or just return basic
         // For simplicity, we assume frontend knows current user name or we re-fetch
         return comment; 
     }
 
+    @Transactional(readOnly = true)
     public List<Comment> getComments(String entryId) {
         return communityMapper.findComments(entryId);
     }
 
-    public void deleteComment(Long commentId) {
-        communityMapper.deleteComment(commentId);
+    // False when there is no such comment or the user is neither its author nor the entry's owner
+    public boolean deleteComment(Long userId, String entryId, Long commentId) {
+        if (communityMapper.deleteComment(entryId, commentId, userId) == 0) {
+            return false;
+        }
+        resourceVersions.bump(ResourceVersions.COMMUNITY, ResourceVersions.comments(entryId));
+        return true;
     }
 }
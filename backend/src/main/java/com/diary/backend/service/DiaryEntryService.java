@@ -1,26 +1,88 @@
 package com.diary.backend.service;
 
+import com.diary.backend.common.AfterCommit;
+import com.diary.backend.common.BatchGets;
+import com.diary.backend.common.Cursors;
+import com.diary.backend.common.RequestCoalescer;
+import com.diary.backend.common.ResourceVersions;
+import com.diary.backend.config.ReadWriteRoutingDataSource;
+import com.diary.backend.dto.BatchGetResult;
 import com.diary.backend.entity.DiaryEntry;
+import com.diary.backend.mapper.CommunityMapper;
 import com.diary.backend.mapper.DiaryEntryMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class DiaryEntryService {
 
+    private static final String STORY_LIMIT_INDEX = "uq_diary_entries_daily_story";
+
     @Autowired
     private DiaryEntryMapper diaryEntryMapper;
 
+    @Autowired
+    private CommunityMapper communityMapper;
+
+    @Autowired
+    private TopicLeaderboard topicLeaderboard;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final RequestCoalescer<String, DiaryEntry> entryLoads = new RequestCoalescer<>();
+    private final ReadWriteRoutingDataSource readRouting;
+
+    public DiaryEntryService(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                             DataSource dataSource) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readRouting = ReadWriteRoutingDataSource.find(dataSource);
+        RequestCoalescer.register(meterRegistry, "entry", entryLoads);
+    }
+
+    @Transactional(readOnly = true)
     public List<DiaryEntry> getEntries(Long userId) {
         return diaryEntryMapper.findByUserId(userId);
     }
 
-    public DiaryEntry getEntry(String id) {
-        return diaryEntryMapper.findById(id);
+    @Transactional(readOnly = true)
+    public void streamEntries(Long userId, Consumer<DiaryEntry> consumer) {
+        Cursors.drain(diaryEntryMapper.streamByUserId(userId), consumer);
+    }
+
+    /**
+     * Returns the entry if it is the user's own or shared, null otherwise. Concurrent reads of the
+     * same entry by the same user share one query; what a caller may see depends on who they are,
+     * so loads are never shared between users. The transaction is opened by the loading caller
+     * only, so waiting callers don't hold a connection. With a read replica, callers only join a
+     * load headed for the same database: a user still sticky to the primary after a write must not
+     * be handed the replica's copy.
+     */
+    public DiaryEntry getEntry(Long userId, String id) {
+        String key = userId + ":" + id;
+        if (readRouting != null) {
+            key = readRouting.readTarget() + ":" + key;
+        }
+        return entryLoads.load(key, () -> readOnlyTransaction.execute(status -> diaryEntryMapper.findVisibleById(id, userId)));
+    }
+
+    @Transactional(readOnly = true)
+    public BatchGetResult<DiaryEntry> getEntriesByIds(Long userId, List<String> ids) {
+        String[] unique = BatchGets.ids(ids);
+        return BatchGets.inRequestOrder(unique, diaryEntryMapper.findByIds(userId, unique), DiaryEntry::getId);
     }
 
     @Transactional
@@ -28,19 +90,20 @@ public class DiaryEntryService {
         if (entry.getIsStory() == null) {
             entry.setIsStory(false);
         }
-        // Check story limit
-        if (Boolean.TRUE.equals(entry.getIsStory())) {
-            int count = diaryEntryMapper.countStoriesByDate(entry.getUserId(), entry.getDate(), "");
-            if (count > 0) {
-                throw new RuntimeException("You can only post one daily story per day.");
-            }
-        }
-
         // Generate a random ID if it's not already set
         if (entry.getId() == null) {
             entry.setId(UUID.randomUUID().toString());
         }
-        diaryEntryMapper.insert(entry);
+        try {
+            diaryEntryMapper.insert(entry);
+        } catch (DuplicateKeyException e) {
+            throw translateStoryLimit(e);
+        }
+        resourceVersions.bumpAfterCommit(ResourceVersions.entries(entry.getUserId()), ResourceVersions.COMMUNITY);
+        if (isTopicStory(entry)) {
+            String id = entry.getId();
+            AfterCommit.run(() -> topicLeaderboard.addStory(id, entry.getDate(), LocalDateTime.now()));
+        }
     }
 
     @Transactional
@@ -48,44 +111,94 @@ public class DiaryEntryService {
         if (entry.getIsStory() == null) {
             entry.setIsStory(false);
         }
-        // Check story limit
-        if (Boolean.TRUE.equals(entry.getIsStory())) {
-            int count = diaryEntryMapper.countStoriesByDate(entry.getUserId(), entry.getDate(), entry.getId());
-            if (count > 0) {
-                throw new RuntimeException("You can only post one daily story per day.");
+        try {
+            if (diaryEntryMapper.update(entry) == 0) {
+                throw new RuntimeException("Entry not found");
             }
+        } catch (DuplicateKeyException e) {
+            throw translateStoryLimit(e);
         }
-        diaryEntryMapper.update(entry);
+        bumpVersions(entry.getId(), entry.getUserId());
+        // The entry may have left or joined a topic day, or changed privacy
+        AfterCommit.run(() -> {
+            topicLeaderboard.invalidateEntry(entry.getId());
+            if (Boolean.TRUE.equals(entry.getIsStory())) {
+                topicLeaderboard.invalidate(entry.getDate());
+            }
+        });
     }
 
     @Transactional
-    public void deleteEntry(String id) {
-        diaryEntryMapper.softDelete(id);
+    public void deleteEntry(String id, Long userId) {
+        if (diaryEntryMapper.softDelete(id, userId) > 0) {
+            bumpVersions(id, userId);
+            AfterCommit.run(() -> topicLeaderboard.invalidateEntry(id));
+        }
     }
 
     @Transactional
-    public void restoreEntry(String id) {
-        diaryEntryMapper.restore(id);
+    public void restoreEntry(String id, Long userId) {
+        try {
+            if (diaryEntryMapper.restore(id, userId) == 0) {
+                return;
+            }
+        } catch (DuplicateKeyException e) {
+            throw translateStoryLimit(e);
+        }
+        bumpVersions(id, userId);
+        DiaryEntry entry = diaryEntryMapper.findOwnedById(id, userId);
+        if (entry != null && Boolean.TRUE.equals(entry.getIsStory())) {
+            AfterCommit.run(() -> topicLeaderboard.invalidate(entry.getDate()));
+        }
     }
 
     @Transactional
-    public void permanentlyDeleteEntry(String id) {
-        diaryEntryMapper.deletePermanently(id);
+    public void permanentlyDeleteEntry(String id, Long userId) {
+        if (diaryEntryMapper.findOwnedById(id, userId) == null) {
+            return;
+        }
+        bumpVersions(id, userId);
+        communityMapper.deleteLikesOfEntry(id);
+        communityMapper.deleteVotesOfEntry(id);
+        communityMapper.deleteCommentsOfEntry(id);
+        diaryEntryMapper.deletePermanently(id, userId);
+        AfterCommit.run(() -> topicLeaderboard.invalidateEntry(id));
     }
     
+    @Transactional(readOnly = true)
     public List<DiaryEntry> getTrash(Long userId) {
         return diaryEntryMapper.findDeletedByUserId(userId);
     }
 
+    @Transactional(readOnly = true)
+    public void streamTrash(Long userId, Consumer<DiaryEntry> consumer) {
+        Cursors.drain(diaryEntryMapper.streamDeletedByUserId(userId), consumer);
+    }
+
+    private void bumpVersions(String entryId, Long ownerId) {
+        resourceVersions.bumpAfterCommit(ResourceVersions.entries(ownerId), ResourceVersions.entry(entryId),
+                ResourceVersions.COMMUNITY);
+    }
+
+    // The one-story-per-day rule is enforced by the uq_diary_entries_daily_story partial index
+    private static RuntimeException translateStoryLimit(DuplicateKeyException e) {
+        if (e.getMessage() != null && e.getMessage().contains(STORY_LIMIT_INDEX)) {
+            return new RuntimeException("You can only post one daily story per day.");
+        }
+        return e;
+    }
+
+    private static boolean isTopicStory(DiaryEntry entry) {
+        return Boolean.TRUE.equals(entry.getIsStory()) && "shared".equals(entry.getPrivacy());
+    }
+
     @Transactional
     public void moveEntryToFolder(String entryId, String folderId, Long userId) {
-        DiaryEntry entry = diaryEntryMapper.findById(entryId);
+        DiaryEntry entry = diaryEntryMapper.findOwnedById(entryId, userId);
         if (entry == null) {
             throw new RuntimeException("Entry not found");
         }
-        if (!entry.getUserId().equals(userId)) {
-            throw new RuntimeException("Unauthorized");
-        }
-        diaryEntryMapper.updateFolder(entryId, folderId);
+        diaryEntryMapper.updateFolder(entryId, userId, folderId);
+        resourceVersions.bumpAfterCommit(ResourceVersions.entries(userId), ResourceVersions.entry(entryId));
     }
 }
@@ -0,0 +1,249 @@
+package com.diary.backend.service;
+
+import com.diary.backend.entity.Book;
+import com.diary.backend.entity.BookNote;
+import com.diary.backend.entity.DiaryEntry;
+import com.diary.backend.entity.Folder;
+import com.diary.backend.entity.MindMap;
+import com.diary.backend.mapper.BookMapper;
+import com.diary.backend.mapper.BookNoteMapper;
+import com.diary.backend.mapper.DiaryEntryMapper;
+import com.diary.backend.mapper.FolderMapper;
+import com.diary.backend.mapper.MindMapMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a user's whole account as a ZIP:
+ * <pre>
+ * export.json             format version and counts
+ * folders.json
+ * entries.ndjson          one JSON entry per line, with the folder name
+ * entries/*.md            the same entries as Markdown with front matter
+ * mindmaps/*.json         the stored mind map documents
+ * books.json, notes.json
+ * books/*.epub
+ * </pre>
+ * Rows are read in small keyset pages and book files in fixed-size chunks, each with its own short
+ * query, so heap use doesn't grow with the account and no connection is held while the client is slow
+ * to read.
+ */
+@Service
+public class ExportService {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int PAGE_SIZE = 200;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    @Autowired
+    private DiaryEntryMapper diaryEntryMapper;
+
+    @Autowired
+    private FolderMapper folderMapper;
+
+    @Autowired
+    private MindMapMapper mindMapMapper;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private BookNoteMapper bookNoteMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void exportAccount(Long userId, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+
+        List<Folder> folders = folderMapper.findByUserId(userId);
+        Map<String, String> folderNames = new HashMap<>();
+        for (Folder folder : folders) {
+            folderNames.put(folder.getId(), folder.getName());
+        }
+        putJson(zip, "folders.json", folders);
+
+        int entries = writeEntriesNdjson(zip, userId, folderNames);
+        writeEntriesMarkdown(zip, userId, folderNames);
+        int mindMaps = writeMindMaps(zip, userId);
+        int books = writeBooks(zip, userId);
+        int notes = writeJsonArray(zip, "notes.json",
+                afterId -> bookNoteMapper.findPageByUserId(userId, afterId, PAGE_SIZE), BookNote::getId);
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("version", FORMAT_VERSION);
+        summary.put("userId", userId);
+        summary.put("exportedAt", LocalDateTime.now());
+        summary.put("entries", entries);
+        summary.put("mindMaps", mindMaps);
+        summary.put("books", books);
+        summary.put("notes", notes);
+        putJson(zip, "export.json", summary);
+
+        zip.finish();
+        zip.flush();
+    }
+
+    private int writeEntriesNdjson(ZipOutputStream zip, Long userId, Map<String, String> folderNames) throws IOException {
+        zip.putNextEntry(new ZipEntry("entries.ndjson"));
+        int count = 0;
+        String afterId = "";
+        List<DiaryEntry> page;
+        do {
+            page = diaryEntryMapper.findPageByUserId(userId, afterId, PAGE_SIZE);
+            for (DiaryEntry entry : page) {
+                ObjectNode line = objectMapper.valueToTree(entry);
+                line.put("folder", folderNames.get(entry.getFolderId()));
+                zip.write(objectMapper.writeValueAsBytes(line));
+                zip.write('\n');
+                afterId = entry.getId();
+                count++;
+            }
+        } while (page.size() == PAGE_SIZE);
+        zip.closeEntry();
+        return count;
+    }
+
+    private void writeEntriesMarkdown(ZipOutputStream zip, Long userId, Map<String, String> folderNames) throws IOException {
+        String afterId = "";
+        List<DiaryEntry> page;
+        do {
+            page = diaryEntryMapper.findPageByUserId(userId, afterId, PAGE_SIZE);
+            for (DiaryEntry entry : page) {
+                zip.putNextEntry(new ZipEntry("entries/" + entry.getDate() + "_" + fileName(entry.getTitle(), entry.getId()) + ".md"));
+                StringBuilder markdown = new StringBuilder("---\n");
+                frontMatter(markdown, "id", entry.getId());
+                frontMatter(markdown, "title", entry.getTitle());
+                frontMatter(markdown, "date", entry.getDate());
+                frontMatter(markdown, "folder", folderNames.get(entry.getFolderId()));
+                frontMatter(markdown, "mood", entry.getMood());
+                frontMatter(markdown, "tags", entry.getTags());
+                frontMatter(markdown, "privacy", entry.getPrivacy());
+                frontMatter(markdown, "story", entry.getIsStory());
+                frontMatter(markdown, "created", entry.getCreatedAt());
+                frontMatter(markdown, "updated", entry.getUpdatedAt());
+                markdown.append("---\n\n");
+                if (entry.getContent() != null) {
+                    markdown.append(entry.getContent()).append('\n');
+                }
+                zip.write(markdown.toString().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+                afterId = entry.getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    // Values are written as JSON literals, which are also valid YAML
+    private void frontMatter(StringBuilder markdown, String key, Object value) throws IOException {
+        if (value != null) {
+            markdown.append(key).append(": ").append(objectMapper.writeValueAsString(value)).append('\n');
+        }
+    }
+
+    private int writeMindMaps(ZipOutputStream zip, Long userId) throws IOException {
+        int count = 0;
+        String afterId = "";
+        List<MindMap> page;
+        do {
+            page = mindMapMapper.findPageByUserId(userId, afterId, PAGE_SIZE);
+            for (MindMap mindMap : page) {
+                zip.putNextEntry(new ZipEntry("mindmaps/" + fileName(mindMap.getTitle(), mindMap.getId()) + ".json"));
+                if (mindMap.getContent() != null) {
+                    zip.write(mindMap.getContent().getBytes(StandardCharsets.UTF_8));
+                }
+                zip.closeEntry();
+                afterId = mindMap.getId();
+                count++;
+            }
+        } while (page.size() == PAGE_SIZE);
+        return count;
+    }
+
+    private int writeBooks(ZipOutputStream zip, Long userId) throws IOException {
+        int count = writeJsonArray(zip, "books.json",
+                afterId -> bookMapper.findMetadataPageByUserId(userId, afterId, PAGE_SIZE), Book::getId);
+
+        // EPUBs are zip files already: store them without spending CPU on another deflate pass
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        String afterId = "";
+        List<Book> page;
+        do {
+            page = bookMapper.findMetadataPageByUserId(userId, afterId, PAGE_SIZE);
+            for (Book book : page) {
+                afterId = book.getId();
+                Integer length = bookMapper.findFileLength(book.getId());
+                if (length == null) {
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry("books/" + fileName(book.getTitle(), book.getId()) + ".epub"));
+                for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+                    Book chunk = bookMapper.findFileChunk(book.getId(), userId, offset + 1, CHUNK_SIZE);
+                    if (chunk == null || chunk.getFileData() == null || chunk.getFileData().length == 0) {
+                        break;
+                    }
+                    zip.write(chunk.getFileData());
+                }
+                zip.closeEntry();
+            }
+        } while (page.size() == PAGE_SIZE);
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        return count;
+    }
+
+    private <T> int writeJsonArray(ZipOutputStream zip, String name, Function<String, List<T>> pages,
+                                   Function<T, String> idOf) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(zip);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartArray();
+        int count = 0;
+        String afterId = "";
+        List<T> page;
+        do {
+            page = pages.apply(afterId);
+            for (T row : page) {
+                generator.writeObject(row);
+                afterId = idOf.apply(row);
+                count++;
+            }
+        } while (page.size() == PAGE_SIZE);
+        generator.writeEndArray();
+        generator.close();
+        zip.closeEntry();
+        return count;
+    }
+
+    private void putJson(ZipOutputStream zip, String name, Object value) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(objectMapper.writeValueAsBytes(value));
+        zip.closeEntry();
+    }
+
+    // Titles are user input: keep them readable but safe as path segments, and unique via the id
+    private static String fileName(String title, String id) {
+        String base = title == null ? "" : title.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+        if (base.isEmpty()) {
+            base = "untitled";
+        } else if (base.length() > 60) {
+            base = base.substring(0, 60);
+        }
+        String suffix = id.length() > 8 ? id.substring(0, 8) : id;
+        return base + "_" + suffix;
+    }
+}
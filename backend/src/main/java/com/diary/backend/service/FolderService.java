@@ -1,10 +1,12 @@
 package com.diary.backend.service;
 
+import com.diary.backend.common.ResourceVersions;
 import com.diary.backend.common.Result;
 import com.diary.backend.entity.Folder;
 import com.diary.backend.mapper.FolderMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
@@ -18,6 +20,10 @@ public class FolderService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Transactional(readOnly = true)
     public Result<List<Folder>> getUserFolders(Long userId) {
         return Result.success(folderMapper.findByUserId(userId));
     }
@@ -29,6 +35,7 @@ public class FolderService {
         folder.setName(name);
 
         folderMapper.insert(folder);
+        resourceVersions.bump(ResourceVersions.folders(userId));
         return Result.success(folder);
     }
 
@@ -43,6 +50,7 @@ public class FolderService {
 
         folder.setName(name);
         folderMapper.update(folder);
+        resourceVersions.bump(ResourceVersions.folders(userId));
         return Result.success(null);
     }
 
@@ -57,6 +65,7 @@ public class FolderService {
 
         // Note: Database foreign key is set to ON DELETE SET NULL, so entries will be unassigned automatically
         folderMapper.delete(id);
+        resourceVersions.bump(ResourceVersions.folders(userId), ResourceVersions.entries(userId));
         return Result.success(null);
     }
 }
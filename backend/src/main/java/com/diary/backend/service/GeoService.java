@@ -0,0 +1,107 @@
+package com.diary.backend.service;
+
+import com.diary.backend.common.ExpiringCache;
+import com.diary.backend.dto.GeoPlace;
+import com.diary.backend.dto.WeatherReport;
+import com.diary.backend.geo.GeoProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Location and weather for new entries, looked up once on the server for everyone instead of
+ * from every browser. Coordinates are rounded before they become cache keys (and before they are
+ * sent upstream), so users in the same neighbourhood share an answer: about 1km for place names,
+ * about 10km for weather, which is roughly the resolution of the weather model anyway.
+ */
+@Service
+public class GeoService {
+
+    public static final int SEARCH_LIMIT = 5;
+    private static final int MAX_QUERY_LENGTH = 100;
+
+    @Autowired
+    private GeoProvider geoProvider;
+
+    private final ExpiringCache<String, GeoPlace> places;
+    private final ExpiringCache<String, List<GeoPlace>> searches;
+    private final ExpiringCache<String, WeatherReport> weather;
+    private final Duration placeTtl;
+    private final Duration weatherTtl;
+
+    public GeoService(MeterRegistry meterRegistry,
+                      @Value("${diary.geo.cache-size:10000}") int cacheSize,
+                      @Value("${diary.geo.place-ttl-hours:24}") long placeTtlHours,
+                      @Value("${diary.geo.weather-ttl-minutes:10}") long weatherTtlMinutes) {
+        this.places = new ExpiringCache<>(cacheSize);
+        this.searches = new ExpiringCache<>(cacheSize);
+        this.weather = new ExpiringCache<>(cacheSize);
+        this.placeTtl = Duration.ofHours(placeTtlHours);
+        this.weatherTtl = Duration.ofMinutes(weatherTtlMinutes);
+        register(meterRegistry, "reverse", places);
+        register(meterRegistry, "search", searches);
+        register(meterRegistry, "weather", weather);
+    }
+
+    public GeoPlace reverse(double latitude, double longitude) {
+        double lat = round(checkLatitude(latitude), 100);
+        double lon = round(checkLongitude(longitude), 100);
+        return places.get(lat + "," + lon, placeTtl, () -> geoProvider.reverse(lat, lon));
+    }
+
+    public List<GeoPlace> search(String query) {
+        String term = query == null ? "" : query.trim().replaceAll("\\s+", " ");
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (term.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query is too long");
+        }
+        return searches.get(term.toLowerCase(Locale.ROOT), placeTtl, () -> List.copyOf(geoProvider.search(term, SEARCH_LIMIT)));
+    }
+
+    public WeatherReport currentWeather(double latitude, double longitude) {
+        double lat = round(checkLatitude(latitude), 10);
+        double lon = round(checkLongitude(longitude), 10);
+        return weather.get(lat + "," + lon, weatherTtl, () -> geoProvider.currentWeather(lat, lon));
+    }
+
+    private static double round(double value, int scale) {
+        return Math.round(value * scale) / (double) scale;
+    }
+
+    private static double checkLatitude(double latitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new IllegalArgumentException("Latitude must be between -90 and 90");
+        }
+        return latitude;
+    }
+
+    private static double checkLongitude(double longitude) {
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Longitude must be between -180 and 180");
+        }
+        return longitude;
+    }
+
+    private static void register(MeterRegistry registry, String kind, ExpiringCache<?, ?> cache) {
+        FunctionCounter.builder("diary.geo.cache.requests", cache, ExpiringCache::hits)
+                .description("Geo lookups by cache outcome; a hit includes joining a lookup already in flight")
+                .tags("kind", kind, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("diary.geo.cache.requests", cache, ExpiringCache::misses)
+                .description("Geo lookups by cache outcome; a hit includes joining a lookup already in flight")
+                .tags("kind", kind, "result", "miss")
+                .register(registry);
+        Gauge.builder("diary.geo.cache.size", cache, ExpiringCache::size)
+                .tags("kind", kind)
+                .register(registry);
+    }
+}
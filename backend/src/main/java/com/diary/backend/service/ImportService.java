@@ -0,0 +1,292 @@
+package com.diary.backend.service;
+
+import com.diary.backend.common.ResourceVersions;
+import com.diary.backend.dto.ImportError;
+import com.diary.backend.dto.ImportProgress;
+import com.diary.backend.entity.DiaryEntry;
+import com.diary.backend.entity.Folder;
+import com.diary.backend.mapper.DiaryEntryMapper;
+import com.diary.backend.mapper.FolderMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Bulk import of diary entries from NDJSON (one entry object per line, the format of entries.ndjson
+ * in an account export), or from an export ZIP containing it. Lines are parsed one at a time and
+ * written in chunks through a MyBatis BATCH executor, one transaction per chunk, so memory stays at
+ * one chunk and a bad record only costs its own line.
+ * <p>
+ * Recognized fields: date (required, yyyy-MM-dd), title, content, tags, mood, privacy, folder (a
+ * folder name, created if missing), createdAt, updatedAt. Imported entries always get new ids and
+ * are never daily stories.
+ */
+@Service
+public class ImportService {
+
+    public static final int CHUNK_SIZE = 1000;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private DiaryEntryMapper diaryEntryMapper;
+
+    @Autowired
+    private FolderMapper folderMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ImportService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void importArchive(Long userId, InputStream in, Consumer<ImportProgress> progress) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        ZipEntry zipEntry;
+        while ((zipEntry = zip.getNextEntry()) != null) {
+            if ("entries.ndjson".equals(zipEntry.getName())) {
+                // Keep the reader from closing the whole archive
+                importEntries(userId, new FilterInputStream(zip) {
+                    @Override
+                    public void close() {
+                    }
+                }, progress);
+                return;
+            }
+        }
+        ImportProgress result = new ImportProgress();
+        result.setDone(true);
+        result.getErrors().add(new ImportError(0, "Archive has no entries.ndjson"));
+        progress.accept(result);
+    }
+
+    public void importEntries(Long userId, InputStream in, Consumer<ImportProgress> progress) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Map<String, String> folderIds = new HashMap<>();
+        for (Folder folder : folderMapper.findByUserId(userId)) {
+            folderIds.putIfAbsent(folder.getName(), folder.getId());
+        }
+
+        ImportProgress report = new ImportProgress();
+        List<Integer> lineNumbers = new ArrayList<>(CHUNK_SIZE);
+        List<DiaryEntry> chunk = new ArrayList<>(CHUNK_SIZE);
+        int lineNumber = 0;
+        int sharedImported = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            report.setProcessed(report.getProcessed() + 1);
+            try {
+                chunk.add(parseEntry(userId, line, folderIds));
+                lineNumbers.add(lineNumber);
+            } catch (IllegalArgumentException e) {
+                fail(report, lineNumber, e.getMessage());
+            }
+            if (chunk.size() == CHUNK_SIZE) {
+                sharedImported += writeChunk(chunk, lineNumbers, report);
+                progress.accept(report);
+                report = nextReport(report);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sharedImported += writeChunk(chunk, lineNumbers, report);
+        }
+        report.setDone(true);
+        progress.accept(report);
+        resourceVersions.bump(ResourceVersions.entries(userId), ResourceVersions.folders(userId));
+        if (sharedImported > 0) {
+            // Shared entries show up in the community feed
+            resourceVersions.bump(ResourceVersions.COMMUNITY);
+        }
+    }
+
+    private DiaryEntry parseEntry(Long userId, String line, Map<String, String> folderIds) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+
+        DiaryEntry entry = new DiaryEntry();
+        entry.setId(UUID.randomUUID().toString());
+        entry.setUserId(userId);
+        String date = text(node, "date", 10);
+        if (date == null) {
+            throw new IllegalArgumentException("date is required");
+        }
+        try {
+            entry.setDate(LocalDate.parse(date));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("date must be yyyy-MM-dd");
+        }
+        entry.setTitle(text(node, "title", 255));
+        entry.setContent(text(node, "content", Integer.MAX_VALUE));
+        entry.setMood(text(node, "mood", 50));
+
+        String privacy = text(node, "privacy", 20);
+        if (privacy != null && !"private".equals(privacy) && !"shared".equals(privacy)) {
+            throw new IllegalArgumentException("privacy must be 'private' or 'shared'");
+        }
+        entry.setPrivacy(privacy == null ? "private" : privacy);
+
+        JsonNode tags = node.get("tags");
+        if (tags != null && !tags.isNull()) {
+            if (!tags.isArray()) {
+                throw new IllegalArgumentException("tags must be an array of strings");
+            }
+            String[] values = new String[tags.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = tags.get(i).asText();
+            }
+            entry.setTags(values);
+        }
+
+        String folder = text(node, "folder", 255);
+        if (folder != null && !folder.isBlank()) {
+            entry.setFolderId(folderIds.computeIfAbsent(folder, name -> createFolder(userId, name)));
+        }
+
+        entry.setCreatedAt(timestamp(node, "createdAt"));
+        entry.setUpdatedAt(timestamp(node, "updatedAt"));
+        return entry;
+    }
+
+    private String createFolder(Long userId, String name) {
+        Folder folder = new Folder();
+        folder.setId(UUID.randomUUID().toString());
+        folder.setUserId(userId);
+        folder.setName(name);
+        folderMapper.insert(folder);
+        return folder.getId();
+    }
+
+    private static String text(JsonNode node, String field, int maxLength) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (!value.isValueNode()) {
+            throw new IllegalArgumentException(field + " must be a string");
+        }
+        String text = value.asText();
+        if (text.length() > maxLength) {
+            throw new IllegalArgumentException(field + " is longer than " + maxLength + " characters");
+        }
+        return text;
+    }
+
+    private static LocalDateTime timestamp(JsonNode node, String field) {
+        String text = text(node, field, 64);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(text).toLocalDateTime();
+            } catch (DateTimeParseException e2) {
+                throw new IllegalArgumentException(field + " must be an ISO-8601 date-time");
+            }
+        }
+    }
+
+    // Returns how many shared entries were inserted
+    private int writeChunk(List<DiaryEntry> chunk, List<Integer> lineNumbers, ImportProgress report) {
+        int shared = 0;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+                    DiaryEntryMapper batchMapper = session.getMapper(DiaryEntryMapper.class);
+                    for (DiaryEntry entry : chunk) {
+                        batchMapper.insertImported(entry);
+                    }
+                    session.commit();
+                }
+            });
+            report.setImported(report.getImported() + chunk.size());
+            for (DiaryEntry entry : chunk) {
+                if ("shared".equals(entry.getPrivacy())) {
+                    shared++;
+                }
+            }
+        } catch (RuntimeException batchFailure) {
+            // One bad row fails the whole batch: redo this chunk row by row to pin it down
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    diaryEntryMapper.insertImported(chunk.get(i));
+                    report.setImported(report.getImported() + 1);
+                    if ("shared".equals(chunk.get(i).getPrivacy())) {
+                        shared++;
+                    }
+                } catch (RuntimeException e) {
+                    fail(report, lineNumbers.get(i), rootMessage(e));
+                }
+            }
+        }
+        chunk.clear();
+        lineNumbers.clear();
+        return shared;
+    }
+
+    private static void fail(ImportProgress report, int line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        report.getErrors().add(new ImportError(line, message));
+    }
+
+    private static ImportProgress nextReport(ImportProgress previous) {
+        ImportProgress next = new ImportProgress();
+        next.setProcessed(previous.getProcessed());
+        next.setImported(previous.getImported());
+        next.setFailed(previous.getFailed());
+        return next;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+}
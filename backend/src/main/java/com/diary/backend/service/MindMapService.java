@@ -1,12 +1,24 @@
 package com.diary.backend.service;
 
+import com.diary.backend.common.BatchGets;
+import com.diary.backend.common.Cursors;
+import com.diary.backend.common.RequestCoalescer;
+import com.diary.backend.common.ResourceVersions;
+import com.diary.backend.config.ReadWriteRoutingDataSource;
+import com.diary.backend.dto.BatchGetResult;
 import com.diary.backend.entity.MindMap;
 import com.diary.backend.mapper.MindMapMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.sql.DataSource;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class MindMapService {
@@ -14,12 +26,44 @@ public class MindMapService {
     @Autowired
     private MindMapMapper mindMapMapper;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final RequestCoalescer<String, MindMap> mindMapLoads = new RequestCoalescer<>();
+    private final ReadWriteRoutingDataSource readRouting;
+
+    public MindMapService(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                          DataSource dataSource) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readRouting = ReadWriteRoutingDataSource.find(dataSource);
+        RequestCoalescer.register(meterRegistry, "mindmap", mindMapLoads);
+    }
+
+    @Transactional(readOnly = true)
     public List<MindMap> getMindMaps(Long userId) {
         return mindMapMapper.findAllByUserId(userId);
     }
 
-    public MindMap getMindMap(String id) {
-        return mindMapMapper.findById(id);
+    @Transactional(readOnly = true)
+    public void streamMindMaps(Long userId, Consumer<MindMap> consumer) {
+        Cursors.drain(mindMapMapper.streamAllByUserId(userId), consumer);
+    }
+
+    // Concurrent reads of the same map share one query, as in DiaryEntryService.getEntry
+    public MindMap getMindMap(Long userId, String id) {
+        String key = userId + ":" + id;
+        if (readRouting != null) {
+            key = readRouting.readTarget() + ":" + key;
+        }
+        return mindMapLoads.load(key, () -> readOnlyTransaction.execute(status -> mindMapMapper.findOwnedById(id, userId)));
+    }
+
+    @Transactional(readOnly = true)
+    public BatchGetResult<MindMap> getMindMapsByIds(Long userId, List<String> ids) {
+        String[] unique = BatchGets.ids(ids);
+        return BatchGets.inRequestOrder(unique, mindMapMapper.findByIds(userId, unique), MindMap::getId);
     }
 
     public MindMap createMindMap(Long userId, String title, String content) {
@@ -29,19 +73,29 @@ public class MindMapService {
         mindMap.setTitle(title);
         mindMap.setContent(content);
         mindMapMapper.insert(mindMap);
+        resourceVersions.bump(ResourceVersions.mindMaps(userId));
         return mindMap;
     }
 
-    public void updateMindMap(String id, String title, String content) {
-        MindMap mindMap = mindMapMapper.findById(id);
-        if (mindMap != null) {
-            mindMap.setTitle(title);
-            mindMap.setContent(content);
-            mindMapMapper.update(mindMap);
+    // False when the caller has no map with this id
+    public boolean updateMindMap(Long userId, String id, String title, String content) {
+        MindMap mindMap = new MindMap();
+        mindMap.setId(id);
+        mindMap.setUserId(userId);
+        mindMap.setTitle(title);
+        mindMap.setContent(content);
+        if (mindMapMapper.update(mindMap) == 0) {
+            return false;
         }
+        resourceVersions.bump(ResourceVersions.mindMaps(userId), ResourceVersions.mindMap(id));
+        return true;
     }
 
-    public void deleteMindMap(String id) {
-        mindMapMapper.deleteById(id);
+    public boolean deleteMindMap(Long userId, String id) {
+        if (mindMapMapper.deleteOwned(id, userId) == 0) {
+            return false;
+        }
+        resourceVersions.bump(ResourceVersions.mindMaps(userId), ResourceVersions.mindMap(id));
+        return true;
     }
 }
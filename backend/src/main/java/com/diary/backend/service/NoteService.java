@@ -0,0 +1,183 @@
+package com.diary.backend.service;
+
+import com.diary.backend.common.ResourceVersions;
+import com.diary.backend.dto.NoteBatchRequest;
+import com.diary.backend.dto.NoteBatchResult;
+import com.diary.backend.dto.NoteChanges;
+import com.diary.backend.dto.NotePage;
+import com.diary.backend.entity.BookNote;
+import com.diary.backend.mapper.BookMapper;
+import com.diary.backend.mapper.BookNoteMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Highlights and notes across a user's whole library. Every insert and delete gives the row a new
+ * version from a sequence and deletes leave a tombstone, so a reader that keeps notes locally can
+ * ask for "everything since version N" instead of reloading the list after each highlight.
+ */
+@Service
+public class NoteService {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+    public static final int MAX_CHANGES = 1000;
+    public static final int MAX_BATCH = 500;
+
+    @Autowired
+    private BookNoteMapper bookNoteMapper;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Transactional(readOnly = true)
+    public List<BookNote> getBookNotes(String bookId, Long userId) {
+        return bookNoteMapper.findByBookId(bookId, userId);
+    }
+
+    @Transactional(readOnly = true)
+    public NotePage listNotes(Long userId, String bookId, String color, LocalDate from, LocalDate to,
+                              String cursor, Integer limit) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        LocalDateTime beforeCreatedAt = null;
+        String beforeId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = decodeCursor(cursor);
+            beforeCreatedAt = LocalDateTime.parse(parts[0]);
+            beforeId = parts[1];
+        }
+        // Fetch one extra row to know whether another page exists
+        List<BookNote> notes = bookNoteMapper.findPage(userId, bookId, color,
+                from == null ? null : from.atStartOfDay(), to == null ? null : to.plusDays(1).atStartOfDay(),
+                beforeCreatedAt, beforeId, pageSize + 1);
+        NotePage page = new NotePage();
+        if (notes.size() > pageSize) {
+            notes = notes.subList(0, pageSize);
+            BookNote last = notes.get(pageSize - 1);
+            page.setNextCursor(encodeCursor(last.getCreatedAt() + "|" + last.getId()));
+        }
+        page.setNotes(notes);
+        return page;
+    }
+
+    @Transactional(readOnly = true)
+    public NoteChanges getChanges(Long userId, long since, Integer limit) {
+        int pageSize = limit == null || limit <= 0 ? MAX_CHANGES : Math.min(limit, MAX_CHANGES);
+        List<BookNote> changes = bookNoteMapper.findChangesSince(userId, since, pageSize + 1);
+        NoteChanges result = new NoteChanges();
+        result.setHasMore(changes.size() > pageSize);
+        if (result.isHasMore()) {
+            changes = changes.subList(0, pageSize);
+        }
+        result.setChanges(changes);
+        result.setVersion(changes.isEmpty() ? since : changes.get(changes.size() - 1).getVersion());
+        return result;
+    }
+
+    @Transactional
+    public BookNote addNote(Long userId, BookNote note) {
+        // Same check as applyBatch: notes may only be attached to the user's own books
+        if (note.getBookId() == null || bookMapper.findOwnedIds(userId, List.of(note.getBookId())).isEmpty()) {
+            throw new IllegalArgumentException("Unknown book");
+        }
+        note.setId(UUID.randomUUID().toString());
+        note.setUserId(userId);
+        bookNoteMapper.lockUser(userId);
+        BookNote created = bookNoteMapper.insertAll(List.of(note)).get(0);
+        resourceVersions.bumpAfterCommit(ResourceVersions.notes(userId));
+        return created;
+    }
+
+    @Transactional
+    public void deleteNote(Long userId, String id) {
+        bookNoteMapper.lockUser(userId);
+        if (!bookNoteMapper.softDelete(userId, List.of(id)).isEmpty()) {
+            resourceVersions.bumpAfterCommit(ResourceVersions.notes(userId));
+        }
+    }
+
+    /**
+     * Applies all creates and deletes in one transaction. Deleting a note that is already gone is
+     * not an error; it just isn't listed in the result.
+     */
+    @Transactional
+    public NoteBatchResult applyBatch(Long userId, NoteBatchRequest request) {
+        List<BookNote> create = request.getCreate() == null ? List.of() : request.getCreate();
+        List<String> delete = request.getDelete() == null ? List.of() : new ArrayList<>(new LinkedHashSet<>(request.getDelete()));
+        if (create.size() + delete.size() > MAX_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH + " operations per batch");
+        }
+
+        Set<String> bookIds = new HashSet<>();
+        for (BookNote note : create) {
+            if (note.getBookId() == null || note.getCfiRange() == null) {
+                throw new IllegalArgumentException("Each note needs a bookId and a cfiRange");
+            }
+            bookIds.add(note.getBookId());
+        }
+        if (!bookIds.isEmpty() && !new HashSet<>(bookMapper.findOwnedIds(userId, bookIds)).containsAll(bookIds)) {
+            throw new IllegalArgumentException("Unknown book");
+        }
+
+        bookNoteMapper.lockUser(userId);
+        List<BookNote> created = new ArrayList<>(create.size());
+        if (!create.isEmpty()) {
+            for (BookNote note : create) {
+                note.setId(UUID.randomUUID().toString());
+                note.setUserId(userId);
+            }
+            // RETURNING doesn't promise input order, so put the rows back in request order
+            Map<String, BookNote> inserted = bookNoteMapper.insertAll(create).stream()
+                    .collect(Collectors.toMap(BookNote::getId, Function.identity()));
+            for (BookNote note : create) {
+                created.add(inserted.get(note.getId()));
+            }
+        }
+        List<String> deleted = delete.isEmpty() ? List.of() : bookNoteMapper.softDelete(userId, delete);
+        if (!created.isEmpty() || !deleted.isEmpty()) {
+            resourceVersions.bumpAfterCommit(ResourceVersions.notes(userId));
+        }
+
+        NoteBatchResult result = new NoteBatchResult();
+        result.setCreated(created);
+        result.setDeleted(deleted);
+        result.setVersion(bookNoteMapper.findLatestVersion(userId));
+        return result;
+    }
+
+    private static String encodeCursor(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+            if (parts.length == 2) {
+                LocalDateTime.parse(parts[0]);
+                return parts;
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+}
@@ -0,0 +1,116 @@
+package com.diary.backend.service;
+
+import com.diary.backend.common.ExpiringCache;
+import com.diary.backend.common.ResourceVersions;
+import com.diary.backend.dto.EntrySummary;
+import com.diary.backend.entity.DiaryEntry;
+import com.diary.backend.mapper.DiaryEntryMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * "On this day": a user's entries from the same calendar day in earlier years, optionally widened
+ * to a few days either side. The lookup goes through idx_diary_entries_user_month_day instead of
+ * loading every entry of the user. Results are cached per user, day and window until midnight; the
+ * key carries the version of the user's entries, so any write to them makes the next call reload.
+ */
+@Service
+public class OnThisDayService {
+
+    public static final int MAX_WINDOW_DAYS = 7;
+    private static final int MAX_RESULTS = 200;
+    private static final int EXCERPT_LENGTH = 150;
+
+    @Autowired
+    private DiaryEntryMapper diaryEntryMapper;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private final ExpiringCache<String, List<EntrySummary>> cache;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public OnThisDayService(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                            @Value("${diary.on-this-day.cache-size:10000}") int cacheSize) {
+        this.cache = new ExpiringCache<>(cacheSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        FunctionCounter.builder("diary.on-this-day.cache.requests", cache, ExpiringCache::hits)
+                .description("On-this-day lookups by cache outcome")
+                .tags("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("diary.on-this-day.cache.requests", cache, ExpiringCache::misses)
+                .description("On-this-day lookups by cache outcome")
+                .tags("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public List<EntrySummary> getMemories(Long userId, int windowDays) {
+        if (windowDays < 0 || windowDays > MAX_WINDOW_DAYS) {
+            throw new IllegalArgumentException("window must be between 0 and " + MAX_WINDOW_DAYS + " days");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        Duration untilMidnight = Duration.between(now, today.plusDays(1).atStartOfDay());
+        String key = userId + "|" + today + "|" + windowDays + "|" + resourceVersions.etag(ResourceVersions.entries(userId));
+        return cache.get(key, untilMidnight, () -> load(userId, today, windowDays));
+    }
+
+    private List<EntrySummary> load(Long userId, LocalDate today, int windowDays) {
+        // Entries inside this year's window are recent, not memories
+        LocalDate from = today.minusDays(windowDays);
+        Integer[] monthDays = monthDays(from, today.plusDays(windowDays));
+        List<DiaryEntry> entries = readOnlyTransaction.execute(status ->
+                diaryEntryMapper.findByMonthDays(userId, monthDays, from, MAX_RESULTS));
+        List<EntrySummary> summaries = new ArrayList<>(entries.size());
+        for (DiaryEntry entry : entries) {
+            EntrySummary summary = new EntrySummary();
+            summary.setId(entry.getId());
+            summary.setTitle(entry.getTitle());
+            summary.setDate(entry.getDate());
+            summary.setMood(entry.getMood());
+            summary.setExcerpt(excerpt(entry.getContent()));
+            // Rounded, so a window reaching across New Year still says "1 year ago"
+            summary.setYearsAgo((int) Math.round(ChronoUnit.DAYS.between(entry.getDate(), today) / 365.2425));
+            summaries.add(summary);
+        }
+        return List.copyOf(summaries);
+    }
+
+    // month * 100 + day for every date in [from, to]; 29 February counts as 28 February in other years
+    private static Integer[] monthDays(LocalDate from, LocalDate to) {
+        TreeSet<Integer> days = new TreeSet<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            int monthDay = date.getMonthValue() * 100 + date.getDayOfMonth();
+            days.add(monthDay);
+            if (monthDay == 228 && !date.isLeapYear()) {
+                days.add(229);
+            }
+        }
+        return days.toArray(Integer[]::new);
+    }
+
+    private static String excerpt(String content) {
+        if (content == null) {
+            return "";
+        }
+        String text = content.strip().replaceAll("\\s+", " ");
+        if (text.codePointCount(0, text.length()) <= EXCERPT_LENGTH) {
+            return text;
+        }
+        return text.substring(0, text.offsetByCodePoints(0, EXCERPT_LENGTH)) + "...";
+    }
+}
@@ -0,0 +1,205 @@
+package com.diary.backend.service;
+
+import com.diary.backend.common.InvalidationBus;
+import com.diary.backend.dto.StoryVoteCount;
+import com.diary.backend.mapper.CommunityMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory vote ranking of daily topic stories, one board per topic day. Votes adjust a board
+ * incrementally; boards are rebuilt from the database on startup, when they are invalidated by
+ * an entry edit, and after diary.topic.refresh-seconds to correct any drift from races between
+ * a rebuild and concurrent votes. Changes made on other instances arrive through the
+ * {@link InvalidationBus} and drop the affected board.
+ */
+@Component
+public class TopicLeaderboard {
+
+    private static final Comparator<StoryVoteCount> RANKING = Comparator
+            .comparing(StoryVoteCount::getVotes, Comparator.reverseOrder())
+            .thenComparing(StoryVoteCount::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(StoryVoteCount::getEntryId);
+
+    @Autowired
+    private CommunityMapper communityMapper;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Value("${diary.topic.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${diary.topic.refresh-seconds:300}")
+    private long refreshSeconds;
+
+    private final Map<LocalDate, DayBoard> boards = new ConcurrentHashMap<>();
+    private final Map<String, LocalDate> entryDays = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void subscribe() {
+        invalidationBus.subscribe("topic-day", day -> dropDay(LocalDate.parse(day)), boards::clear);
+        invalidationBus.subscribe("topic-entry", this::dropEntry, boards::clear);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, List<StoryVoteCount>> byDay = new HashMap<>();
+        for (StoryVoteCount row : communityMapper.findStoryVoteCounts(today.minusDays(retentionDays), today)) {
+            byDay.computeIfAbsent(row.getDate(), d -> new ArrayList<>()).add(row);
+        }
+        boards.clear();
+        entryDays.clear();
+        for (LocalDate day = today.minusDays(retentionDays); !day.isAfter(today); day = day.plusDays(1)) {
+            install(day, byDay.getOrDefault(day, List.of()));
+        }
+    }
+
+    /**
+     * Stories of the given day, best first.
+     */
+    public List<StoryVoteCount> getRanking(LocalDate date) {
+        if (!isCached(date)) {
+            return rank(communityMapper.findStoryVoteCounts(date, date));
+        }
+        DayBoard board = boards.get(date);
+        if (board == null || board.isStale(refreshSeconds)) {
+            board = install(date, communityMapper.findStoryVoteCounts(date, date));
+        }
+        return board.snapshot();
+    }
+
+    public void addStory(String entryId, LocalDate date, LocalDateTime createdAt) {
+        DayBoard board = date == null ? null : boards.get(date);
+        if (board == null) {
+            return;
+        }
+        StoryVoteCount row = new StoryVoteCount();
+        row.setEntryId(entryId);
+        row.setDate(date);
+        row.setCreatedAt(createdAt);
+        row.setVotes(0);
+        board.put(row);
+        entryDays.put(entryId, date);
+        invalidationBus.publish("topic-day", date.toString());
+    }
+
+    public void adjustVotes(String entryId, int delta) {
+        LocalDate date = entryDays.get(entryId);
+        DayBoard board = date == null ? null : boards.get(date);
+        if (board != null) {
+            board.adjust(entryId, delta);
+        }
+        // Other instances can't replay a delta safely, they reload the board instead
+        invalidationBus.publish("topic-entry", entryId);
+    }
+
+    /**
+     * Drops the board of the given day; it is rebuilt from the database on next read.
+     */
+    public void invalidate(LocalDate date) {
+        if (date != null) {
+            dropDay(date);
+            invalidationBus.publish("topic-day", date.toString());
+        }
+    }
+
+    public void invalidateEntry(String entryId) {
+        dropEntry(entryId);
+        invalidationBus.publish("topic-entry", entryId);
+    }
+
+    private void dropDay(LocalDate date) {
+        boards.remove(date);
+    }
+
+    private void dropEntry(String entryId) {
+        LocalDate date = entryDays.remove(entryId);
+        if (date != null) {
+            dropDay(date);
+        }
+    }
+
+    private boolean isCached(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        return !date.isAfter(today) && !date.isBefore(today.minusDays(retentionDays));
+    }
+
+    private DayBoard install(LocalDate date, List<StoryVoteCount> rows) {
+        // Days that rolled out of the retention window are no longer kept
+        if (boards.keySet().removeIf(day -> !isCached(day))) {
+            entryDays.values().removeIf(day -> !isCached(day));
+        }
+        DayBoard board = new DayBoard();
+        for (StoryVoteCount row : rows) {
+            board.put(row);
+            entryDays.put(row.getEntryId(), date);
+        }
+        boards.put(date, board);
+        return board;
+    }
+
+    private static List<StoryVoteCount> rank(List<StoryVoteCount> rows) {
+        List<StoryVoteCount> ranked = new ArrayList<>(rows);
+        ranked.sort(RANKING);
+        return ranked;
+    }
+
+    private static class DayBoard {
+        private final long loadedAt = System.nanoTime();
+        private final Map<String, StoryVoteCount> byId = new HashMap<>();
+        private final TreeSet<StoryVoteCount> ranked = new TreeSet<>(RANKING);
+
+        synchronized void put(StoryVoteCount row) {
+            StoryVoteCount previous = byId.put(row.getEntryId(), row);
+            if (previous != null) {
+                ranked.remove(previous);
+            }
+            ranked.add(row);
+        }
+
+        synchronized void adjust(String entryId, int delta) {
+            StoryVoteCount row = byId.get(entryId);
+            if (row == null) {
+                return;
+            }
+            // Re-key the row: its position depends on the vote count
+            ranked.remove(row);
+            row.setVotes(Math.max(0, row.getVotes() + delta));
+            ranked.add(row);
+        }
+
+        synchronized List<StoryVoteCount> snapshot() {
+            List<StoryVoteCount> copy = new ArrayList<>(ranked.size());
+            for (StoryVoteCount row : ranked) {
+                StoryVoteCount c = new StoryVoteCount();
+                c.setEntryId(row.getEntryId());
+                c.setDate(row.getDate());
+                c.setCreatedAt(row.getCreatedAt());
+                c.setVotes(row.getVotes());
+                copy.add(c);
+            }
+            return copy;
+        }
+
+        boolean isStale(long refreshSeconds) {
+            return System.nanoTime() - loadedAt > TimeUnit.SECONDS.toNanos(refreshSeconds);
+        }
+    }
+}
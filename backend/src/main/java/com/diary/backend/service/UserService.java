@@ -1,5 +1,7 @@
 package com.diary.backend.service;
 
+import com.diary.backend.auth.PasswordHasher;
+import com.diary.backend.common.ResourceVersions;
 import com.diary.backend.dto.LoginRequest;
 import com.diary.backend.dto.RegisterRequest;
 import com.diary.backend.entity.User;
@@ -11,37 +13,59 @@ import org.springframework.transaction.annotation.Transactional;
 import com.diary.backend.dto.UpdatePasswordRequest;
 import com.diary.backend.dto.UpdateProfileRequest;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class UserService {
 
     @Autowired
     private UserMapper userMapper;
 
-    public User login(LoginRequest request) {
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    /**
+     * Completes with null when the email or password is wrong. Accounts still holding a plaintext
+     * password are switched to a hash on their first successful login.
+     */
+    public CompletableFuture<User> login(LoginRequest request) {
         User user = userMapper.findByEmail(request.getEmail());
-        if (user != null && user.getPassword().equals(request.getPassword())) {
+        return passwordHasher.submit(() -> {
+            if (!passwordHasher.matches(request.getPassword(), user == null ? null : user.getPassword())) {
+                return null;
+            }
+            if (passwordHasher.needsUpgrade(user.getPassword())) {
+                user.setPassword(passwordHasher.encode(request.getPassword()));
+                userMapper.updatePassword(user);
+            }
             return user;
-        }
-        return null;
+        });
     }
 
-    @Transactional
-    public User register(RegisterRequest request) {
+    public CompletableFuture<User> register(RegisterRequest request) {
         User existing = userMapper.findByEmail(request.getEmail());
         if (existing != null) {
             throw new RuntimeException("Email already exists");
         }
-        User user = new User();
-        user.setEmail(request.getEmail());
-        user.setPassword(request.getPassword()); // In production, use hashing!
-        user.setName(request.getName());
-        userMapper.insert(user);
-        return user;
+        if (request.getPassword() == null || request.getPassword().isEmpty()) {
+            throw new RuntimeException("Password is required");
+        }
+        return passwordHasher.submit(() -> {
+            User user = new User();
+            user.setEmail(request.getEmail());
+            user.setPassword(passwordHasher.encode(request.getPassword()));
+            user.setName(request.getName());
+            userMapper.insert(user);
+            return user;
+        });
     }
 
     @Transactional
-    public User updateProfile(UpdateProfileRequest request) {
-        User user = userMapper.findById(request.getId());
+    public User updateProfile(Long userId, UpdateProfileRequest request) {
+        User user = userMapper.findById(userId);
         if (user == null) {
             throw new RuntimeException("User not found");
         }
@@ -54,19 +78,23 @@ public class UserService {
         user.setName(request.getName());
         user.setEmail(request.getEmail());
         userMapper.updateProfile(user);
+        // Author names are part of the community feed
+        resourceVersions.bumpAfterCommit(ResourceVersions.COMMUNITY);
         return user;
     }
 
-    @Transactional
-    public void updatePassword(UpdatePasswordRequest request) {
-        User user = userMapper.findById(request.getUserId());
+    public CompletableFuture<Void> updatePassword(Long userId, UpdatePasswordRequest request) {
+        User user = userMapper.findById(userId);
         if (user == null) {
             throw new RuntimeException("User not found");
         }
-        if (!user.getPassword().equals(request.getCurrentPassword())) {
-            throw new RuntimeException("Incorrect current password");
-        }
-        user.setPassword(request.getNewPassword());
-        userMapper.updatePassword(user);
+        return passwordHasher.submit(() -> {
+            if (!passwordHasher.matches(request.getCurrentPassword(), user.getPassword())) {
+                throw new RuntimeException("Incorrect current password");
+            }
+            user.setPassword(passwordHasher.encode(request.getNewPassword()));
+            userMapper.updatePassword(user);
+            return null;
+        });
     }
 }
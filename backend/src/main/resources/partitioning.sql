@@ -0,0 +1,126 @@
+-- Converts a database created from schema.sql to partitioned tables:
+--   diary_entries              hash partitions on user_id, so one user's entries sit in one
+--                              partition and per-user queries touch a sixteenth of the data
+--   likes, votes, comments     monthly range partitions on entry_created_at (the creation time of
+--                              the entry they belong to), so reactions to old entries go cold
+--                              together and can be detached as a unit
+-- Partitioning reactions by their entry's month rather than their own created_at keeps the
+-- one-like/one-vote-per-user primary keys enforceable: a unique key on a partitioned table has to
+-- include the partition key, and entry_created_at is fixed for a given entry_id.
+--
+-- Run once in a maintenance window; the tables are copied in a single transaction:
+--   psql -d diary_db -v ON_ERROR_STOP=1 -f partitioning.sql
+-- Then set diary.partitioning.enabled=true so PartitionMaintenanceJob keeps the coming months'
+-- partitions attached. Rows that arrive for a month without a partition land in the *_default
+-- partition and are moved out when that month's partition is created.
+--
+-- diary.partitioning.detach-after-months detaches whole months by entry_created_at: every like,
+-- vote and comment on an entry written in a detached month disappears from the application,
+-- whether or not the entry is still live, and reactions added to such an entry afterwards land in
+-- the *_default partition and stay there. Leave it at 0 unless that is acceptable.
+--
+-- Foreign keys pointing at diary_entries(id) and comments(id) can't survive the conversion (the
+-- referenced key would have to include the partition key); the application deletes reactions
+-- together with their entry and replies together with their comment.
+
+BEGIN;
+
+-- Databases created before schema.sql had entry_created_at
+ALTER TABLE "public"."likes" ADD COLUMN IF NOT EXISTS "entry_created_at" timestamp(6);
+ALTER TABLE "public"."votes" ADD COLUMN IF NOT EXISTS "entry_created_at" timestamp(6);
+ALTER TABLE "public"."comments" ADD COLUMN IF NOT EXISTS "entry_created_at" timestamp(6);
+
+UPDATE "public"."diary_entries" SET "created_at" = COALESCE("updated_at", CURRENT_TIMESTAMP) WHERE "created_at" IS NULL;
+UPDATE "public"."likes" r SET "entry_created_at" = e."created_at" FROM "public"."diary_entries" e
+    WHERE e."id" = r."entry_id" AND r."entry_created_at" IS NULL;
+UPDATE "public"."votes" r SET "entry_created_at" = e."created_at" FROM "public"."diary_entries" e
+    WHERE e."id" = r."entry_id" AND r."entry_created_at" IS NULL;
+UPDATE "public"."comments" r SET "entry_created_at" = e."created_at" FROM "public"."diary_entries" e
+    WHERE e."id" = r."entry_id" AND r."entry_created_at" IS NULL;
+
+ALTER TABLE "public"."comments" DROP CONSTRAINT IF EXISTS "comments_entry_id_fkey";
+ALTER TABLE "public"."comments" DROP CONSTRAINT IF EXISTS "fk_comments_parent";
+ALTER TABLE "public"."likes" DROP CONSTRAINT IF EXISTS "likes_entry_id_fkey";
+ALTER TABLE "public"."votes" DROP CONSTRAINT IF EXISTS "votes_entry_id_fkey";
+
+-- Dropping the old comments table must not take the id sequence with it
+ALTER SEQUENCE "public"."comments_id_seq" OWNED BY NONE;
+
+-- diary_entries: 16 hash partitions. The modulus is fixed; changing it means another rewrite.
+CREATE TABLE "public"."diary_entries_new" (LIKE "public"."diary_entries" INCLUDING DEFAULTS)
+    PARTITION BY HASH ("user_id");
+
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE "public".%I PARTITION OF "public"."diary_entries_new" FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                       'diary_entries_h' || i, i);
+    END LOOP;
+END $$;
+
+INSERT INTO "public"."diary_entries_new" SELECT * FROM "public"."diary_entries";
+DROP TABLE "public"."diary_entries";
+ALTER TABLE "public"."diary_entries_new" RENAME TO "diary_entries";
+
+ALTER TABLE "public"."diary_entries" ALTER COLUMN "created_at" SET NOT NULL;
+ALTER TABLE "public"."diary_entries" ADD CONSTRAINT "diary_entries_pkey" PRIMARY KEY ("id", "user_id");
+ALTER TABLE "public"."diary_entries" ADD CONSTRAINT "diary_entries_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION;
+ALTER TABLE "public"."diary_entries" ADD CONSTRAINT "fk_diary_entries_folder" FOREIGN KEY ("folder_id") REFERENCES "public"."folders" ("id") ON DELETE SET NULL ON UPDATE NO ACTION;
+CREATE UNIQUE INDEX "uq_diary_entries_daily_story" ON "public"."diary_entries" ("user_id", "date")
+    WHERE "is_story" = true AND "deleted" IS NOT TRUE;
+CREATE INDEX "idx_diary_entries_user_month_day" ON "public"."diary_entries"
+    ("user_id", ((EXTRACT(MONTH FROM "date") * 100 + EXTRACT(DAY FROM "date"))::int)) WHERE "deleted" IS NOT TRUE;
+
+ALTER TABLE "public"."diary_entries"
+    OWNER TO "postgres";
+
+-- likes, votes, comments: one partition per month from the oldest entry with reactions up to
+-- three months ahead, plus a default partition
+ALTER TABLE "public"."likes" RENAME TO "likes_old";
+ALTER TABLE "public"."votes" RENAME TO "votes_old";
+ALTER TABLE "public"."comments" RENAME TO "comments_old";
+
+DO $$
+DECLARE
+    t text;
+    from_month date;
+    last_month date := date_trunc('month', CURRENT_DATE + interval '3 months')::date;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['likes', 'votes', 'comments'] LOOP
+        EXECUTE format('CREATE TABLE "public".%I (LIKE "public".%I INCLUDING DEFAULTS) PARTITION BY RANGE ("entry_created_at")',
+                       t, t || '_old');
+        EXECUTE format('SELECT date_trunc(''month'', min("entry_created_at"))::date FROM "public".%I', t || '_old') INTO from_month;
+        from_month := LEAST(COALESCE(from_month, CURRENT_DATE), date_trunc('month', CURRENT_DATE)::date);
+        WHILE from_month <= last_month LOOP
+            EXECUTE format('CREATE TABLE "public".%I PARTITION OF "public".%I FOR VALUES FROM (%L) TO (%L)',
+                           t || '_p' || to_char(from_month, 'YYYY_MM'), t, from_month, (from_month + interval '1 month')::date);
+            from_month := (from_month + interval '1 month')::date;
+        END LOOP;
+        EXECUTE format('CREATE TABLE "public".%I PARTITION OF "public".%I DEFAULT', t || '_default', t);
+        EXECUTE format('INSERT INTO "public".%I SELECT * FROM "public".%I', t, t || '_old');
+        EXECUTE format('DROP TABLE "public".%I', t || '_old');
+        EXECUTE format('ALTER TABLE "public".%I ALTER COLUMN "entry_created_at" SET NOT NULL', t);
+        EXECUTE format('ALTER TABLE "public".%I OWNER TO "postgres"', t);
+    END LOOP;
+END $$;
+
+ALTER TABLE "public"."likes" ADD CONSTRAINT "likes_pkey" PRIMARY KEY ("user_id", "entry_id", "entry_created_at");
+ALTER TABLE "public"."likes" ADD CONSTRAINT "likes_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION;
+CREATE INDEX "idx_likes_entry" ON "public"."likes" ("entry_id");
+
+ALTER TABLE "public"."votes" ADD CONSTRAINT "votes_pkey" PRIMARY KEY ("user_id", "entry_id", "entry_created_at");
+ALTER TABLE "public"."votes" ADD CONSTRAINT "votes_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION;
+CREATE INDEX "idx_votes_entry" ON "public"."votes" ("entry_id");
+
+ALTER TABLE "public"."comments" ADD CONSTRAINT "comments_pkey" PRIMARY KEY ("id", "entry_created_at");
+ALTER TABLE "public"."comments" ADD CONSTRAINT "comments_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION;
+CREATE INDEX "idx_comments_entry" ON "public"."comments" ("entry_id", "created_at");
+
+ALTER SEQUENCE "public"."comments_id_seq" OWNED BY "public"."comments"."id";
+
+ANALYZE "public"."diary_entries";
+ANALYZE "public"."likes";
+ANALYZE "public"."votes";
+ANALYZE "public"."comments";
+
+COMMIT;
@@ -1,23 +1,74 @@
-CREATE DATABASE diary_db;
-USE diary_db;
+-- Run against an existing database, e.g.:
+--   CREATE DATABASE diary_db;
+--   psql -d diary_db -f schema.sql
+-- Tables are listed in dependency order so foreign keys resolve.
 
-CREATE TABLE "public"."book_notes" (
-                                       "id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
-                                       "user_id" int8 NOT NULL,
-                                       "book_id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
-                                       "cfi_range" text COLLATE "pg_catalog"."default" NOT NULL,
-                                       "content" text COLLATE "pg_catalog"."default",
-                                       "color" varchar(50) COLLATE "pg_catalog"."default",
-                                       "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
-                                       CONSTRAINT "book_notes_pkey" PRIMARY KEY ("id"),
-                                       CONSTRAINT "book_notes_book_id_fkey" FOREIGN KEY ("book_id") REFERENCES "public"."books" ("id") ON DELETE CASCADE ON UPDATE NO ACTION,
-                                       CONSTRAINT "book_notes_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION
+CREATE SEQUENCE IF NOT EXISTS "public"."users_id_seq";
+CREATE SEQUENCE IF NOT EXISTS "public"."comments_id_seq";
+CREATE SEQUENCE IF NOT EXISTS "public"."book_notes_version_seq";
+CREATE SEQUENCE IF NOT EXISTS "public"."jobs_id_seq";
+
+CREATE TABLE "public"."users" (
+                                  "id" int8 NOT NULL DEFAULT nextval('users_id_seq'::regclass),
+                                  "email" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
+                                  "password" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
+                                  "name" varchar(255) COLLATE "pg_catalog"."default",
+                                  "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
+                                  CONSTRAINT "users_pkey" PRIMARY KEY ("id"),
+                                  CONSTRAINT "users_email_key" UNIQUE ("email")
 )
 ;
 
-ALTER TABLE "public"."book_notes"
+ALTER TABLE "public"."users"
+    OWNER TO "postgres";
+
+CREATE TABLE "public"."folders" (
+                                    "id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
+                                    "user_id" int8 NOT NULL,
+                                    "name" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
+                                    "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
+                                    CONSTRAINT "folders_pkey" PRIMARY KEY ("id"),
+                                    CONSTRAINT "folders_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION
+)
+;
+
+ALTER TABLE "public"."folders"
+    OWNER TO "postgres";
+
+CREATE TABLE "public"."diary_entries" (
+                                          "id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
+                                          "user_id" int8 NOT NULL,
+                                          "title" varchar(255) COLLATE "pg_catalog"."default",
+                                          "content" text COLLATE "pg_catalog"."default",
+                                          "date" date,
+                                          "tags" text[] COLLATE "pg_catalog"."default",
+                                          "mood" varchar(50) COLLATE "pg_catalog"."default",
+                                          "privacy" varchar(20) COLLATE "pg_catalog"."default",
+                                          "deleted" bool DEFAULT false,
+                                          "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
+                                          "updated_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
+                                          "is_story" bool,
+                                          "folder_id" varchar(255) COLLATE "pg_catalog"."default",
+                                          CONSTRAINT "diary_entries_pkey" PRIMARY KEY ("id"),
+                                          CONSTRAINT "diary_entries_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION,
+                                          CONSTRAINT "fk_diary_entries_folder" FOREIGN KEY ("folder_id") REFERENCES "public"."folders" ("id") ON DELETE SET NULL ON UPDATE NO ACTION
+)
+;
+
+ALTER TABLE "public"."diary_entries"
     OWNER TO "postgres";
 
+-- One daily story per user per day. Enforced here rather than by a count-then-insert check so
+-- concurrent submissions can't both succeed; DiaryEntryService maps violations to a user error.
+-- On an existing database, remove duplicates first and build it with CREATE UNIQUE INDEX CONCURRENTLY.
+CREATE UNIQUE INDEX "uq_diary_entries_daily_story" ON "public"."diary_entries" ("user_id", "date")
+    WHERE "is_story" = true AND "deleted" IS NOT TRUE;
+
+-- "On this day" lookups by calendar day; the expression must match DiaryEntryMapper.MONTH_DAY.
+-- On an existing database, build it with CREATE INDEX CONCURRENTLY.
+CREATE INDEX "idx_diary_entries_user_month_day" ON "public"."diary_entries"
+    ("user_id", ((EXTRACT(MONTH FROM "date") * 100 + EXTRACT(DAY FROM "date"))::int)) WHERE "deleted" IS NOT TRUE;
+
 CREATE TABLE "public"."books" (
                                   "id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
                                   "user_id" int8 NOT NULL,
@@ -29,6 +80,8 @@ CREATE TABLE "public"."books" (
                                   "last_read_at" timestamp(6),
                                   "progress" varchar(255) COLLATE "pg_catalog"."default",
                                   "format" varchar(10) COLLATE "pg_catalog"."default" DEFAULT 'epub'::character varying,
+                                  "text_indexed_at" timestamp(6),
+                                  "manifest" text COLLATE "pg_catalog"."default",
                                   CONSTRAINT "books_pkey" PRIMARY KEY ("id"),
                                   CONSTRAINT "books_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION
 )
@@ -37,6 +90,61 @@ CREATE TABLE "public"."books" (
 ALTER TABLE "public"."books"
     OWNER TO "postgres";
 
+-- EPUB files are already zip-compressed; storing them uncompressed out of line lets
+-- substring(file_data ...) read a slice without detoasting the whole file (chunked exports)
+ALTER TABLE "public"."books" ALTER COLUMN "file_data" SET STORAGE EXTERNAL;
+
+CREATE TABLE "public"."book_notes" (
+                                       "id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
+                                       "user_id" int8 NOT NULL,
+                                       "book_id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
+                                       "cfi_range" text COLLATE "pg_catalog"."default" NOT NULL,
+                                       "content" text COLLATE "pg_catalog"."default",
+                                       "color" varchar(50) COLLATE "pg_catalog"."default",
+                                       "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
+                                       "updated_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
+                                       "deleted_at" timestamp(6),
+                                       "version" int8 NOT NULL DEFAULT nextval('book_notes_version_seq'::regclass),
+                                       CONSTRAINT "book_notes_pkey" PRIMARY KEY ("id"),
+                                       CONSTRAINT "book_notes_book_id_fkey" FOREIGN KEY ("book_id") REFERENCES "public"."books" ("id") ON DELETE CASCADE ON UPDATE NO ACTION,
+                                       CONSTRAINT "book_notes_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION
+)
+;
+
+ALTER TABLE "public"."book_notes"
+    OWNER TO "postgres";
+
+-- Deleted notes stay as tombstones (deleted_at set) so the change feed can report them;
+-- every insert/delete takes a new version, and clients sync with "changes since version N"
+CREATE INDEX "idx_book_notes_user_version" ON "public"."book_notes" ("user_id", "version");
+CREATE INDEX "idx_book_notes_user_created" ON "public"."book_notes" ("user_id", "created_at" DESC, "id" DESC)
+    WHERE "deleted_at" IS NULL;
+
+-- Text of uploaded books, one row per block-level element in reading order, for server-side search.
+-- pg_trgm makes ILIKE '%term%' an index lookup; creating the extension needs a superuser once.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE "public"."book_passages" (
+                                          "book_id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
+                                          "seq" int4 NOT NULL,
+                                          "spine_index" int4 NOT NULL,
+                                          "cfi" text COLLATE "pg_catalog"."default" NOT NULL,
+                                          "content" text COLLATE "pg_catalog"."default" NOT NULL,
+                                          CONSTRAINT "book_passages_pkey" PRIMARY KEY ("book_id", "seq"),
+                                          CONSTRAINT "book_passages_book_id_fkey" FOREIGN KEY ("book_id") REFERENCES "public"."books" ("id") ON DELETE CASCADE ON UPDATE NO ACTION
+)
+;
+
+ALTER TABLE "public"."book_passages"
+    OWNER TO "postgres";
+
+CREATE INDEX "idx_book_passages_content_trgm" ON "public"."book_passages" USING gin ("content" gin_trgm_ops);
+
+-- Reactions carry their entry's created_at so partitioning.sql can split them by the entry's
+-- month while the primary keys stay enforceable. On an existing database, add the column and
+-- backfill it from diary_entries.created_at (the first statements of partitioning.sql).
+-- Because of this, detaching a month's partition (diary.partitioning.detach-after-months) hides
+-- the reactions of every entry written in that month, including entries that are still live.
 CREATE TABLE "public"."comments" (
                                      "id" int8 NOT NULL DEFAULT nextval('comments_id_seq'::regclass),
                                      "user_id" int8 NOT NULL,
@@ -44,6 +152,7 @@ CREATE TABLE "public"."comments" (
                                      "content" text COLLATE "pg_catalog"."default" NOT NULL,
                                      "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
                                      "parent_id" int8,
+                                     "entry_created_at" timestamp(6) NOT NULL,
                                      CONSTRAINT "comments_pkey" PRIMARY KEY ("id"),
                                      CONSTRAINT "comments_entry_id_fkey" FOREIGN KEY ("entry_id") REFERENCES "public"."diary_entries" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION,
                                      CONSTRAINT "comments_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION,
@@ -54,46 +163,11 @@ CREATE TABLE "public"."comments" (
 ALTER TABLE "public"."comments"
     OWNER TO "postgres";
 
-CREATE TABLE "public"."diary_entries" (
-                                          "id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
-                                          "user_id" int8 NOT NULL,
-                                          "title" varchar(255) COLLATE "pg_catalog"."default",
-                                          "content" text COLLATE "pg_catalog"."default",
-                                          "date" date,
-                                          "tags" text[] COLLATE "pg_catalog"."default",
-                                          "mood" varchar(50) COLLATE "pg_catalog"."default",
-                                          "privacy" varchar(20) COLLATE "pg_catalog"."default",
-                                          "deleted" bool DEFAULT false,
-                                          "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
-                                          "updated_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
-                                          "is_story" bool,
-                                          "folder_id" varchar(255) COLLATE "pg_catalog"."default",
-                                          CONSTRAINT "diary_entries_pkey" PRIMARY KEY ("id"),
-                                          CONSTRAINT "diary_entries_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION,
-                                          CONSTRAINT "fk_diary_entries_folder" FOREIGN KEY ("folder_id") REFERENCES "public"."folders" ("id") ON DELETE SET NULL ON UPDATE NO ACTION
-)
-;
-
-ALTER TABLE "public"."diary_entries"
-    OWNER TO "postgres";
-
-CREATE TABLE "public"."folders" (
-                                    "id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
-                                    "user_id" int8 NOT NULL,
-                                    "name" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
-                                    "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
-                                    CONSTRAINT "folders_pkey" PRIMARY KEY ("id"),
-                                    CONSTRAINT "folders_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION
-)
-;
-
-ALTER TABLE "public"."folders"
-    OWNER TO "postgres";
-
 CREATE TABLE "public"."likes" (
                                   "user_id" int8 NOT NULL,
                                   "entry_id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
                                   "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
+                                  "entry_created_at" timestamp(6) NOT NULL,
                                   CONSTRAINT "likes_pkey" PRIMARY KEY ("user_id", "entry_id"),
                                   CONSTRAINT "likes_entry_id_fkey" FOREIGN KEY ("entry_id") REFERENCES "public"."diary_entries" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION,
                                   CONSTRAINT "likes_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION
@@ -103,6 +177,20 @@ CREATE TABLE "public"."likes" (
 ALTER TABLE "public"."likes"
     OWNER TO "postgres";
 
+CREATE TABLE "public"."votes" (
+                                  "user_id" int8 NOT NULL,
+                                  "entry_id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
+                                  "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
+                                  "entry_created_at" timestamp(6) NOT NULL,
+                                  CONSTRAINT "votes_pkey" PRIMARY KEY ("user_id", "entry_id"),
+                                  CONSTRAINT "votes_entry_id_fkey" FOREIGN KEY ("entry_id") REFERENCES "public"."diary_entries" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION,
+                                  CONSTRAINT "votes_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION
+)
+;
+
+ALTER TABLE "public"."votes"
+    OWNER TO "postgres";
+
 CREATE TABLE "public"."mindmaps" (
                                      "id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
                                      "user_id" int8 NOT NULL,
@@ -117,29 +205,37 @@ CREATE TABLE "public"."mindmaps" (
 ALTER TABLE "public"."mindmaps"
     OWNER TO "postgres";
 
-CREATE TABLE "public"."users" (
-                                  "id" int8 NOT NULL DEFAULT nextval('users_id_seq'::regclass),
-                                  "email" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
-                                  "password" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
-                                  "name" varchar(255) COLLATE "pg_catalog"."default",
-                                  "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
-                                  CONSTRAINT "users_pkey" PRIMARY KEY ("id"),
-                                  CONSTRAINT "users_email_key" UNIQUE ("email")
+-- Background work (book processing, housekeeping). Workers claim due rows with
+-- FOR UPDATE SKIP LOCKED, so any number of instances can poll without blocking each other.
+-- dedupe_key keeps at most one unfinished job per key (e.g. one pending purge across instances).
+CREATE TABLE "public"."jobs" (
+                                 "id" int8 NOT NULL DEFAULT nextval('jobs_id_seq'::regclass),
+                                 "kind" varchar(64) COLLATE "pg_catalog"."default" NOT NULL,
+                                 "payload" text COLLATE "pg_catalog"."default",
+                                 "priority" int4 NOT NULL DEFAULT 100,
+                                 "status" varchar(16) COLLATE "pg_catalog"."default" NOT NULL DEFAULT 'queued'::character varying,
+                                 "attempts" int4 NOT NULL DEFAULT 0,
+                                 "max_attempts" int4 NOT NULL DEFAULT 5,
+                                 "run_at" timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                 "locked_at" timestamp(6),
+                                 "locked_by" varchar(64) COLLATE "pg_catalog"."default",
+                                 "last_error" text COLLATE "pg_catalog"."default",
+                                 "dedupe_key" varchar(255) COLLATE "pg_catalog"."default",
+                                 "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
+                                 "finished_at" timestamp(6),
+                                 CONSTRAINT "jobs_pkey" PRIMARY KEY ("id")
 )
 ;
 
-ALTER TABLE "public"."users"
+ALTER TABLE "public"."jobs"
     OWNER TO "postgres";
 
-CREATE TABLE "public"."votes" (
-                                  "user_id" int8 NOT NULL,
-                                  "entry_id" varchar(255) COLLATE "pg_catalog"."default" NOT NULL,
-                                  "created_at" timestamp(6) DEFAULT CURRENT_TIMESTAMP,
-                                  CONSTRAINT "votes_pkey" PRIMARY KEY ("user_id", "entry_id"),
-                                  CONSTRAINT "votes_entry_id_fkey" FOREIGN KEY ("entry_id") REFERENCES "public"."diary_entries" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION,
-                                  CONSTRAINT "votes_user_id_fkey" FOREIGN KEY ("user_id") REFERENCES "public"."users" ("id") ON DELETE NO ACTION ON UPDATE NO ACTION
-)
-;
+-- Lower priority values run first
+CREATE INDEX "idx_jobs_due" ON "public"."jobs" ("priority", "run_at", "id") WHERE "status" = 'queued';
+CREATE INDEX "idx_jobs_running" ON "public"."jobs" ("locked_at") WHERE "status" = 'running';
+CREATE INDEX "idx_jobs_finished" ON "public"."jobs" ("finished_at") WHERE "status" IN ('done', 'failed');
+CREATE UNIQUE INDEX "uq_jobs_dedupe" ON "public"."jobs" ("dedupe_key") WHERE "status" IN ('queued', 'running');
 
-ALTER TABLE "public"."votes"
-    OWNER TO "postgres";
\ No newline at end of file
+ALTER SEQUENCE "public"."users_id_seq" OWNED BY "public"."users"."id";
+ALTER SEQUENCE "public"."comments_id_seq" OWNED BY "public"."comments"."id";
+ALTER SEQUENCE "public"."jobs_id_seq" OWNED BY "public"."jobs"."id";
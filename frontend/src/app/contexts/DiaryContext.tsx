@@ -1,4 +1,5 @@
 import React, { createContext, useContext, useState, ReactNode, useEffect } from 'react';
+import { apiFetch, setToken, clearToken, getToken, UNAUTHORIZED_EVENT } from '../utils/api';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
@@ -112,7 +113,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
 
   const fetchFolders = async (userId: number) => {
     try {
-        const res = await fetch(`${API_BASE_URL}/folders?userId=${userId}`);
+        const res = await apiFetch(`${API_BASE_URL}/folders`);
         const data = await res.json();
         if (data.code === 200) {
             setFolders(data.data);
@@ -125,10 +126,10 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const createFolder = async (name: string) => {
     if (!user) return;
     try {
-        const res = await fetch(`${API_BASE_URL}/folders`, {
+        const res = await apiFetch(`${API_BASE_URL}/folders`, {
             method: 'POST',
             headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({ userId: user.id, name })
+            body: JSON.stringify({ name })
         });
         const data = await res.json();
         if (data.code === 200) {
@@ -142,7 +143,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const deleteFolder = async (id: string) => {
     if (!user) return;
     try {
-        const res = await fetch(`${API_BASE_URL}/folders/${id}?userId=${user.id}`, {
+        const res = await apiFetch(`${API_BASE_URL}/folders/${id}`, {
             method: 'DELETE'
         });
         const data = await res.json();
@@ -159,10 +160,10 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const moveEntryToFolder = async (entryId: string, folderId: string | undefined) => {
     if (!user) return;
     try {
-        const res = await fetch(`${API_BASE_URL}/entries/${entryId}/folder`, {
+        const res = await apiFetch(`${API_BASE_URL}/entries/${entryId}/folder`, {
             method: 'PUT',
             headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({ userId: user.id, folderId: folderId })
+            body: JSON.stringify({ folderId: folderId })
         });
         const data = await res.json();
         if (data.code === 200) {
@@ -187,9 +188,19 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   // Load user from local storage on mount
   useEffect(() => {
     const storedUser = localStorage.getItem('diary_user');
-    if (storedUser) {
+    // A user saved without a session token (or with an expired one) has to log in again
+    if (storedUser && getToken()) {
       setUser(JSON.parse(storedUser));
+    } else {
+      localStorage.removeItem('diary_user');
     }
+    const handleUnauthorized = () => {
+      setUser(null);
+      localStorage.removeItem('diary_user');
+      setEntries([]);
+    };
+    window.addEventListener(UNAUTHORIZED_EVENT, handleUnauthorized);
+    return () => window.removeEventListener(UNAUTHORIZED_EVENT, handleUnauthorized);
   }, []);
 
   const transformEntryFromApi = (apiEntry: any): DiaryEntry => {
@@ -217,12 +228,12 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const fetchEntries = async (userId: number) => {
     try {
       // Fetch active entries
-      const res = await fetch(`${API_BASE_URL}/entries?userId=${userId}`);
+      const res = await apiFetch(`${API_BASE_URL}/entries`);
       const data = await res.json();
       if (data.code === 200) {
         const activeEntries = data.data.map(transformEntryFromApi);
         
-        const trashRes = await fetch(`${API_BASE_URL}/entries/trash?userId=${userId}`);
+        const trashRes = await apiFetch(`${API_BASE_URL}/entries/trash`);
         const trashData = await trashRes.json();
         let trashEntries: DiaryEntry[] = [];
         if (trashData.code === 200) {
@@ -250,7 +261,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const fetchSharedEntries = async () => {
     if (!user) return;
     try {
-      const res = await fetch(`${API_BASE_URL}/community/entries?userId=${user.id}`);
+      const res = await apiFetch(`${API_BASE_URL}/community/entries`);
       const data = await res.json();
       if (data.code === 200) {
         setSharedEntries(data.data.map(transformEntryFromApi));
@@ -263,10 +274,8 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const likeEntry = async (entryId: string) => {
     if (!user) return;
     try {
-      const res = await fetch(`${API_BASE_URL}/community/entries/${entryId}/like`, {
+      const res = await apiFetch(`${API_BASE_URL}/community/entries/${entryId}/like`, {
         method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
-        body: JSON.stringify({ userId: user.id }),
       });
       const data = await res.json();
       if (data.code === 200) {
@@ -291,7 +300,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const unlikeEntry = async (entryId: string) => {
     if (!user) return;
     try {
-      const res = await fetch(`${API_BASE_URL}/community/entries/${entryId}/like?userId=${user.id}`, {
+      const res = await apiFetch(`${API_BASE_URL}/community/entries/${entryId}/like`, {
         method: 'DELETE',
       });
       const data = await res.json();
@@ -315,10 +324,8 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const voteEntry = async (entryId: string) => {
     if (!user) return;
     try {
-      const res = await fetch(`${API_BASE_URL}/community/entries/${entryId}/vote`, {
+      const res = await apiFetch(`${API_BASE_URL}/community/entries/${entryId}/vote`, {
         method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
-        body: JSON.stringify({ userId: user.id }),
       });
       const data = await res.json();
       if (data.code === 200) {
@@ -343,7 +350,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const unvoteEntry = async (entryId: string) => {
     if (!user) return;
     try {
-      const res = await fetch(`${API_BASE_URL}/community/entries/${entryId}/vote?userId=${user.id}`, {
+      const res = await apiFetch(`${API_BASE_URL}/community/entries/${entryId}/vote`, {
         method: 'DELETE',
       });
       const data = await res.json();
@@ -367,10 +374,10 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const addComment = async (entryId: string, content: string, parentId?: number): Promise<Comment | null> => {
     if (!user) return null;
     try {
-      const res = await fetch(`${API_BASE_URL}/community/entries/${entryId}/comments`, {
+      const res = await apiFetch(`${API_BASE_URL}/community/entries/${entryId}/comments`, {
         method: 'POST',
         headers: { 'Content-Type': 'application/json' },
-        body: JSON.stringify({ userId: user.id, content, parentId }),
+        body: JSON.stringify({ content, parentId }),
       });
       const data = await res.json();
       if (data.code === 200) {
@@ -395,7 +402,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const deleteComment = async (entryId: string, commentId: number): Promise<boolean> => {
     if (!user) return false;
     try {
-      const res = await fetch(`${API_BASE_URL}/community/entries/${entryId}/comments/${commentId}`, {
+      const res = await apiFetch(`${API_BASE_URL}/community/entries/${entryId}/comments/${commentId}`, {
         method: 'DELETE',
       });
       const data = await res.json();
@@ -420,7 +427,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
 
   const getComments = async (entryId: string): Promise<Comment[]> => {
     try {
-      const res = await fetch(`${API_BASE_URL}/community/entries/${entryId}/comments`);
+      const res = await apiFetch(`${API_BASE_URL}/community/entries/${entryId}/comments`);
       const data = await res.json();
       if (data.code === 200) {
         return data.data;
@@ -434,15 +441,16 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
 
   const login = async (email: string, password: string) => {
     try {
-      const res = await fetch(`${API_BASE_URL}/auth/login`, {
+      const res = await apiFetch(`${API_BASE_URL}/auth/login`, {
         method: 'POST',
         headers: { 'Content-Type': 'application/json' },
         body: JSON.stringify({ email, password }),
       });
       const data = await res.json();
       if (data.code === 200) {
-        setUser(data.data);
-        localStorage.setItem('diary_user', JSON.stringify(data.data));
+        setToken(data.data.token);
+        setUser(data.data.user);
+        localStorage.setItem('diary_user', JSON.stringify(data.data.user));
         return true;
       }
       return false;
@@ -453,6 +461,8 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   };
 
   const logout = () => {
+    apiFetch(`${API_BASE_URL}/auth/logout`, { method: 'POST' }).catch(() => {});
+    clearToken();
     setUser(null);
     localStorage.removeItem('diary_user');
     setEntries([]);
@@ -460,15 +470,16 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
 
   const register = async (email: string, password: string, name: string) => {
     try {
-      const res = await fetch(`${API_BASE_URL}/auth/register`, {
+      const res = await apiFetch(`${API_BASE_URL}/auth/register`, {
         method: 'POST',
         headers: { 'Content-Type': 'application/json' },
         body: JSON.stringify({ email, password, name }),
       });
       const data = await res.json();
       if (data.code === 200) {
-        setUser(data.data);
-        localStorage.setItem('diary_user', JSON.stringify(data.data));
+        setToken(data.data.token);
+        setUser(data.data.user);
+        localStorage.setItem('diary_user', JSON.stringify(data.data.user));
         return true;
       }
       return false;
@@ -483,13 +494,12 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
     
     const newEntryPayload = {
       ...entry,
-      userId: user.id,
       date: new Date().toISOString().split('T')[0], // yyyy-MM-dd
       tags: entry.tags || [], // Ensure tags is array
     };
 
     try {
-      const res = await fetch(`${API_BASE_URL}/entries`, {
+      const res = await apiFetch(`${API_BASE_URL}/entries`, {
         method: 'POST',
         headers: { 'Content-Type': 'application/json' },
         body: JSON.stringify(newEntryPayload),
@@ -522,7 +532,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
     }
 
     try {
-      const res = await fetch(`${API_BASE_URL}/entries/${id}`, {
+      const res = await apiFetch(`${API_BASE_URL}/entries/${id}`, {
         method: 'PUT',
         headers: { 'Content-Type': 'application/json' },
         body: JSON.stringify(payload),
@@ -543,7 +553,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
 
   const deleteEntry = async (id: string) => {
     try {
-      const res = await fetch(`${API_BASE_URL}/entries/${id}`, {
+      const res = await apiFetch(`${API_BASE_URL}/entries/${id}`, {
         method: 'DELETE',
       });
       const data = await res.json();
@@ -559,7 +569,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
 
   const restoreEntry = async (id: string) => {
     try {
-      const res = await fetch(`${API_BASE_URL}/entries/${id}/restore`, {
+      const res = await apiFetch(`${API_BASE_URL}/entries/${id}/restore`, {
         method: 'PUT',
       });
       const data = await res.json();
@@ -575,7 +585,7 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
 
   const permanentlyDeleteEntry = async (id: string) => {
     try {
-        const res = await fetch(`${API_BASE_URL}/entries/${id}/permanent`, {
+        const res = await apiFetch(`${API_BASE_URL}/entries/${id}/permanent`, {
           method: 'DELETE',
         });
         const data = await res.json();
@@ -590,10 +600,10 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const updateProfile = async (name: string, email: string) => {
     if (!user) return false;
     try {
-      const res = await fetch(`${API_BASE_URL}/auth/profile`, {
+      const res = await apiFetch(`${API_BASE_URL}/auth/profile`, {
         method: 'PUT',
         headers: { 'Content-Type': 'application/json' },
-        body: JSON.stringify({ id: user.id, name, email }),
+        body: JSON.stringify({ name, email }),
       });
       const data = await res.json();
       if (data.code === 200) {
@@ -612,10 +622,10 @@ export function DiaryProvider({ children }: { children: ReactNode }) {
   const updatePassword = async (currentPassword: string, newPassword: string) => {
     if (!user) return false;
     try {
-      const res = await fetch(`${API_BASE_URL}/auth/password`, {
+      const res = await apiFetch(`${API_BASE_URL}/auth/password`, {
         method: 'PUT',
         headers: { 'Content-Type': 'application/json' },
-        body: JSON.stringify({ userId: user.id, currentPassword, newPassword }),
+        body: JSON.stringify({ currentPassword, newPassword }),
       });
       const data = await res.json();
       if (data.code === 200) {
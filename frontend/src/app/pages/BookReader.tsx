@@ -7,6 +7,7 @@ import { ArrowLeft, Loader2, StickyNote, PlusCircle, ChevronLeft, ChevronRight,
 import { Button } from '../components/ui/button';
 import { Sheet, SheetContent, SheetHeader, SheetTitle, SheetTrigger } from '../components/ui/sheet';
 import { toast } from 'sonner';
+import { apiFetch, authHeaders } from '../utils/api';
 
 // Set worker URL for react-pdf
 pdfjs.GlobalWorkerOptions.workerSrc = `//unpkg.com/pdfjs-dist@${pdfjs.version}/build/pdf.worker.min.mjs`;
@@ -53,7 +54,7 @@ export function BookReader() {
   const fetchBook = async () => {
     try {
       // Fetch metadata
-      const metaRes = await fetch(`http://localhost:8080/api/books/${id}`);
+      const metaRes = await apiFetch(`http://localhost:8080/api/books/${id}`);
       const metaData = await metaRes.json();
       if (metaData.code === 200) {
         setBook(metaData.data);
@@ -66,8 +67,19 @@ export function BookReader() {
         }
       }
 
+      // EPUBs are opened from the server-side manifest so epub.js fetches one chapter at a time
+      if (metaData.data?.format !== 'pdf') {
+        const manifestRes = await apiFetch(`http://localhost:8080/api/books/${id}/manifest`);
+        const manifestData = await manifestRes.json();
+        if (manifestData.code === 200) {
+          const opfPath = manifestData.data.opfPath.split('/').map(encodeURIComponent).join('/');
+          setBookUrl(`http://localhost:8080/api/books/${id}/resources/${opfPath}`);
+          return;
+        }
+      }
+
       // Fetch file
-      const fileRes = await fetch(`http://localhost:8080/api/books/${id}/download`);
+      const fileRes = await apiFetch(`http://localhost:8080/api/books/${id}/download`);
       if (fileRes.ok) {
         const blob = await fileRes.blob();
         const url = URL.createObjectURL(blob);
@@ -84,7 +96,7 @@ export function BookReader() {
   const fetchNotes = async () => {
     if (!user || !id) return;
     try {
-        const res = await fetch(`http://localhost:8080/api/books/${id}/notes?userId=${user.id}`);
+        const res = await apiFetch(`http://localhost:8080/api/books/${id}/notes`);
         const data = await res.json();
         if (data.code === 200) {
             setSelections(data.data.map((note: any) => ({
@@ -102,7 +114,7 @@ export function BookReader() {
   const handleLocationChanged = (cfi: string | number) => {
     setLocation(cfi);
     if (typeof cfi === 'string' && id) {
-       fetch(`http://localhost:8080/api/books/${id}/progress?progress=${encodeURIComponent(cfi)}`, {
+       apiFetch(`http://localhost:8080/api/books/${id}/progress?progress=${encodeURIComponent(cfi)}`, {
            method: 'PUT'
        });
     }
@@ -111,7 +123,7 @@ export function BookReader() {
   const handlePdfPageChange = (newPage: number) => {
     setPageNumber(newPage);
     if (id) {
-       fetch(`http://localhost:8080/api/books/${id}/progress?progress=${newPage}`, {
+       apiFetch(`http://localhost:8080/api/books/${id}/progress?progress=${newPage}`, {
            method: 'PUT'
        });
     }
@@ -125,7 +137,6 @@ export function BookReader() {
       if (!user || !id || !tempSelection) return;
       
       const note = {
-          userId: user.id,
           bookId: id,
           cfiRange: tempSelection.cfiRange,
           content: tempSelection.content,
@@ -133,7 +144,7 @@ export function BookReader() {
       };
 
       try {
-          const res = await fetch(`http://localhost:8080/api/books/${id}/notes`, {
+          const res = await apiFetch(`http://localhost:8080/api/books/${id}/notes`, {
               method: 'POST',
               headers: { 'Content-Type': 'application/json' },
               body: JSON.stringify(note)
@@ -141,7 +152,13 @@ export function BookReader() {
           const data = await res.json();
           if (data.code === 200) {
               toast.success('Highlight saved');
-              fetchNotes();
+              // The server returns the stored note, so the list is updated in place instead of refetched
+              setSelections(prev => [{
+                  cfiRange: data.data.cfiRange,
+                  content: data.data.content,
+                  color: data.data.color || 'rgba(255, 255, 0, 0.3)',
+                  id: data.data.id
+              }, ...prev]);
               setTempSelection(null);
               // Clear selection in EPUB
               if (tempSelection.type === 'epub' && renditionRef.current) {
@@ -158,13 +175,13 @@ export function BookReader() {
 
   const handleDeleteNote = async (noteId: string) => {
       try {
-          const res = await fetch(`http://localhost:8080/api/books/notes/${noteId}`, {
+          const res = await apiFetch(`http://localhost:8080/api/books/notes/${noteId}`, {
               method: 'DELETE'
           });
           const data = await res.json();
           if (data.code === 200) {
               toast.success('Note deleted');
-              fetchNotes();
+              setSelections(prev => prev.filter(s => s.id !== noteId));
               // Remove highlight from view if it's EPUB
               if (book?.format !== 'pdf' && renditionRef.current) {
                    const note = selections.find(s => s.id === noteId);
@@ -298,6 +315,10 @@ export function BookReader() {
         ) : (
             <ReactReader
               url={bookUrl}
+              // epub.js fetches chapters itself, so it needs the session token too. Images, CSS and
+              // fonts would otherwise be loaded by the iframe without it; blobUrl has epub.js fetch
+              // them with the headers and hand the iframe blob: URLs instead
+              epubInitOptions={{ requestHeaders: authHeaders(), replacements: 'blobUrl' }}
               location={location}
               locationChanged={handleLocationChanged}
               getRendition={(rendition) => {
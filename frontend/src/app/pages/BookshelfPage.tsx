@@ -8,6 +8,7 @@ import { Input } from '../components/ui/input';
 import { Label } from '../components/ui/label';
 import { Dialog, DialogContent, DialogHeader, DialogTitle, DialogTrigger } from '../components/ui/dialog';
 import { toast } from 'sonner';
+import { apiFetch } from '../utils/api';
 
 interface Book {
   id: string;
@@ -39,7 +40,7 @@ export function BookshelfPage() {
 
   const fetchBooks = async () => {
     try {
-      const res = await fetch(`http://localhost:8080/api/books?userId=${user?.id}`);
+      const res = await apiFetch(`http://localhost:8080/api/books`);
       const data = await res.json();
       if (data.code === 200) {
         setBooks(data.data);
@@ -76,13 +77,12 @@ export function BookshelfPage() {
     
     setIsUploading(true);
     const formData = new FormData();
-    formData.append('userId', user.id.toString());
     formData.append('title', newBookTitle);
     formData.append('author', newBookAuthor || 'Unknown');
     formData.append('file', selectedFile);
 
     try {
-      const res = await fetch('http://localhost:8080/api/books', {
+      const res = await apiFetch('http://localhost:8080/api/books', {
         method: 'POST',
         body: formData,
       });
@@ -110,7 +110,7 @@ export function BookshelfPage() {
     if (!confirm('Are you sure you want to delete this book?')) return;
     
     try {
-      const res = await fetch(`http://localhost:8080/api/books/${id}`, {
+      const res = await apiFetch(`http://localhost:8080/api/books/${id}`, {
         method: 'DELETE',
       });
       const data = await res.json();
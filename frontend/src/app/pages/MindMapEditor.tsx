@@ -35,6 +35,7 @@ import { ShortcutsPanel } from '../components/mindmap/ShortcutsPanel';
 import { useUndoRedo } from '../hooks/useUndoRedo';
 import { DownloadButton } from '../components/mindmap/DownloadButton';
 import { StylePanel } from '../components/mindmap/StylePanel';
+import { apiFetch } from '../utils/api';
 
 const initialNodes: Node[] = [
   { id: '1', position: { x: 0, y: 0 }, data: { label: 'Root Node' }, type: 'mindMap' },
@@ -69,7 +70,7 @@ function MindMapFlow() {
 
   const fetchMindMap = async () => {
     try {
-      const res = await fetch(`http://localhost:8080/api/mindmaps/${id}`);
+      const res = await apiFetch(`http://localhost:8080/api/mindmaps/${id}`);
       const data = await res.json();
       if (data.code === 200) {
         setTitle(data.data.title);
@@ -91,7 +92,7 @@ function MindMapFlow() {
     setIsSaving(true);
     try {
       const content = JSON.stringify({ nodes, edges });
-      const res = await fetch(`http://localhost:8080/api/mindmaps/${id}`, {
+      const res = await apiFetch(`http://localhost:8080/api/mindmaps/${id}`, {
         method: 'PUT',
         headers: { 'Content-Type': 'application/json' },
         body: JSON.stringify({
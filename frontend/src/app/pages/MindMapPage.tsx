@@ -13,6 +13,7 @@ import {
 } from '../components/ui/dropdown-menu';
 import { format, isAfter, subDays, subWeeks } from 'date-fns';
 import { Select, SelectContent, SelectItem, SelectTrigger, SelectValue } from '../components/ui/select';
+import { apiFetch } from '../utils/api';
 
 interface MindMap {
   id: string;
@@ -43,7 +44,7 @@ export function MindMapPage() {
 
   const fetchMindMaps = async () => {
     try {
-      const res = await fetch(`http://localhost:8080/api/mindmaps?userId=${user?.id}`);
+      const res = await apiFetch(`http://localhost:8080/api/mindmaps`);
       const data = await res.json();
       if (data.code === 200) {
         // 计算节点和边的数量
@@ -118,11 +119,10 @@ export function MindMapPage() {
         edges: []
       });
 
-      const res = await fetch('http://localhost:8080/api/mindmaps', {
+      const res = await apiFetch('http://localhost:8080/api/mindmaps', {
         method: 'POST',
         headers: { 'Content-Type': 'application/json' },
         body: JSON.stringify({
-          userId: user?.id,
           title: newTitle,
           content: initialContent
         })
@@ -146,7 +146,7 @@ export function MindMapPage() {
     if (!confirm('Are you sure you want to delete this mind map?')) return;
 
     try {
-      const res = await fetch(`http://localhost:8080/api/mindmaps/${id}`, {
+      const res = await apiFetch(`http://localhost:8080/api/mindmaps/${id}`, {
         method: 'DELETE'
       });
       const data = await res.json();
@@ -6,40 +6,44 @@ import { Card, CardContent, CardHeader, CardTitle, CardDescription, CardFooter }
 import { Textarea } from '../components/ui/textarea';
 import { Avatar, AvatarFallback, AvatarImage } from '../components/ui/avatar';
 import { Trophy, Heart, PenLine, AlertCircle, LayoutList, LayoutGrid } from 'lucide-react';
-import { format, isSameDay } from 'date-fns';
+import { format } from 'date-fns';
 import { Badge } from '../components/ui/badge';
 import { toast } from 'sonner';
+import { apiFetch } from '../utils/api';
 
 export function TopicPage() {
-  const { user, entries, sharedEntries, fetchSharedEntries, addEntry, likeEntry, unlikeEntry, voteEntry, unvoteEntry } = useDiary();
+  const { user, addEntry, voteEntry, unvoteEntry } = useDiary();
   const [topic, setTopic] = useState('');
   const [storyContent, setStoryContent] = useState('');
   const [isSubmitting, setIsSubmitting] = useState(false);
   const [mySubmission, setMySubmission] = useState<DiaryEntry | null>(null);
+  const [topicStories, setTopicStories] = useState<DiaryEntry[]>([]);
   const [viewMode, setViewMode] = useState<'list' | 'grid'>('list');
 
   const today = new Date();
   const dailyTopic = getDailyTopic(today);
   const topicTag = getTopicTag(today);
 
+  // Today's stories come back ranked by votes, together with the user's own submission
+  const fetchTopicStories = async () => {
+    if (!user) return;
+    try {
+      const res = await apiFetch(`http://localhost:8080/api/community/topics/${format(today, 'yyyy-MM-dd')}`);
+      const data = await res.json();
+      if (data.code === 200) {
+        setTopicStories(data.data.stories || []);
+        setMySubmission(data.data.mySubmission || null);
+      }
+    } catch (error) {
+      console.error('Failed to fetch topic stories:', error);
+    }
+  };
+
   useEffect(() => {
     setTopic(dailyTopic);
-    // Fetch shared entries to get the latest votes and stories
-    fetchSharedEntries();
+    fetchTopicStories();
   }, [user]);
 
-  useEffect(() => {
-    // Check if user has already submitted a story for today
-    if (entries) {
-      // Check for isStory flag or topic tag
-      const submission = entries.find(e => 
-        (e.isStory && isSameDay(new Date(e.date), today)) || 
-        e.tags?.includes(topicTag)
-      );
-      setMySubmission(submission || null);
-    }
-  }, [entries, topicTag]);
-
   const handleSubmitStory = async () => {
     if (!storyContent.trim()) {
       toast.error("Story cannot be empty");
@@ -58,8 +62,7 @@ export function TopicPage() {
       });
       setStoryContent('');
       toast.success("Story submitted successfully!");
-      // Refresh shared entries
-      fetchSharedEntries();
+      fetchTopicStories();
     } catch (error) {
       toast.error("Failed to submit story");
     } finally {
@@ -72,9 +75,7 @@ export function TopicPage() {
 
     // Check if user has already voted for another story today
     // Note: The backend also enforces this, but frontend check provides immediate feedback
-    const votedEntry = sharedEntries.find(e => 
-      e.isStory && isSameDay(new Date(e.date), today) && e.isVoted && e.id !== entry.id
-    );
+    const votedEntry = topicStories.find(e => e.isVoted && e.id !== entry.id);
 
     if (votedEntry) {
       toast.error("One person, one vote! You have already voted for another story today.");
@@ -87,17 +88,11 @@ export function TopicPage() {
     } else {
         await voteEntry(entry.id);
     }
+    fetchTopicStories();
   };
 
-  // Filter stories for today's topic or marked as today's story
-  const topicStories = sharedEntries.filter(e => {
-    const isToday = isSameDay(new Date(e.date), today);
-    return isToday && (e.isStory || e.tags?.includes(topicTag));
-  });
-  
-  // Sort by votes for Honor Board
-  const sortedStories = [...topicStories].sort((a, b) => (b.voteCount || 0) - (a.voteCount || 0));
-  const topThree = sortedStories.slice(0, 3).filter(e => (e.voteCount || 0) > 0);
+  // Stories are already ranked by votes for the Honor Board
+  const topThree = topicStories.slice(0, 3).filter(e => (e.voteCount || 0) > 0);
 
   return (
     <div className="container mx-auto p-6 max-w-5xl space-y-8">
@@ -14,6 +14,7 @@ import { Badge } from '../components/ui/badge';
 import { Select, SelectContent, SelectItem, SelectTrigger, SelectValue } from '../components/ui/select';
 import { Switch } from '../components/ui/switch';
 import { Bold, Italic, Save, X, Lock, Globe, Check, Eye, Edit3, Smile, Columns, Image as ImageIcon, Link as LinkIcon, Upload, Clock, CloudSun, Loader2, MapPin, Search, Mic, MicOff } from 'lucide-react';
+import { apiFetch } from '../utils/api';
 
 // Types for Web Speech API
 interface SpeechRecognitionEvent extends Event {
@@ -74,27 +75,27 @@ const getWeatherInfo = (code: number) => {
   return { description: '未知', icon: '🌡️' };
 };
 
-const generateWeatherContent = (city: string, weatherData: any) => {
-  if (!weatherData.current) return '';
-  const { temperature_2m, weather_code, relative_humidity_2m, apparent_temperature, wind_speed_10m } = weatherData.current;
-  const { description, icon } = getWeatherInfo(weather_code);
+// weather is a WeatherReport from /api/geo/weather
+const generateWeatherContent = (city: string, weather: any) => {
+  const { temperature, weatherCode, apparentTemperature, windSpeed } = weather;
+  const { description, icon } = getWeatherInfo(weatherCode);
   
   // Generate natural weather description
   let tempDesc = '';
-  if (apparent_temperature <= 5) tempDesc = '有些寒冷';
-  else if (apparent_temperature <= 15) tempDesc = '有些微凉';
-  else if (apparent_temperature <= 25) tempDesc = '温暖舒适';
-  else if (apparent_temperature <= 30) tempDesc = '有些热';
+  if (apparentTemperature <= 5) tempDesc = '有些寒冷';
+  else if (apparentTemperature <= 15) tempDesc = '有些微凉';
+  else if (apparentTemperature <= 25) tempDesc = '温暖舒适';
+  else if (apparentTemperature <= 30) tempDesc = '有些热';
   else tempDesc = '炎热';
 
   let windDesc = '';
-  if (wind_speed_10m < 12) windDesc = '微风拂面';
-  else if (wind_speed_10m < 20) windDesc = '和风习习';
-  else if (wind_speed_10m < 30) windDesc = '清风徐来';
+  if (windSpeed < 12) windDesc = '微风拂面';
+  else if (windSpeed < 20) windDesc = '和风习习';
+  else if (windSpeed < 30) windDesc = '清风徐来';
   else windDesc = '风力稍大';
   
   const dateStr = format(new Date(), 'yyyy年MM月dd日', { locale: zhCN });
-  return `> ${dateStr} · ${city} · ${icon} ${description}\n> ${city}今天${description}${tempDesc}，${temperature_2m}°C，${windDesc}。\n\n`;
+  return `> ${dateStr} · ${city} · ${icon} ${description}\n> ${city}今天${description}${tempDesc}，${temperature}°C，${windDesc}。\n\n`;
 };
 
 const WritingTimer = () => {
@@ -182,18 +183,15 @@ export function WritePage() {
       navigator.geolocation.getCurrentPosition(async (position) => {
         const { latitude, longitude } = position.coords;
         try {
-          // 1. Reverse Geocoding (Nominatim)
-          // Use accept-language to try getting Chinese names
-          const geoRes = await fetch(`https://nominatim.openstreetmap.org/reverse?format=json&lat=${latitude}&lon=${longitude}&zoom=10&accept-language=zh-CN`);
-          const geoData = await geoRes.json();
-          const city = geoData.address.city || geoData.address.town || geoData.address.district || geoData.address.county || 'Unknown Location';
-
-          // 2. Weather (OpenMeteo)
-          const weatherRes = await fetch(`https://api.open-meteo.com/v1/forecast?latitude=${latitude}&longitude=${longitude}&current=temperature_2m,weather_code,relative_humidity_2m,apparent_temperature,wind_speed_10m&timezone=auto`);
-          const weatherData = await weatherRes.json();
-          
-          if (weatherData.current) {
-              const weatherSentence = generateWeatherContent(city, weatherData);
+          // Place name and weather come from the backend proxy, which caches them for nearby users
+          const [geoData, weatherData] = await Promise.all([
+            apiFetch(`http://localhost:8080/api/geo/reverse?lat=${latitude}&lon=${longitude}`).then(res => res.json()),
+            apiFetch(`http://localhost:8080/api/geo/weather?lat=${latitude}&lon=${longitude}`).then(res => res.json())
+          ]);
+          const city = geoData.data?.name || 'Unknown Location';
+
+          if (weatherData.code === 200) {
+              const weatherSentence = generateWeatherContent(city, weatherData.data);
               setContent(prev => weatherSentence + prev);
           }
         } catch (e) {
@@ -311,9 +309,9 @@ export function WritePage() {
     if (!cityQuery.trim()) return;
     setIsSearchingCity(true);
     try {
-      const res = await fetch(`https://nominatim.openstreetmap.org/search?q=${encodeURIComponent(cityQuery)}&format=json&limit=5&accept-language=zh-CN`);
+      const res = await apiFetch(`http://localhost:8080/api/geo/search?q=${encodeURIComponent(cityQuery)}`);
       const data = await res.json();
-      setCityResults(data);
+      setCityResults(data.code === 200 ? data.data : []);
     } catch (error) {
       console.error("City search failed", error);
     } finally {
@@ -322,15 +320,14 @@ export function WritePage() {
   };
 
   const handleSelectCity = async (city: any) => {
-    const { lat, lon, display_name } = city;
-    const cityName = display_name.split(',')[0]; 
+    const { latitude, longitude, name } = city;
     
     try {
-        const weatherRes = await fetch(`https://api.open-meteo.com/v1/forecast?latitude=${lat}&longitude=${lon}&current=temperature_2m,weather_code,relative_humidity_2m,apparent_temperature,wind_speed_10m&timezone=auto`);
+        const weatherRes = await apiFetch(`http://localhost:8080/api/geo/weather?lat=${latitude}&lon=${longitude}`);
         const weatherData = await weatherRes.json();
         
-        if (weatherData.current) {
-            const weatherSentence = generateWeatherContent(cityName, weatherData);
+        if (weatherData.code === 200) {
+            const weatherSentence = generateWeatherContent(name, weatherData.data);
             insertTextAtCursor(weatherSentence);
         }
     } catch (e) {
@@ -457,7 +454,7 @@ export function WritePage() {
                               className="w-full text-left text-sm p-2 hover:bg-slate-50 rounded flex items-start gap-2 transition-colors"
                           >
                               <MapPin className="w-3.5 h-3.5 mt-0.5 text-slate-400 shrink-0" />
-                              <span className="line-clamp-2">{city.display_name}</span>
+                              <span className="line-clamp-2">{city.displayName}</span>
                           </button>
                       ))}
                   </div>
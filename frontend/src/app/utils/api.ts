@@ -0,0 +1,28 @@
+// Session token issued by /api/auth/login; every API call sends it as a bearer token
+const TOKEN_KEY = 'diary_token';
+
+export const getToken = () => localStorage.getItem(TOKEN_KEY);
+
+export const setToken = (token: string) => localStorage.setItem(TOKEN_KEY, token);
+
+export const clearToken = () => localStorage.removeItem(TOKEN_KEY);
+
+export const authHeaders = (): Record<string, string> => {
+  const token = getToken();
+  return token ? { Authorization: `Bearer ${token}` } : {};
+};
+
+// Fired when the server rejects the token (expired or logged out elsewhere)
+export const UNAUTHORIZED_EVENT = 'diary:unauthorized';
+
+export const apiFetch = async (input: string, init: RequestInit = {}) => {
+  const res = await fetch(input, {
+    ...init,
+    headers: { ...authHeaders(), ...(init.headers as Record<string, string> | undefined) },
+  });
+  if (res.status === 401) {
+    clearToken();
+    window.dispatchEvent(new Event(UNAUTHORIZED_EVENT));
+  }
+  return res;
+};